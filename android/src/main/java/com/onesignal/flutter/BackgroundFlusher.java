@@ -0,0 +1,57 @@
+package com.onesignal.flutter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the bridge's registered flush tasks when the app's UI is hidden.
+ *
+ * <p>Buffers that hold writes back for a short window register here, so nothing buffered is left
+ * behind when the app goes to the background and its process may be killed without further notice.
+ */
+final class BackgroundFlusher implements ComponentCallbacks2 {
+
+    private static final BackgroundFlusher INSTANCE = new BackgroundFlusher();
+    private static final CopyOnWriteArrayList<Runnable> TASKS = new CopyOnWriteArrayList<>();
+
+    private static boolean installed = false;
+
+    private BackgroundFlusher() {}
+
+    /** Registers for trim callbacks on the application context; later calls do nothing. */
+    static synchronized void install(Context context) {
+        if (installed || context == null) {
+            return;
+        }
+        context.getApplicationContext().registerComponentCallbacks(INSTANCE);
+        installed = true;
+    }
+
+    /** @param task run on the main thread; it should hand any real work to a lane. */
+    static void register(Runnable task) {
+        TASKS.addIfAbsent(task);
+    }
+
+    static void flushAll() {
+        for (Runnable task : TASKS) {
+            task.run();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            flushAll();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {}
+
+    @Override
+    public void onLowMemory() {
+        flushAll();
+    }
+}
@@ -0,0 +1,86 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Collects the reply for one entry of a {@code OneSignal#batch} call.
+ *
+ * <p>Unlike a channel {@code Result} this one is not tied to the UI thread, so responders complete it
+ * inline instead of posting to the main thread; see {@link FlutterMessengerResponder#replySuccess}.
+ */
+final class BatchEntryResult implements MethodChannel.Result {
+
+    /** Gathers the entry replies of one batch and replies to the batch call once all of them are in. */
+    static final class Batch {
+        private final FlutterMessengerResponder responder;
+        private final MethodChannel.Result result;
+        private final ArrayList<HashMap<String, Object>> replies;
+        private int remaining;
+
+        Batch(FlutterMessengerResponder responder, MethodChannel.Result result, int size) {
+            this.responder = responder;
+            this.result = result;
+            this.replies = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                replies.add(null);
+            }
+            this.remaining = size;
+            if (size == 0) responder.replySuccess(result, replies);
+        }
+
+        BatchEntryResult entry(int index) {
+            return new BatchEntryResult(this, index);
+        }
+
+        /** Records the reply for entry {@code index}; any later reply for it is ignored. */
+        void complete(int index, HashMap<String, Object> reply) {
+            boolean done;
+            synchronized (this) {
+                if (replies.get(index) != null) {
+                    return;
+                }
+                replies.set(index, reply);
+                done = --remaining == 0;
+            }
+            if (done) responder.replySuccess(result, replies);
+        }
+    }
+
+    private final Batch batch;
+    private final int index;
+
+    private BatchEntryResult(Batch batch, int index) {
+        this.batch = batch;
+        this.index = index;
+    }
+
+    @Override
+    public void success(Object result) {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("success", true);
+        hash.put("result", result);
+        // First reply wins, matching MethodChannel's "reply already submitted" contract.
+        batch.complete(index, hash);
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+        batch.complete(index, errorMap(errorCode, errorMessage, errorDetails));
+    }
+
+    @Override
+    public void notImplemented() {
+        batch.complete(index, errorMap("notImplemented", null, null));
+    }
+
+    static HashMap<String, Object> errorMap(String code, String message, Object details) {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("success", false);
+        hash.put("code", code);
+        hash.put("message", message);
+        hash.put("details", details);
+        return hash;
+    }
+}
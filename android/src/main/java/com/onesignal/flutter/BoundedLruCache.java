@@ -0,0 +1,127 @@
+package com.onesignal.flutter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small thread-safe LRU cache with an optional time-to-live.
+ *
+ * <p>Used for bridge-side state that Dart may ask for again shortly after an event, where holding every
+ * entry forever would leak. Expired entries are dropped lazily on access and on insert.
+ */
+final class BoundedLruCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long storedAtNanos;
+
+        Entry(V value, long storedAtNanos) {
+            this.value = value;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity;
+    private long ttlNanos;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    /** @param ttlMs how long an entry stays valid after it is stored; 0 keeps entries until evicted. */
+    BoundedLruCache(int capacity, long ttlMs) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+    }
+
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry, System.nanoTime())) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        long now = System.nanoTime();
+        entries.put(key, new Entry<>(value, now));
+        removeExpired(now);
+        trimTo(capacity);
+    }
+
+    synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    synchronized boolean containsKey(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && !isExpired(entry, System.nanoTime());
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /** Null arguments keep the current value. Shrinking evicts least recently used entries right away. */
+    synchronized void configure(Integer newCapacity, Long newTtlMs) {
+        if (newCapacity != null && newCapacity > 0) {
+            capacity = newCapacity;
+            trimTo(capacity);
+        }
+        if (newTtlMs != null && newTtlMs >= 0) {
+            ttlNanos = TimeUnit.MILLISECONDS.toNanos(newTtlMs);
+        }
+    }
+
+    synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("size", entries.size());
+        hash.put("capacity", capacity);
+        hash.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        hash.put("hits", hits);
+        hash.put("misses", misses);
+        hash.put("evictions", evictions);
+        hash.put("expirations", expirations);
+        return hash;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.storedAtNanos > ttlNanos;
+    }
+
+    private void removeExpired(long now) {
+        if (ttlNanos == 0) {
+            return;
+        }
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next(), now)) {
+                iterator.remove();
+                expirations++;
+            }
+        }
+    }
+
+    private void trimTo(int maxSize) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional upper bound on how long a foreground notification waits for Dart's willDisplay decision.
+ *
+ * <p>The bridge always prevents the default display and waits for {@code OneSignal#proceedWithWillDisplay}.
+ * If the isolate is busy that can take arbitrarily long, or never come. With a deadline set, each
+ * notification gets a timer when its event is sent; if Dart hasn't decided when it fires, the configured
+ * policy is applied instead and Dart's late decision is ignored. Decision latency is recorded either way.
+ */
+final class DisplayDeadline {
+
+    static final int POLICY_DISPLAY = 0;
+    static final int POLICY_SUPPRESS = 1;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+    private volatile int deadlineMs = 0;
+    private volatile int policy = POLICY_DISPLAY;
+
+    private final class Pending implements Runnable {
+        final String notificationId;
+        final long startedAtNanos = System.nanoTime();
+        final Runnable onDisplay;
+        final Runnable onSuppress;
+
+        Pending(String notificationId, Runnable onDisplay, Runnable onSuppress) {
+            this.notificationId = notificationId;
+            this.onDisplay = onDisplay;
+            this.onSuppress = onSuppress;
+        }
+
+        @Override
+        public void run() {
+            if (!pending.remove(notificationId, this)) {
+                return;
+            }
+            expired.put(notificationId, Boolean.TRUE);
+            latency.record(System.nanoTime() - startedAtNanos);
+            synchronized (DisplayDeadline.this) {
+                timedOut++;
+            }
+            if (policy == POLICY_SUPPRESS) onSuppress.run();
+            else onDisplay.run();
+        }
+    }
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    // Notifications the deadline resolved, so Dart's late decision for them can be recognized. Sized like
+    // the willDisplay caches, since Dart decides on the notifications those hold.
+    private final BoundedLruCache<String, Boolean> expired = new BoundedLruCache<>(
+            OneSignalNotifications.DEFAULT_WILL_DISPLAY_CACHE_SIZE,
+            OneSignalNotifications.DEFAULT_WILL_DISPLAY_CACHE_TTL_MS);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long decided = 0;
+    private long timedOut = 0;
+    private long late = 0;
+
+    /** Null arguments keep the current setting; a deadline of 0 waits for Dart indefinitely. */
+    void configure(Integer newDeadlineMs, Integer newPolicy) {
+        if (newDeadlineMs != null && newDeadlineMs >= 0) {
+            deadlineMs = newDeadlineMs;
+        }
+        if (newPolicy != null && (newPolicy == POLICY_DISPLAY || newPolicy == POLICY_SUPPRESS)) {
+            policy = newPolicy;
+        }
+    }
+
+    /** Follows the willDisplay cache settings; null arguments keep the current setting. */
+    void configureExpired(Integer cacheSize, Long ttlMs) {
+        expired.configure(cacheSize, ttlMs);
+    }
+
+    /** Starts the timer for a notification whose willDisplay event is about to be sent to Dart. */
+    void start(String notificationId, Runnable onDisplay, Runnable onSuppress) {
+        int deadline = deadlineMs;
+        if (deadline == 0 || notificationId == null) {
+            return;
+        }
+        Pending entry = new Pending(notificationId, onDisplay, onSuppress);
+        Pending previous = pending.put(notificationId, entry);
+        if (previous != null) HANDLER.removeCallbacks(previous);
+        HANDLER.postDelayed(entry, deadline);
+    }
+
+    /**
+     * Records Dart's decision for a notification.
+     *
+     * @return false if the deadline already applied its policy, in which case the decision must be ignored.
+     */
+    boolean decide(String notificationId) {
+        Pending entry = notificationId == null ? null : pending.remove(notificationId);
+        if (entry != null) {
+            HANDLER.removeCallbacks(entry);
+            latency.record(System.nanoTime() - entry.startedAtNanos);
+            synchronized (this) {
+                decided++;
+            }
+            return true;
+        }
+        if (notificationId != null && expired.remove(notificationId) != null) {
+            synchronized (this) {
+                late++;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    void clear() {
+        for (Pending entry : pending.values()) {
+            HANDLER.removeCallbacks(entry);
+        }
+        pending.clear();
+        expired.clear();
+    }
+
+    synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("deadlineMs", deadlineMs);
+        hash.put("policy", policy);
+        hash.put("pending", pending.size());
+        hash.put("decided", decided);
+        hash.put("timedOut", timedOut);
+        hash.put("lateDecisions", late);
+        hash.put("latency", latency.metrics());
+        return hash;
+    }
+}
@@ -0,0 +1,154 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Optionally collects native-to-Dart events from every responder and delivers them as one ordered
+ * {@code OneSignal#events} message per window, instead of one channel message per event.
+ *
+ * <p>The first event of a window schedules the flush; events raised until then ride along with it.
+ * Events a user is waiting on (clicks and will-display events, which hold the notification or message
+ * until Dart answers) flush right away, together with anything queued ahead of them so order is kept.
+ * lib/src/event_router.dart hands each event to the handler of the channel it was raised on.
+ */
+final class EventBatcher {
+
+    static final int DEFAULT_WINDOW_MS = 16;
+
+    private static final HashSet<String> FLUSH_IMMEDIATELY = new HashSet<>(Arrays.asList(
+            "OneSignal#onClickNotification",
+            "OneSignal#onWillDisplayNotification",
+            "OneSignal#onClickInAppMessage",
+            "OneSignal#onWillDisplayInAppMessage"));
+
+    private static final class PendingEvent {
+        final FlutterMessengerResponder responder;
+        final String method;
+        final Object arguments;
+
+        PendingEvent(FlutterMessengerResponder responder, String method, Object arguments) {
+            this.responder = responder;
+            this.method = method;
+            this.arguments = arguments;
+        }
+    }
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int windowMs = DEFAULT_WINDOW_MS;
+
+    private static ArrayList<PendingEvent> pending = new ArrayList<>();
+    private static boolean flushScheduled = false;
+
+    private static long eventsBatched = 0;
+    private static long messagesSent = 0;
+    private static long immediateFlushes = 0;
+    private static int maxEventsPerMessage = 0;
+
+    private EventBatcher() {}
+
+    /** Null arguments keep the current setting. Turning batching off delivers anything still queued. */
+    static void configure(Boolean enable, Integer newWindowMs) {
+        if (newWindowMs != null && newWindowMs >= 0) {
+            windowMs = newWindowMs;
+        }
+        if (enable != null) {
+            enabled = enable;
+            if (!enable) MainThreadReplyPump.post(FLUSH);
+        }
+    }
+
+    /**
+     * Queues an event for the next batch.
+     *
+     * @return false if batching is off; the caller then sends the event itself.
+     */
+    static boolean offer(FlutterMessengerResponder responder, String method, Object arguments) {
+        if (!enabled || responder.messenger == null || responder.channelName == null) {
+            return false;
+        }
+        boolean immediate = FLUSH_IMMEDIATELY.contains(method);
+        boolean scheduleWindow = false;
+        synchronized (EventBatcher.class) {
+            pending.add(new PendingEvent(responder, method, arguments));
+            eventsBatched++;
+            if (immediate) {
+                immediateFlushes++;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduleWindow = true;
+            }
+        }
+        if (immediate) {
+            MainThreadReplyPump.post(FLUSH);
+        } else if (scheduleWindow) {
+            HANDLER.postDelayed(FLUSH, windowMs);
+        }
+        return true;
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("windowMs", windowMs);
+        hash.put("pending", pending.size());
+        hash.put("eventsBatched", eventsBatched);
+        hash.put("messagesSent", messagesSent);
+        hash.put("immediateFlushes", immediateFlushes);
+        hash.put("maxEventsPerMessage", maxEventsPerMessage);
+        return hash;
+    }
+
+    /** Runs on the main thread. */
+    private static void flush() {
+        ArrayList<PendingEvent> batch;
+        synchronized (EventBatcher.class) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        // A message can only reach one engine, so consecutive events bound for the same engine share a
+        // message. Normally that is the whole batch. The messenger is read now, like a direct send would.
+        int start = 0;
+        while (start < batch.size()) {
+            BinaryMessenger messenger = batch.get(start).responder.messenger;
+            ArrayList<HashMap<String, Object>> events = new ArrayList<>();
+            int end = start;
+            while (end < batch.size() && batch.get(end).responder.messenger == messenger) {
+                PendingEvent event = batch.get(end);
+                HashMap<String, Object> hash = new HashMap<>();
+                hash.put("channel", event.responder.channelName);
+                hash.put("method", event.method);
+                hash.put("arguments", event.arguments);
+                events.add(hash);
+                end++;
+            }
+            synchronized (EventBatcher.class) {
+                messagesSent++;
+                if (events.size() > maxEventsPerMessage) {
+                    maxEventsPerMessage = events.size();
+                }
+            }
+            new MethodChannel(messenger, "OneSignal").invokeMethod("OneSignal#events", events);
+            start = end;
+        }
+    }
+}
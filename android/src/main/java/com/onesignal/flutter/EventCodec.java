@@ -0,0 +1,253 @@
+package com.onesignal.flutter;
+
+import com.onesignal.debug.internal.logging.Logging;
+import io.flutter.plugin.common.StandardMessageCodec;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional binary encoding for notification and in-app message events sent to Dart.
+ *
+ * <p>The maps built by {@link OneSignalSerializer} repeat every key string in every event. When enabled,
+ * an event is instead written as a version byte, an event kind byte and its fields in a fixed order, with
+ * a presence mask for the optional notification fields. Free-form values (additionalData, buttons) are
+ * embedded in StandardMessageCodec form. lib/src/event_codec.dart decodes it back into the same maps, so
+ * the Dart event classes are unchanged. Keep both files' field lists in sync and bump {@link #VERSION}
+ * when either changes.
+ *
+ * <p>An event this schema can't represent (such as a notification map with a key added later) is sent
+ * as the map, as before.
+ */
+final class EventCodec {
+
+    static final int VERSION = 1;
+
+    static final byte NOTIFICATION_WILL_DISPLAY = 0;
+    static final byte NOTIFICATION_CLICK = 1;
+    static final byte IAM_CLICK = 2;
+    static final byte IAM_WILL_DISPLAY = 3;
+    static final byte IAM_DID_DISPLAY = 4;
+    static final byte IAM_WILL_DISMISS = 5;
+    static final byte IAM_DID_DISMISS = 6;
+
+    private static final int STRING = 0;
+    private static final int INT = 1;
+    private static final int BOOL = 2;
+    private static final int ANY = 3;
+
+    // Bit i of the presence mask is NOTIFICATION_FIELDS[i].
+    private static final String[] NOTIFICATION_FIELDS = {
+        "androidNotificationId",
+        "notificationId",
+        "title",
+        "body",
+        "smallIcon",
+        "largeIcon",
+        "bigPicture",
+        "smallIconAccentColor",
+        "launchUrl",
+        "sound",
+        "ledColor",
+        "lockScreenVisibility",
+        "groupKey",
+        "groupMessage",
+        "fromProjectNumber",
+        "collapseId",
+        "priority",
+        "rawPayload",
+        "payloadDeferred",
+        "additionalData",
+        "buttons",
+        "groupedNotifications",
+    };
+    private static final int[] NOTIFICATION_FIELD_TYPES = {
+        INT, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING, INT, STRING, STRING,
+        STRING, STRING, INT, STRING, BOOL, ANY, ANY, ANY,
+    };
+
+    // Every Nth encoded event is also measured in map form, for the size comparison in metrics().
+    private static final int SAMPLE_INTERVAL = 32;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final class ValueCodec extends StandardMessageCodec {
+        void write(ByteArrayOutputStream stream, Object value) {
+            writeValue(stream, value);
+        }
+    }
+
+    private static final ValueCodec VALUE_CODEC = new ValueCodec();
+
+    private static volatile boolean enabled = false;
+
+    private static long eventsEncoded = 0;
+    private static long bytesEncoded = 0;
+    private static long encodeNanos = 0;
+    private static long fallbacks = 0;
+    private static long sampledEvents = 0;
+    private static long sampledBinaryBytes = 0;
+    private static long sampledMapBytes = 0;
+
+    private EventCodec() {}
+
+    static void configure(Boolean enable) {
+        if (enable != null) {
+            enabled = enable;
+        }
+    }
+
+    /**
+     * @param kind one of the event kind constants, matching the shape of {@code event}.
+     * @return the binary form of {@code event} when binary events are enabled and the event fits the
+     *     schema, otherwise {@code event} itself.
+     */
+    static Object encode(byte kind, HashMap<String, Object> event) {
+        if (!enabled) {
+            return event;
+        }
+        long start = System.nanoTime();
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(256);
+            stream.write(VERSION);
+            stream.write(kind);
+            writeEvent(stream, kind, event);
+            bytes = stream.toByteArray();
+        } catch (RuntimeException e) {
+            synchronized (EventCodec.class) {
+                fallbacks++;
+            }
+            Logging.error("Sending event as a map, it does not fit the binary schema: " + e.toString(), null);
+            return event;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        boolean sample;
+        synchronized (EventCodec.class) {
+            eventsEncoded++;
+            bytesEncoded += bytes.length;
+            encodeNanos += elapsed;
+            sample = eventsEncoded % SAMPLE_INTERVAL == 1;
+        }
+        if (sample) {
+            ByteArrayOutputStream mapStream = new ByteArrayOutputStream(512);
+            VALUE_CODEC.write(mapStream, event);
+            synchronized (EventCodec.class) {
+                sampledEvents++;
+                sampledBinaryBytes += bytes.length;
+                sampledMapBytes += mapStream.size();
+            }
+        }
+        return bytes;
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("version", VERSION);
+        hash.put("eventsEncoded", eventsEncoded);
+        hash.put("bytesEncoded", bytesEncoded);
+        hash.put("encodeMicros", TimeUnit.NANOSECONDS.toMicros(encodeNanos));
+        hash.put("fallbacks", fallbacks);
+        hash.put("sampledEvents", sampledEvents);
+        hash.put("sampledBinaryBytes", sampledBinaryBytes);
+        hash.put("sampledMapBytes", sampledMapBytes);
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeEvent(ByteArrayOutputStream stream, byte kind, HashMap<String, Object> event) {
+        switch (kind) {
+            case NOTIFICATION_WILL_DISPLAY:
+                writeNotification(stream, (Map<String, Object>) event.get("notification"));
+                break;
+            case NOTIFICATION_CLICK: {
+                writeNotification(stream, (Map<String, Object>) event.get("notification"));
+                Map<String, Object> result = (Map<String, Object>) event.get("result");
+                writeString(stream, (String) result.get("action_id"));
+                writeString(stream, (String) result.get("url"));
+                break;
+            }
+            case IAM_CLICK: {
+                writeString(stream, (String) ((Map<String, Object>) event.get("message")).get("message_id"));
+                Map<String, Object> result = (Map<String, Object>) event.get("result");
+                writeString(stream, (String) result.get("action_id"));
+                writeString(stream, (String) result.get("url"));
+                stream.write(Boolean.TRUE.equals(result.get("closing_message")) ? 1 : 0);
+                break;
+            }
+            case IAM_WILL_DISPLAY:
+            case IAM_DID_DISPLAY:
+            case IAM_WILL_DISMISS:
+            case IAM_DID_DISMISS:
+                writeString(stream, (String) ((Map<String, Object>) event.get("message")).get("message_id"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event kind " + kind);
+        }
+    }
+
+    private static void writeNotification(ByteArrayOutputStream stream, Map<String, Object> notification) {
+        int mask = 0;
+        int present = 0;
+        for (int i = 0; i < NOTIFICATION_FIELDS.length; i++) {
+            if (notification.get(NOTIFICATION_FIELDS[i]) != null) {
+                mask |= 1 << i;
+                present++;
+            }
+        }
+        for (Object value : notification.values()) {
+            if (value != null) present--;
+        }
+        if (present != 0) {
+            throw new IllegalArgumentException("Notification has fields outside the schema");
+        }
+
+        writeInt(stream, mask);
+        for (int i = 0; i < NOTIFICATION_FIELDS.length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            Object value = notification.get(NOTIFICATION_FIELDS[i]);
+            switch (NOTIFICATION_FIELD_TYPES[i]) {
+                case STRING:
+                    writeString(stream, (String) value);
+                    break;
+                case INT:
+                    writeInt(stream, (Integer) value);
+                    break;
+                case BOOL:
+                    stream.write((Boolean) value ? 1 : 0);
+                    break;
+                default: {
+                    // Encoded on its own so StandardMessageCodec's alignment padding is relative to the
+                    // start of the value, which is where the Dart side starts decoding it.
+                    ByteArrayOutputStream valueStream = new ByteArrayOutputStream();
+                    VALUE_CODEC.write(valueStream, value);
+                    writeInt(stream, valueStream.size());
+                    stream.write(valueStream.toByteArray(), 0, valueStream.size());
+                }
+            }
+        }
+    }
+
+    /** Big-endian, to match ByteData's default on the Dart side. */
+    private static void writeInt(ByteArrayOutputStream stream, int value) {
+        stream.write(value >>> 24);
+        stream.write(value >>> 16);
+        stream.write(value >>> 8);
+        stream.write(value);
+    }
+
+    /** UTF-8 with an int length prefix; null is length -1. */
+    private static void writeString(ByteArrayOutputStream stream, String value) {
+        if (value == null) {
+            writeInt(stream, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeInt(stream, bytes.length);
+        stream.write(bytes, 0, bytes.length);
+    }
+}
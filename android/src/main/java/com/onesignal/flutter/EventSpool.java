@@ -0,0 +1,320 @@
+package com.onesignal.flutter;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.JsonWriter;
+import com.onesignal.OneSignal;
+import com.onesignal.debug.internal.logging.Logging;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+
+/**
+ * Optional on-disk spool for {@code trackEvent}.
+ *
+ * <p>When enabled, each tracked event is appended as one JSON line to a file in app storage instead of
+ * being handed to the SDK right away, and the file is delivered to the SDK in one pass once enough
+ * events have collected, the flush interval passes, or the app goes to the background. Events tracked
+ * before initialization or before consent wait in the file rather than on the heap.
+ *
+ * <p>A flush first renames the spool, so events tracked during it start a new file, and deletes the
+ * renamed file once every line in it was delivered. A file left behind by a process that died is
+ * delivered on the next start, so delivery is at least once: a flush interrupted part way repeats the
+ * events it had already delivered. A line cut short by the process dying mid-append is skipped.
+ *
+ * <p>All file access happens on the user lane, which also keeps events in order with the other user
+ * calls.
+ */
+final class EventSpool {
+
+    static final int DEFAULT_MAX_BYTES = 256 * 1024;
+    static final int DEFAULT_FLUSH_COUNT = 20;
+    static final int DEFAULT_FLUSH_INTERVAL_MS = 5000;
+
+    private static final String FILE_NAME = "onesignal_flutter_events.jsonl";
+    private static final String FLUSHING_SUFFIX = ".flushing";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Runnable FLUSH_ON_LANE = new Runnable() {
+        @Override
+        public void run() {
+            LaneExecutor.execute(LaneExecutor.Lane.USER, FLUSH);
+        }
+    };
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int maxBytes = DEFAULT_MAX_BYTES;
+    private static volatile int flushCount = DEFAULT_FLUSH_COUNT;
+    private static volatile int flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+
+    private static volatile File directory;
+
+    // Only touched on the user lane.
+    private static int unflushed = 0;
+    private static boolean flushScheduled = false;
+
+    private static long spooled = 0;
+    private static long delivered = 0;
+    private static long droppedOverCap = 0;
+    private static long corruptLines = 0;
+    private static long flushes = 0;
+    private static long writeErrors = 0;
+
+    static {
+        BackgroundFlusher.register(FLUSH_ON_LANE);
+    }
+
+    private EventSpool() {}
+
+    /** Called once the plugin has a context. Delivers anything a previous process left in the spool. */
+    static void install(Context context) {
+        if (directory != null || context == null) {
+            return;
+        }
+        directory = context.getApplicationContext().getFilesDir();
+        FLUSH_ON_LANE.run();
+    }
+
+    /** Null arguments keep the current setting. Turning the spool off delivers what it holds. */
+    static void configure(Boolean enable, Integer newMaxBytes, Integer newFlushCount, Integer newFlushIntervalMs) {
+        if (newMaxBytes != null && newMaxBytes > 0) {
+            maxBytes = newMaxBytes;
+        }
+        if (newFlushCount != null && newFlushCount > 0) {
+            flushCount = newFlushCount;
+        }
+        if (newFlushIntervalMs != null && newFlushIntervalMs >= 0) {
+            flushIntervalMs = newFlushIntervalMs;
+        }
+        if (enable != null) {
+            enabled = enable;
+            if (!enable) FLUSH_ON_LANE.run();
+        }
+    }
+
+    static boolean isEnabled() {
+        return enabled && directory != null;
+    }
+
+    /** Tries a flush, for when initialization or consent may have made events deliverable. */
+    static void requestFlush() {
+        FLUSH_ON_LANE.run();
+    }
+
+    /**
+     * Appends an event. Runs on the user lane.
+     *
+     * @return false if the event could not be spooled; the caller then tracks it without the spool.
+     */
+    static boolean append(String name, Map<String, Object> properties) {
+        File file = spoolFile();
+        if (file == null) {
+            return false;
+        }
+        byte[] line;
+        try {
+            StringWriter buffer = new StringWriter();
+            JsonWriter writer = new JsonWriter(buffer);
+            writer.beginObject();
+            writer.name("name").value(name);
+            writer.name("properties");
+            writeValue(writer, properties);
+            writer.endObject();
+            writer.close();
+            line = (buffer.toString() + "\n").getBytes(UTF_8);
+        } catch (IOException | IllegalArgumentException e) {
+            Logging.error("Could not spool tracked event " + name + ": " + e.toString(), null);
+            return false;
+        }
+
+        if (file.length() + line.length > maxBytes) {
+            synchronized (EventSpool.class) {
+                droppedOverCap++;
+            }
+            Logging.error("Tracked event spool is full, dropping event " + name, null);
+            return true;
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, true);
+            out.write(line);
+        } catch (IOException e) {
+            synchronized (EventSpool.class) {
+                writeErrors++;
+            }
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+        synchronized (EventSpool.class) {
+            spooled++;
+        }
+
+        if (++unflushed >= flushCount) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            HANDLER.postDelayed(FLUSH_ON_LANE, flushIntervalMs);
+        }
+        return true;
+    }
+
+    /** Delivers spooled events if the SDK can take them. Runs on the user lane. */
+    private static void flush() {
+        flushScheduled = false;
+        File file = spoolFile();
+        if (file == null || !canDeliver()) {
+            return;
+        }
+        File flushing = new File(file.getPath() + FLUSHING_SUFFIX);
+        // A flushing file only exists if a previous process died during a flush; finish that one first.
+        if (flushing.exists()) {
+            deliver(flushing);
+            if (flushing.exists()) return;
+        }
+        if (file.exists() && file.renameTo(flushing)) {
+            unflushed = 0;
+            deliver(flushing);
+        }
+    }
+
+    private static void deliver(File flushing) {
+        BufferedReader reader = null;
+        long count = 0;
+        long corrupt = 0;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(flushing), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                Map<String, Object> event = parseEvent(line);
+                if (event == null) {
+                    corrupt++;
+                    continue;
+                }
+                OneSignal.getUser().trackEvent((String) event.get("name"), propertiesOf(event));
+                count++;
+            }
+        } catch (IOException e) {
+            Logging.error("Could not read the tracked event spool: " + e.toString(), null);
+            return;
+        } finally {
+            closeQuietly(reader);
+        }
+        if (!flushing.delete()) {
+            Logging.error("Could not delete the delivered tracked event spool", null);
+        }
+        synchronized (EventSpool.class) {
+            delivered += count;
+            corruptLines += corrupt;
+            flushes++;
+        }
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("maxBytes", maxBytes);
+        hash.put("flushCount", flushCount);
+        hash.put("flushIntervalMs", flushIntervalMs);
+        File file = spoolFile();
+        hash.put("bytes", file == null ? 0 : file.length());
+        hash.put("spooled", spooled);
+        hash.put("delivered", delivered);
+        hash.put("droppedOverCap", droppedOverCap);
+        hash.put("corruptLines", corruptLines);
+        hash.put("writeErrors", writeErrors);
+        hash.put("flushes", flushes);
+        return hash;
+    }
+
+    private static boolean canDeliver() {
+        return OneSignal.isInitialized() && (!OneSignal.getConsentRequired() || OneSignal.getConsentGiven());
+    }
+
+    private static File spoolFile() {
+        File dir = directory;
+        return dir == null ? null : new File(dir, FILE_NAME);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parseEvent(String line) {
+        try {
+            Object event = JsonConverter.parse(line);
+            if (event instanceof Map && ((Map<String, Object>) event).get("name") instanceof String) {
+                return (Map<String, Object>) event;
+            }
+        } catch (JSONException e) {
+            // Cut short by the process dying mid-append.
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> propertiesOf(Map<String, Object> event) {
+        Object properties = event.get("properties");
+        return properties instanceof Map ? (Map<String, Object>) properties : null;
+    }
+
+    /** Writes the values StandardMessageCodec hands over; anything else is written as its string form. */
+    @SuppressWarnings("unchecked")
+    private static void writeValue(JsonWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            writer.value(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) writer.nullValue();
+            else writer.value(number);
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue());
+            }
+            writer.endObject();
+        } else if (value instanceof List) {
+            writer.beginArray();
+            for (Object item : (List<Object>) value) {
+                writeValue(writer, item);
+            }
+            writer.endArray();
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with it.
+        }
+    }
+}
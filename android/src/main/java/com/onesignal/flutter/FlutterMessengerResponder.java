@@ -1,30 +1,88 @@
 package com.onesignal.flutter;
 
 import android.content.Context;
-import android.os.Handler;
 import android.os.Looper;
 import com.onesignal.debug.internal.logging.Logging;
 import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 abstract class FlutterMessengerResponder {
-    private static final ExecutorService BACKGROUND_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
-        @Override
-        public Thread newThread(Runnable runnable) {
-            Thread thread = new Thread(runnable, "OneSignalFlutterBg");
-            thread.setDaemon(true);
-            return thread;
-        }
-    });
+    private static final AtomicLong skippedEvents = new AtomicLong();
+
+    // #1138: the engine hosting the activity, once one has attached. Responders are created on first use,
+    // so one a background engine creates afterwards must still send its events here.
+    static volatile BinaryMessenger activityMessenger;
+
+    private final LaneExecutor.Lane lane;
+
+    // Event methods Dart reported having no listeners for. Events Dart never reported on are always sent.
+    private final Set<String> unobservedEvents =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** Handlers for this responder's incoming method calls, registered once in the constructor. */
+    final MethodDispatcher dispatcher = new MethodDispatcher();
+
+    /**
+     * Handlers that run directly on the platform thread instead of the background lane, for calls that
+     * only touch bridge state and must not wait behind SDK work.
+     */
+    final MethodDispatcher platformThreadDispatcher = new MethodDispatcher();
 
     Context context;
     protected MethodChannel channel;
     BinaryMessenger messenger;
+    String channelName;
+
+    /**
+     * @param lane the serial background lane this responder's method calls run on. Calls within a
+     *     lane keep their order; calls on different lanes may run concurrently.
+     */
+    FlutterMessengerResponder(LaneExecutor.Lane lane) {
+        this.lane = lane;
+        platformThreadDispatcher.register("OneSignal#setObservedEvents", this::setObservedEvents);
+    }
+
+    /**
+     * Dart sends a map of event method name to whether it has listeners for it, whenever that changes.
+     */
+    @SuppressWarnings("unchecked")
+    private void setObservedEvents(MethodCall call, MethodChannel.Result result) {
+        Map<String, Boolean> observed = (Map<String, Boolean>) call.arguments;
+        for (Map.Entry<String, Boolean> entry : observed.entrySet()) {
+            if (Boolean.FALSE.equals(entry.getValue())) unobservedEvents.add(entry.getKey());
+            else unobservedEvents.remove(entry.getKey());
+        }
+        replySuccess(result, null);
+    }
+
+    /**
+     * Whether an event should be converted and sent to Dart. Callbacks check this before doing any work
+     * for an event nobody on the Dart side listens to.
+     */
+    boolean shouldSendEvent(String methodName) {
+        if (!unobservedEvents.contains(methodName)) {
+            return true;
+        }
+        skippedEvents.incrementAndGet();
+        return false;
+    }
+
+    /** Platform-thread handler for getters {@link StateSnapshot} may be able to answer. */
+    void answerFromSnapshot(MethodCall call, MethodChannel.Result result) {
+        if (!StateSnapshot.answer(this, call.method, result)) runOnBackgroundThread(call, result);
+    }
+
+    static long skippedEvents() {
+        return skippedEvents.get();
+    }
 
     /**
      * #1138: bind the outgoing shared channel only on the first engine. These
@@ -35,7 +93,7 @@ abstract class FlutterMessengerResponder {
      * <p>The incoming-call handler is still registered on every engine's messenger
      * so Dart->Native calls work from any isolate (e.g. an FCM background handler),
      * matching the pre-#1138 behavior; only the outgoing Native->Dart channel stays
-     * pinned to the first engine.
+     * pinned to the first engine, or to the activity's engine if one has attached.
      *
      * @return true if this call performed the initial bind.
      */
@@ -45,8 +103,15 @@ abstract class FlutterMessengerResponder {
         if (this.channel != null) {
             return false;
         }
+        BinaryMessenger hostMessenger = activityMessenger;
+        if (hostMessenger != null && hostMessenger != messenger) {
+            messenger = hostMessenger;
+            channel = new MethodChannel(hostMessenger, channelName);
+            channel.setMethodCallHandler(handler);
+        }
         this.messenger = messenger;
         this.channel = channel;
+        this.channelName = channelName;
         return true;
     }
 
@@ -62,6 +127,7 @@ abstract class FlutterMessengerResponder {
             return false;
         }
         this.messenger = activityMessenger;
+        this.channelName = channelName;
         this.channel = new MethodChannel(activityMessenger, channelName);
         this.channel.setMethodCallHandler(handler);
         return true;
@@ -73,7 +139,7 @@ abstract class FlutterMessengerResponder {
      * This will communicate success back to Dart
      */
     void replySuccess(final MethodChannel.Result reply, final Object response) {
-        runOnMainThread(new Runnable() {
+        runOnMainThread(reply, new Runnable() {
             @Override
             public void run() {
                 reply.success(response);
@@ -87,7 +153,7 @@ abstract class FlutterMessengerResponder {
      * This will communicate error back to Dart
      */
     void replyError(final MethodChannel.Result reply, final String tag, final String message, final Object response) {
-        runOnMainThread(new Runnable() {
+        runOnMainThread(reply, new Runnable() {
             @Override
             public void run() {
                 reply.error(tag, message, response);
@@ -101,7 +167,7 @@ abstract class FlutterMessengerResponder {
      * This will communicate not implemented back to Dart
      */
     void replyNotImplemented(final MethodChannel.Result reply) {
-        runOnMainThread(new Runnable() {
+        runOnMainThread(reply, new Runnable() {
             @Override
             public void run() {
                 reply.notImplemented();
@@ -109,34 +175,68 @@ abstract class FlutterMessengerResponder {
         });
     }
 
+    private void runOnMainThread(final MethodChannel.Result reply, final Runnable runnable) {
+        // Batch entries are collected off the UI thread; the batch posts its one reply when they are all in.
+        MethodChannel.Result target = reply;
+        if (target instanceof StateSnapshot.WriteResult) target = ((StateSnapshot.WriteResult) target).delegate;
+        if (target instanceof BatchEntryResult) runnable.run();
+        else runOnMainThread(runnable);
+    }
+
     private void runOnMainThread(final Runnable runnable) {
         if (Looper.getMainLooper().getThread() == Thread.currentThread()) runnable.run();
-        else {
-            Handler handler = new Handler(Looper.getMainLooper());
-            handler.post(runnable);
-        }
+        else MainThreadReplyPump.post(runnable);
     }
 
-    void runOnBackgroundThread(final MethodChannel.Result result, final Runnable runnable) {
-        BACKGROUND_EXECUTOR.execute(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    runnable.run();
-                } catch (Exception e) {
-                    Logging.error("Encountered an error while handling a Flutter method call: " + e.toString(), e);
-                    replyError(result, "OneSignal", e.getMessage(), null);
-                }
-            }
-        });
+    /**
+     * Runs the handler registered for the call on the current thread, or replies not implemented if the
+     * method is unknown to this responder.
+     */
+    void handleMethodCall(MethodCall call, MethodChannel.Result result) {
+        if (!dispatcher.dispatch(call, result)) replyNotImplemented(result);
+    }
+
+    /**
+     * Whether calls to this responder must wait for {@code OneSignal#initialize} to finish. Such calls
+     * are held by {@link PreInitCallQueue} instead of blocking or failing inside the SDK.
+     */
+    boolean parksUntilInitialized() {
+        return false;
+    }
+
+    void runOnBackgroundThread(final MethodCall call, MethodChannel.Result result) {
+        result = StateSnapshot.trackWrite(call.method, result);
+        if (parksUntilInitialized() && PreInitCallQueue.park(this, call, result)) return;
+        executeOnLane(call, result);
+    }
+
+    /** The lane {@code method} runs on: this responder's own lane, unless it must be ordered with another's. */
+    LaneExecutor.Lane laneFor(String method) {
+        return lane;
+    }
+
+    void executeOnLane(final MethodCall call, final MethodChannel.Result result) {
+        LaneExecutor.submit(laneFor(call.method), this, call, result);
+    }
+
+    /** Called by {@link LaneExecutor} on this responder's lane thread. */
+    void runOnLane(final MethodCall call, final MethodChannel.Result result) {
+        try {
+            handleMethodCall(call, result);
+        } catch (Exception e) {
+            Logging.error("Encountered an error while handling a Flutter method call: " + e.toString(), e);
+            replyError(result, "OneSignal", e.getMessage(), null);
+        }
     }
 
-    void invokeMethodOnUiThread(final String methodName, final HashMap map) {
+    /** @param arguments an event map, or its {@link EventCodec} binary form. */
+    void invokeMethodOnUiThread(final String methodName, final Object arguments) {
+        if (EventBatcher.offer(this, methodName, arguments)) return;
         // final MethodChannel channel = this.channel;
         runOnMainThread(new Runnable() {
             @Override
             public void run() {
-                channel.invokeMethod(methodName, map);
+                channel.invokeMethod(methodName, arguments);
             }
         });
     }
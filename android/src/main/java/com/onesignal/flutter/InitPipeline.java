@@ -0,0 +1,183 @@
+package com.onesignal.flutter;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import com.onesignal.OneSignal;
+import com.onesignal.debug.internal.logging.Logging;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+
+/**
+ * Runs SDK initialization on its own lane, so calls that don't need the SDK initialized never queue
+ * behind it.
+ *
+ * <p>An app can start initialization at plugin attach, before Dart has run at all, by declaring its app
+ * id in the manifest:
+ *
+ * <pre>{@code
+ * <meta-data android:name="com.onesignal.flutter.app_id" android:value="YOUR_APP_ID" />
+ * }</pre>
+ *
+ * An app that requires privacy consent must also declare {@code com.onesignal.flutter.consent_required}
+ * as true, since Dart's {@code consentRequired} would arrive after initialization has started.
+ *
+ * <p>{@code OneSignal#initialize} with the same app id then just waits for that initialization, and
+ * with a different one initializes again. Once initialized, {@link PreInitCallQueue} is released and
+ * anyone waiting through {@link #whenReady} is answered. If initialization fails, the parked calls and
+ * waiters get the error instead, and calls made afterwards wait for a retried {@code initialize}. Each
+ * phase is timed through {@link StartupTrace}.
+ */
+final class InitPipeline {
+
+    static final String MANIFEST_APP_ID = "com.onesignal.flutter.app_id";
+    static final String MANIFEST_CONSENT_REQUIRED = "com.onesignal.flutter.consent_required";
+
+    private static boolean installed = false;
+    private static long installedAtNanos = 0;
+    private static boolean ready = false;
+
+    // Waiting on readiness; answered on the init lane.
+    private static final ArrayList<FlutterMessengerResponder> waitingResponders = new ArrayList<>();
+    private static final ArrayList<MethodChannel.Result> waitingResults = new ArrayList<>();
+
+    // Only touched on the init lane.
+    private static String initializedAppId;
+
+    private InitPipeline() {}
+
+    /** Called on the first engine attach. Starts initialization if the manifest names an app id. */
+    static void install(final Context context) {
+        synchronized (InitPipeline.class) {
+            if (installed || context == null) {
+                return;
+            }
+            installed = true;
+            installedAtNanos = System.nanoTime();
+        }
+        final Context appContext = context.getApplicationContext();
+        LaneExecutor.execute(LaneExecutor.Lane.INIT, () -> {
+            long start = StartupTrace.begin("init.manifest");
+            Bundle metaData = manifestMetaData(appContext);
+            StartupTrace.end("init.manifest", start);
+            String appId = metaData == null ? null : metaData.getString(MANIFEST_APP_ID);
+            if (appId == null || appId.isEmpty() || initializedAppId != null) {
+                return;
+            }
+            if (metaData.getBoolean(MANIFEST_CONSENT_REQUIRED)) {
+                OneSignal.setConsentRequired(true);
+            }
+            try {
+                initializeOnLane(appContext, appId);
+            } catch (Exception e) {
+                Logging.error("Could not initialize OneSignal from the manifest app id: " + e.toString(), e);
+                markFailed(e);
+            }
+        });
+    }
+
+    /**
+     * Initializes the SDK with {@code appId} unless that is already done or underway, and replies once it
+     * is initialized.
+     */
+    static void initialize(
+            final FlutterMessengerResponder responder,
+            final Context context,
+            final String appId,
+            final MethodChannel.Result result) {
+        final long requested = System.nanoTime();
+        LaneExecutor.execute(LaneExecutor.Lane.INIT, () -> {
+            StartupTrace.record("init.queued", System.nanoTime() - requested);
+            try {
+                initializeOnLane(context, appId);
+            } catch (Exception e) {
+                Logging.error("Could not initialize OneSignal: " + e.toString(), e);
+                responder.replyError(result, "OneSignal", e.getMessage(), null);
+                markFailed(e);
+                return;
+            }
+            responder.replySuccess(result, null);
+        });
+    }
+
+    /** Replies once the SDK is initialized, whether by this pipeline or natively. */
+    static void whenReady(FlutterMessengerResponder responder, MethodChannel.Result result) {
+        synchronized (InitPipeline.class) {
+            if (!ready) {
+                waitingResponders.add(responder);
+                waitingResults.add(result);
+                // The SDK may have been initialized natively, e.g. from Application#onCreate.
+                LaneExecutor.execute(LaneExecutor.Lane.INIT, () -> {
+                    if (OneSignal.isInitialized()) markReady();
+                });
+                return;
+            }
+        }
+        responder.replySuccess(result, null);
+    }
+
+    /** Runs on the init lane. */
+    private static void initializeOnLane(Context context, String appId) {
+        if (appId.equals(initializedAppId)) {
+            return;
+        }
+        long start = StartupTrace.begin("init.sdk");
+        OneSignal.initWithContext(context, appId);
+        StartupTrace.end("init.sdk", start);
+        initializedAppId = appId;
+        markReady();
+    }
+
+    private static void markReady() {
+        long start = StartupTrace.begin("init.release");
+        PreInitCallQueue.release();
+        EventSpool.requestFlush();
+        StartupTrace.end("init.release", start);
+
+        ArrayList<FlutterMessengerResponder> responders;
+        ArrayList<MethodChannel.Result> results;
+        synchronized (InitPipeline.class) {
+            if (!ready) {
+                ready = true;
+                if (installed) {
+                    StartupTrace.record("init.attachToReady", System.nanoTime() - installedAtNanos);
+                }
+            }
+            responders = new ArrayList<>(waitingResponders);
+            results = new ArrayList<>(waitingResults);
+            waitingResponders.clear();
+            waitingResults.clear();
+        }
+        for (int i = 0; i < responders.size(); i++) {
+            responders.get(i).replySuccess(results.get(i), null);
+        }
+    }
+
+    private static void markFailed(Exception e) {
+        String message = "OneSignal initialization failed: " + e.getMessage();
+        PreInitCallQueue.failParked(message);
+
+        ArrayList<FlutterMessengerResponder> responders;
+        ArrayList<MethodChannel.Result> results;
+        synchronized (InitPipeline.class) {
+            responders = new ArrayList<>(waitingResponders);
+            results = new ArrayList<>(waitingResults);
+            waitingResponders.clear();
+            waitingResults.clear();
+        }
+        for (int i = 0; i < responders.size(); i++) {
+            responders.get(i).replyError(results.get(i), "OneSignal", message, null);
+        }
+    }
+
+    private static Bundle manifestMetaData(Context context) {
+        try {
+            ApplicationInfo info = context.getPackageManager()
+                    .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            return info.metaData;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+}
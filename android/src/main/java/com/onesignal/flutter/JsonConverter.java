@@ -0,0 +1,227 @@
+package com.onesignal.flutter;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Converts JSON into the maps and lists StandardMessageCodec can send to Dart.
+ *
+ * <p>Both entry points walk the input with an explicit stack rather than recursion, so a deeply nested
+ * payload fails with a {@link LimitExceededException} instead of a StackOverflowError on the thread that
+ * happens to be converting it.
+ */
+final class JsonConverter {
+
+    static final int MAX_DEPTH = 64;
+    // A 4 KB FCM payload can't hold more values than this.
+    static final int MAX_NODES = 4096;
+
+    static final class LimitExceededException extends JSONException {
+        LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /** One open JSONObject or JSONArray and the container it is being copied into. */
+    private static final class Frame {
+        final JSONObject object;
+        final Iterator<String> keys;
+        final HashMap<String, Object> map;
+        final JSONArray array;
+        final List<Object> list;
+        int index = 0;
+
+        Frame(JSONObject object, HashMap<String, Object> map) {
+            this.object = object;
+            this.keys = object.keys();
+            this.map = map;
+            this.array = null;
+            this.list = null;
+        }
+
+        Frame(JSONArray array, List<Object> list) {
+            this.object = null;
+            this.keys = null;
+            this.map = null;
+            this.array = array;
+            this.list = list;
+        }
+    }
+
+    private JsonConverter() {}
+
+    /**
+     * Copies an already parsed JSONObject. Keys with null values are left out. Each map is sized for its
+     * object's keys, null ones included, since counting them first costs more than the spare slots.
+     */
+    static HashMap<String, Object> toHashMap(JSONObject root) throws JSONException {
+        HashMap<String, Object> rootMap = OneSignalSerializer.newMap(root.length());
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, rootMap));
+        int nodes = 0;
+
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.object != null) {
+                if (!frame.keys.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                String key = frame.keys.next();
+                Object val = frame.object.opt(key);
+                if (val == null || val == JSONObject.NULL) continue;
+                frame.map.put(key, open(val, stack));
+            } else {
+                if (frame.index == frame.array.length()) {
+                    stack.pop();
+                    continue;
+                }
+                Object val = frame.array.opt(frame.index++);
+                frame.list.add(val == JSONObject.NULL ? null : open(val, stack));
+            }
+            if (++nodes > MAX_NODES) {
+                throw new LimitExceededException("JSON has more than " + MAX_NODES + " values");
+            }
+        }
+
+        return rootMap;
+    }
+
+    /**
+     * Parses a JSON string straight into codec-ready values with {@link JsonReader}, without building
+     * an org.json tree first. Numbers come out as Integer, Long or Double like org.json's, and object keys
+     * with null values are left out like {@link #toHashMap}.
+     *
+     * <p>The reader is strict, so the document must be an object or an array; a bare scalar is malformed.
+     */
+    static Object parse(String json) throws JSONException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            ArrayDeque<Object> containers = new ArrayDeque<>();
+            Object root = null;
+            String name = null;
+            int nodes = 0;
+
+            while (true) {
+                Object value;
+                switch (reader.peek()) {
+                    case BEGIN_OBJECT:
+                        reader.beginObject();
+                        value = new HashMap<String, Object>();
+                        break;
+                    case BEGIN_ARRAY:
+                        reader.beginArray();
+                        value = new ArrayList<Object>();
+                        break;
+                    case END_OBJECT:
+                        reader.endObject();
+                        containers.pop();
+                        if (containers.isEmpty()) return root;
+                        continue;
+                    case END_ARRAY:
+                        reader.endArray();
+                        containers.pop();
+                        if (containers.isEmpty()) return root;
+                        continue;
+                    case NAME:
+                        name = reader.nextName();
+                        continue;
+                    case STRING:
+                        value = reader.nextString();
+                        break;
+                    case NUMBER:
+                        value = parseNumber(reader.nextString());
+                        break;
+                    case BOOLEAN:
+                        value = reader.nextBoolean();
+                        break;
+                    case NULL:
+                        reader.nextNull();
+                        value = null;
+                        break;
+                    default:
+                        return root;
+                }
+
+                if (++nodes > MAX_NODES) {
+                    throw new LimitExceededException("JSON has more than " + MAX_NODES + " values");
+                }
+                Object parent = containers.peek();
+                if (parent == null) {
+                    root = value;
+                } else if (parent instanceof HashMap) {
+                    if (value != null) putValue(parent, name, value);
+                } else {
+                    addValue(parent, value);
+                }
+                if (value instanceof HashMap || value instanceof ArrayList) {
+                    if (containers.size() == MAX_DEPTH) {
+                        throw new LimitExceededException("JSON is nested deeper than " + MAX_DEPTH);
+                    }
+                    containers.push(value);
+                }
+            }
+        } catch (IOException e) {
+            throw new JSONException("Malformed JSON: " + e.getMessage());
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+                // Closing a StringReader can't fail.
+            }
+        }
+    }
+
+    /** Creates the container for a nested value and pushes it, or returns a scalar as is. */
+    private static Object open(Object val, ArrayDeque<Frame> stack) throws JSONException {
+        if (!(val instanceof JSONObject) && !(val instanceof JSONArray)) {
+            return val;
+        }
+        if (stack.size() == MAX_DEPTH) {
+            throw new LimitExceededException("JSON is nested deeper than " + MAX_DEPTH);
+        }
+        if (val instanceof JSONObject) {
+            JSONObject object = (JSONObject) val;
+            HashMap<String, Object> map = OneSignalSerializer.newMap(object.length());
+            stack.push(new Frame(object, map));
+            return map;
+        }
+        JSONArray array = (JSONArray) val;
+        List<Object> list = new ArrayList<>(array.length());
+        stack.push(new Frame(array, list));
+        return list;
+    }
+
+    private static Object parseNumber(String number) {
+        if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+            try {
+                long value = Long.parseLong(number);
+                if (value == (int) value) return (int) value;
+                return value;
+            } catch (NumberFormatException ignored) {
+                // Too large for a long; fall through to double like org.json.
+            }
+        }
+        return Double.parseDouble(number);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putValue(Object map, String name, Object value) {
+        ((HashMap<String, Object>) map).put(name, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addValue(Object list, Object value) {
+        ((List<Object>) list).add(value);
+    }
+}
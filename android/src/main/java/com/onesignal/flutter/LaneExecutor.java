@@ -0,0 +1,358 @@
+package com.onesignal.flutter;
+
+import com.onesignal.debug.internal.logging.Logging;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs bridge work on one serial lane per responder domain.
+ *
+ * <p>Tasks submitted to the same lane run one at a time in submission order, exactly like the
+ * single OneSignalFlutterBg thread did. Different lanes drain in parallel on a small shared pool, so a
+ * slow {@code OneSignal#initialize} on the init lane no longer holds up outcome, IAM or location calls.
+ *
+ * <p>Each lane holds at most {@link #DEFAULT_CAPACITY} pending method calls unless configured otherwise.
+ * Once a lane is full the {@link OverflowPolicy} decides what happens to the next call, so a Dart loop
+ * firing calls faster than the SDK absorbs them can't grow native memory without limit.
+ */
+final class LaneExecutor {
+
+    enum Lane {
+        CORE("core"),
+        USER("user"),
+        NOTIFICATIONS("notifications"),
+        IN_APP_MESSAGES("inappmessages"),
+        SESSION("session"),
+        PUSH_SUBSCRIPTION("pushsubscription"),
+        LOCATION("location"),
+        INIT("init");
+
+        final String label;
+
+        Lane(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Declared in the same order as the Dart OSLaneQueueOverflow enum, whose index is sent over. */
+    enum OverflowPolicy {
+        /** Reply to the new call with an error. */
+        REJECT,
+        /** Evict the oldest pending getter with an error; reject if there is none. Writes are never evicted. */
+        DROP_OLDEST,
+        /**
+         * Fold the new call into the lane's last pending call if both read, or both overwrite, the same
+         * state; that call then runs with the newest arguments and answers both callers. Getters only fold
+         * into a call with equal arguments. Reject if the last pending call doesn't qualify.
+         */
+        COALESCE;
+
+        static OverflowPolicy fromIndex(int index) {
+            OverflowPolicy[] values = values();
+            return index >= 0 && index < values.length ? values[index] : REJECT;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    // A lane never occupies more than one thread at a time, so the pool never needs more threads
+    // than there are lanes. Idle threads time out so a quiet app holds no bridge threads at all.
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(
+            Lane.values().length,
+            Lane.values().length,
+            THREAD_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "OneSignalFlutterBg-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private static final SerialLane[] LANES = new SerialLane[Lane.values().length];
+
+    private static volatile int capacity = DEFAULT_CAPACITY;
+    private static volatile OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+    static {
+        POOL.allowCoreThreadTimeOut(true);
+        for (Lane lane : Lane.values()) {
+            LANES[lane.ordinal()] = new SerialLane(lane);
+        }
+    }
+
+    private LaneExecutor() {}
+
+    /** Queues a method call for {@code responder} on {@code lane}, subject to the lane's capacity. */
+    static void submit(Lane lane, FlutterMessengerResponder responder, MethodCall call, MethodChannel.Result result) {
+        LANES[lane.ordinal()].submit(responder, call, result);
+    }
+
+    /** Queues bridge-internal work on a lane. Internal work is never dropped or counted against capacity. */
+    static void execute(Lane lane, Runnable runnable) {
+        LANES[lane.ordinal()].execute(runnable);
+    }
+
+    static void configure(Integer newCapacity, Integer policy) {
+        if (newCapacity != null && newCapacity > 0) {
+            capacity = newCapacity;
+        }
+        if (policy != null) {
+            overflowPolicy = OverflowPolicy.fromIndex(policy);
+        }
+    }
+
+    /** Per-lane queue depth, wait-time and overflow counters, keyed by lane label. */
+    static HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        for (SerialLane lane : LANES) {
+            hash.put(lane.lane.label, lane.metrics());
+        }
+        return hash;
+    }
+
+    private static final class SerialLane implements Runnable {
+        private final Lane lane;
+        private final ArrayDeque<QueuedTask> queue = new ArrayDeque<>();
+        private boolean draining = false;
+        private int pendingCalls = 0;
+
+        private long submitted = 0;
+        private long completed = 0;
+        private int maxDepth = 0;
+        private long totalWaitNanos = 0;
+        private long maxWaitNanos = 0;
+        private long rejected = 0;
+        private long dropped = 0;
+        private long coalesced = 0;
+
+        SerialLane(Lane lane) {
+            this.lane = lane;
+        }
+
+        void submit(FlutterMessengerResponder responder, MethodCall call, MethodChannel.Result result) {
+            QueuedTask evicted = null;
+            boolean reject = false;
+            boolean startDrain = false;
+            synchronized (this) {
+                if (pendingCalls >= capacity) {
+                    if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                        evicted = removeOldestDroppableCall();
+                    } else if (overflowPolicy == OverflowPolicy.COALESCE
+                            && coalesceIntoLast(responder, call, result)) {
+                        coalesced++;
+                        return;
+                    }
+                    if (evicted != null) {
+                        dropped++;
+                    } else {
+                        rejected++;
+                        reject = true;
+                    }
+                }
+                if (!reject) {
+                    pendingCalls++;
+                    startDrain = enqueue(new QueuedTask(responder, call, result, null));
+                }
+            }
+            if (evicted != null) {
+                evicted.responder.replyError(
+                        evicted.result, "OneSignal", "Dropped to make room on the " + lane.label + " lane", null);
+            }
+            if (reject) {
+                responder.replyError(
+                        result, "OneSignal", "Too many pending calls on the " + lane.label + " lane", null);
+            }
+            if (startDrain) {
+                POOL.execute(this);
+            }
+        }
+
+        void execute(Runnable runnable) {
+            boolean startDrain;
+            synchronized (this) {
+                startDrain = enqueue(new QueuedTask(null, null, null, runnable));
+            }
+            if (startDrain) {
+                POOL.execute(this);
+            }
+        }
+
+        /** @return true if the lane was idle and the caller must hand it to the pool. */
+        private boolean enqueue(QueuedTask task) {
+            queue.addLast(task);
+            submitted++;
+            if (queue.size() > maxDepth) {
+                maxDepth = queue.size();
+            }
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        private QueuedTask removeOldestDroppableCall() {
+            Iterator<QueuedTask> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                QueuedTask task = iterator.next();
+                if (task.call != null && task.responder.dispatcher.isDroppable(task.call.method)) {
+                    iterator.remove();
+                    pendingCalls--;
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Only the last pending task qualifies: folding into an earlier one would move the new call ahead
+         * of whatever was queued after it.
+         */
+        private boolean coalesceIntoLast(
+                FlutterMessengerResponder responder, MethodCall call, MethodChannel.Result result) {
+            QueuedTask last = queue.peekLast();
+            if (last == null || last.responder != responder || last.call == null) {
+                return false;
+            }
+            String key = responder.dispatcher.coalescingKey(call.method);
+            if (key == null || !key.equals(responder.dispatcher.coalescingKey(last.call.method))) {
+                return false;
+            }
+            if (responder.dispatcher.isDroppable(call.method) && !sameArguments(last.call, call)) {
+                return false;
+            }
+            last.call = call;
+            last.result = new FanOutResult(last.result, result);
+            return true;
+        }
+
+        private static boolean sameArguments(MethodCall a, MethodCall b) {
+            return a.arguments == null ? b.arguments == null : a.arguments.equals(b.arguments);
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            String poolName = thread.getName();
+            thread.setName("OneSignalFlutterBg-" + lane.label);
+            try {
+                while (true) {
+                    QueuedTask task;
+                    synchronized (this) {
+                        task = queue.pollFirst();
+                        if (task == null) {
+                            draining = false;
+                            return;
+                        }
+                        if (task.call != null) {
+                            pendingCalls--;
+                        }
+                        long waitNanos = System.nanoTime() - task.enqueuedAtNanos;
+                        totalWaitNanos += waitNanos;
+                        if (waitNanos > maxWaitNanos) {
+                            maxWaitNanos = waitNanos;
+                        }
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        // Keep draining; one bad task must not wedge every later call on this lane.
+                        Logging.error("Uncaught error on OneSignal " + lane.label + " lane: " + t.toString(), t);
+                    } finally {
+                        synchronized (this) {
+                            completed++;
+                        }
+                    }
+                }
+            } finally {
+                thread.setName(poolName);
+            }
+        }
+
+        synchronized HashMap<String, Object> metrics() {
+            HashMap<String, Object> hash = new HashMap<>();
+            hash.put("depth", queue.size());
+            hash.put("maxDepth", maxDepth);
+            hash.put("capacity", capacity);
+            hash.put("submitted", submitted);
+            hash.put("completed", completed);
+            hash.put("rejected", rejected);
+            hash.put("dropped", dropped);
+            hash.put("coalesced", coalesced);
+            hash.put("totalWaitMs", TimeUnit.NANOSECONDS.toMillis(totalWaitNanos));
+            hash.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+            return hash;
+        }
+    }
+
+    /** A pending method call, or bridge-internal work when {@code runnable} is set. */
+    private static final class QueuedTask {
+        final FlutterMessengerResponder responder;
+        final Runnable runnable;
+        final long enqueuedAtNanos = System.nanoTime();
+        // Replaced when a later call is coalesced into this one; guarded by the lane lock until run.
+        MethodCall call;
+        MethodChannel.Result result;
+
+        QueuedTask(
+                FlutterMessengerResponder responder,
+                MethodCall call,
+                MethodChannel.Result result,
+                Runnable runnable) {
+            this.responder = responder;
+            this.call = call;
+            this.result = result;
+            this.runnable = runnable;
+        }
+
+        void run() {
+            if (runnable != null) runnable.run();
+            else responder.runOnLane(call, result);
+        }
+    }
+
+    /** Answers every caller whose call was coalesced into one execution. */
+    private static final class FanOutResult implements MethodChannel.Result {
+        private final MethodChannel.Result first;
+        private final MethodChannel.Result second;
+
+        FanOutResult(MethodChannel.Result first, MethodChannel.Result second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void success(Object result) {
+            first.success(result);
+            second.success(result);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            first.error(errorCode, errorMessage, errorDetails);
+            second.error(errorCode, errorMessage, errorDetails);
+        }
+
+        @Override
+        public void notImplemented() {
+            first.notImplemented();
+            second.notImplemented();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.onesignal.flutter;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/** Thread-safe histogram of durations in fixed millisecond buckets, for bridgeMetrics. */
+final class LatencyHistogram {
+
+    // Upper bounds, inclusive; anything slower lands in the overflow bucket.
+    private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private final long[] counts = new long[BOUNDS_MS.length + 1];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    synchronized void record(long nanos) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_MS.length && ms > BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("count", count);
+        hash.put("meanMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / count));
+        hash.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos));
+        HashMap<String, Object> buckets = new HashMap<>();
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            buckets.put("<=" + BOUNDS_MS[i], counts[i]);
+        }
+        buckets.put(">" + BOUNDS_MS[BOUNDS_MS.length - 1], counts[BOUNDS_MS.length]);
+        hash.put("bucketsMs", buckets);
+        return hash;
+    }
+}
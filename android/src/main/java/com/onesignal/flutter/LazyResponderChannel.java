@@ -0,0 +1,57 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Placeholder handler that binds a responder's channel on the first call Dart makes on it, rather than
+ * on every engine attach.
+ *
+ * <p>FlutterFire's background engines attach the plugin too, but rarely call more than one or two of its
+ * channels. The first call creates the responder through its {@code registerWith}, which also replaces
+ * this handler on the engine, and is then forwarded to it. Responders are process-global singletons, so
+ * one created for another engine is bound to this one the same way.
+ */
+final class LazyResponderChannel<T extends FlutterMessengerResponder & MethodCallHandler>
+        implements MethodCallHandler {
+
+    interface Binder<T> {
+        T bind(BinaryMessenger messenger);
+    }
+
+    private final BinaryMessenger messenger;
+    private final String channelName;
+    private final Binder<T> binder;
+    private T responder;
+
+    private LazyResponderChannel(BinaryMessenger messenger, String channelName, Binder<T> binder) {
+        this.messenger = messenger;
+        this.channelName = channelName;
+        this.binder = binder;
+    }
+
+    static <T extends FlutterMessengerResponder & MethodCallHandler> LazyResponderChannel<T> install(
+            BinaryMessenger messenger, String channelName, Binder<T> binder) {
+        LazyResponderChannel<T> lazy = new LazyResponderChannel<>(messenger, channelName, binder);
+        new MethodChannel(messenger, channelName).setMethodCallHandler(lazy);
+        return lazy;
+    }
+
+    /** Binds the responder to this engine on first use. Batch entries for the channel also come here. */
+    synchronized T responder() {
+        if (responder == null) {
+            long start = StartupTrace.begin("bind " + channelName);
+            responder = binder.bind(messenger);
+            StartupTrace.end("bind " + channelName, start);
+        }
+        return responder;
+    }
+
+    @Override
+    public void onMethodCall(MethodCall call, Result result) {
+        responder().onMethodCall(call, result);
+    }
+}
@@ -0,0 +1,90 @@
+package com.onesignal.flutter;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import com.onesignal.debug.internal.logging.Logging;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide queue of {@code Result} replies and outgoing channel invocations that have to run on the
+ * main thread.
+ *
+ * <p>Background lanes append to a lock-free queue; the first append after a drain posts a single
+ * asynchronous message to the main looper, and that message runs everything queued by the time it is
+ * handled. A burst of replies therefore costs one main-looper message instead of one per reply, and the
+ * asynchronous flag lets it run ahead of the sync barrier the framework inserts while waiting for vsync.
+ */
+final class MainThreadReplyPump implements Runnable {
+    private static final MainThreadReplyPump INSTANCE = new MainThreadReplyPump();
+
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Only written on the main thread, read by bridgeMetrics from any thread.
+    private volatile long pumps = 0;
+    private volatile long drained = 0;
+    private volatile int lastDrained = 0;
+    private volatile int maxDrained = 0;
+
+    private MainThreadReplyPump() {}
+
+    static void post(Runnable runnable) {
+        INSTANCE.enqueue(runnable);
+    }
+
+    static HashMap<String, Object> metrics() {
+        return INSTANCE.snapshot();
+    }
+
+    private void enqueue(Runnable runnable) {
+        pending.offer(runnable);
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Message message = Message.obtain(handler, this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+            message.setAsynchronous(true);
+        }
+        handler.sendMessage(message);
+    }
+
+    @Override
+    public void run() {
+        // Clear the flag before draining so anything queued while we drain either gets picked up by
+        // this loop or schedules the next pump; it can never be stranded.
+        scheduled.set(false);
+        int count = 0;
+        Runnable runnable;
+        while ((runnable = pending.poll()) != null) {
+            count++;
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                Logging.error("Encountered an error while replying to a Flutter method call: " + e.toString(), e);
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        pumps++;
+        drained += count;
+        lastDrained = count;
+        if (count > maxDrained) {
+            maxDrained = count;
+        }
+    }
+
+    private HashMap<String, Object> snapshot() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("pumps", pumps);
+        hash.put("drained", drained);
+        hash.put("lastDrained", lastDrained);
+        hash.put("maxDrained", maxDrained);
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Method name to handler table for a responder.
+ *
+ * <p>Each responder registers its handlers once when it is created, so dispatching a call is a single
+ * hash lookup instead of walking a chain of {@code contentEquals} checks.
+ */
+final class MethodDispatcher {
+
+    interface Handler {
+        void handle(MethodCall call, Result result);
+    }
+
+    private final HashMap<String, Handler> handlers = new HashMap<>();
+    private final HashSet<String> droppable = new HashSet<>();
+    private final HashMap<String, String> coalescingKeys = new HashMap<>();
+
+    MethodDispatcher register(String method, Handler handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /**
+     * Registers a handler for a getter: a call with no side effects, so under backpressure it may be
+     * dropped, or coalesced with an identical call queued right before it; see
+     * {@link LaneExecutor.OverflowPolicy}.
+     */
+    MethodDispatcher registerIdempotent(String method, Handler handler) {
+        droppable.add(method);
+        coalescingKeys.put(method, method);
+        return register(method, handler);
+    }
+
+    /**
+     * Registers a handler for a setter whose latest call fully determines the state behind {@code key}.
+     * Under backpressure such a call may be coalesced into a call for the same key queued right before
+     * it, but is never dropped. Methods that set the same state, such as opting in and out, share a key.
+     */
+    MethodDispatcher registerOverwriting(String method, String key, Handler handler) {
+        coalescingKeys.put(method, key);
+        return register(method, handler);
+    }
+
+    /** Whether a queued call to {@code method} may be failed to make room for a newer call. */
+    boolean isDroppable(String method) {
+        return droppable.contains(method);
+    }
+
+    /**
+     * The state a call to {@code method} reads or overwrites, or null if calls to it must each run. Two
+     * adjacent calls with the same key may run as one.
+     */
+    String coalescingKey(String method) {
+        return coalescingKeys.get(method);
+    }
+
+    boolean handles(String method) {
+        return handlers.containsKey(method);
+    }
+
+    /**
+     * Runs the handler registered for {@code call.method} on the calling thread.
+     *
+     * @return false if no handler is registered for the method; the caller decides how to reply.
+     */
+    boolean dispatch(MethodCall call, Result result) {
+        Handler handler = handlers.get(call.method);
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(call, result);
+        return true;
+    }
+}
@@ -11,27 +11,31 @@ import io.flutter.plugin.common.MethodChannel.Result;
 public class OneSignalDebug extends FlutterMessengerResponder implements MethodCallHandler {
     private static OneSignalDebug sharedInstance;
 
-    public static OneSignalDebug getSharedInstance() {
+    public static synchronized OneSignalDebug getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalDebug();
         }
         return sharedInstance;
     }
 
-    private OneSignalDebug() {}
+    private OneSignalDebug() {
+        super(LaneExecutor.Lane.CORE);
+        dispatcher
+                .register("OneSignal#setLogLevel", this::setLogLevel)
+                .register("OneSignal#setAlertLevel", this::setAlertLevel);
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalDebug registerWith(BinaryMessenger messenger) {
         OneSignalDebug controller = getSharedInstance();
         controller.messenger = messenger;
         controller.channel = new MethodChannel(messenger, "OneSignal#debug");
         controller.channel.setMethodCallHandler(controller);
+        return controller;
     }
 
     @Override
     public void onMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#setLogLevel")) this.setLogLevel(call, result);
-        else if (call.method.contentEquals("OneSignal#setAlertLevel")) this.setAlertLevel(call, result);
-        else replyNotImplemented(result);
+        handleMethodCall(call, result);
     }
 
     private void setLogLevel(MethodCall call, Result reply) {
@@ -14,6 +14,7 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import org.json.JSONException;
 
@@ -21,51 +22,60 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
         implements MethodCallHandler, IInAppMessageClickListener, IInAppMessageLifecycleListener {
     private static OneSignalInAppMessages sharedInstance;
 
-    public static OneSignalInAppMessages getSharedInstance() {
+    public static synchronized OneSignalInAppMessages getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalInAppMessages();
         }
         return sharedInstance;
     }
 
-    private OneSignalInAppMessages() {}
+    /** Null until a channel call created the instance. */
+    static synchronized OneSignalInAppMessages getSharedInstanceIfCreated() {
+        return sharedInstance;
+    }
+
+    private OneSignalInAppMessages() {
+        super(LaneExecutor.Lane.IN_APP_MESSAGES);
+        dispatcher
+                .register("OneSignal#addTrigger", this::addTriggers)
+                .register("OneSignal#addTriggers", this::addTriggers)
+                .register("OneSignal#removeTrigger", this::removeTrigger)
+                .register("OneSignal#removeTriggers", this::removeTriggers)
+                .register("OneSignal#clearTriggers", this::clearTriggers)
+                .registerIdempotent(
+                        "OneSignal#arePaused",
+                        (call, result) ->
+                                replySuccess(result, OneSignal.getInAppMessages().getPaused()))
+                .registerOverwriting("OneSignal#paused", "paused", this::paused)
+                .register("OneSignal#lifecycleInit", (call, result) -> this.lifecycleInit(result));
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalInAppMessages registerWith(BinaryMessenger messenger) {
         OneSignalInAppMessages controller = getSharedInstance();
         controller.bindChannelIfUnbound(messenger, "OneSignal#inappmessages", controller);
+        return controller;
     }
 
     void onAttachedToActivity(BinaryMessenger activityMessenger) {
         rebindChannelToEngine(activityMessenger, "OneSignal#inappmessages", this);
     }
 
+    @Override
+    boolean parksUntilInitialized() {
+        return true;
+    }
+
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
-    }
-
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#addTrigger")) this.addTriggers(call, result);
-        else if (call.method.contentEquals("OneSignal#addTriggers")) this.addTriggers(call, result);
-        else if (call.method.contentEquals("OneSignal#removeTrigger")) this.removeTrigger(call, result);
-        else if (call.method.contentEquals("OneSignal#removeTriggers")) this.removeTriggers(call, result);
-        else if (call.method.contentEquals("OneSignal#clearTriggers")) this.clearTriggers(call, result);
-        else if (call.method.contentEquals("OneSignal#arePaused"))
-            replySuccess(result, OneSignal.getInAppMessages().getPaused());
-        else if (call.method.contentEquals("OneSignal#paused")) this.paused(call, result);
-        else if (call.method.contentEquals("OneSignal#lifecycleInit")) this.lifecycleInit(result);
-        else replyNotImplemented(result);
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
     }
 
     @SuppressWarnings("unchecked")
     private void addTriggers(MethodCall call, Result result) {
         try {
-            OneSignal.getInAppMessages().addTriggers((Map<String, String>) call.arguments);
+            Map<String, String> triggers = (Map<String, String>) call.arguments;
+            if (!TriggerBuffer.addTriggers(triggers)) OneSignal.getInAppMessages().addTriggers(triggers);
             replySuccess(result, null);
         } catch (ClassCastException e) {
             replyError(
@@ -77,14 +87,18 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
     }
 
     private void removeTrigger(MethodCall call, Result result) {
-        OneSignal.getInAppMessages().removeTrigger((String) call.arguments);
+        String key = (String) call.arguments;
+        if (!TriggerBuffer.removeTriggers(Collections.singletonList(key))) {
+            OneSignal.getInAppMessages().removeTrigger(key);
+        }
         replySuccess(result, null);
     }
 
     @SuppressWarnings("unchecked")
     private void removeTriggers(MethodCall call, Result result) {
         try {
-            OneSignal.getInAppMessages().removeTriggers((Collection<String>) call.arguments);
+            Collection<String> keys = (Collection<String>) call.arguments;
+            if (!TriggerBuffer.removeTriggers(keys)) OneSignal.getInAppMessages().removeTriggers(keys);
             replySuccess(result, null);
         } catch (ClassCastException e) {
             replyError(
@@ -96,7 +110,7 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
     }
 
     private void clearTriggers(MethodCall call, Result result) {
-        OneSignal.getInAppMessages().clearTriggers();
+        if (!TriggerBuffer.clearTriggers()) OneSignal.getInAppMessages().clearTriggers();
         replySuccess(result, null);
     }
 
@@ -115,9 +129,12 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
 
     @Override
     public void onClick(IInAppMessageClickEvent event) {
+        if (!shouldSendEvent("OneSignal#onClickInAppMessage")) return;
         try {
             invokeMethodOnUiThread(
-                    "OneSignal#onClickInAppMessage", OneSignalSerializer.convertInAppMessageClickEventToMap(event));
+                    "OneSignal#onClickInAppMessage",
+                    EventCodec.encode(
+                            EventCodec.IAM_CLICK, OneSignalSerializer.convertInAppMessageClickEventToMap(event)));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -129,10 +146,13 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
 
     @Override
     public void onWillDisplay(IInAppMessageWillDisplayEvent event) {
+        if (!shouldSendEvent("OneSignal#onWillDisplayInAppMessage")) return;
         try {
             invokeMethodOnUiThread(
                     "OneSignal#onWillDisplayInAppMessage",
-                    OneSignalSerializer.convertInAppMessageWillDisplayEventToMap(event));
+                    EventCodec.encode(
+                            EventCodec.IAM_WILL_DISPLAY,
+                            OneSignalSerializer.convertInAppMessageWillDisplayEventToMap(event)));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -144,10 +164,13 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
 
     @Override
     public void onDidDisplay(IInAppMessageDidDisplayEvent event) {
+        if (!shouldSendEvent("OneSignal#onDidDisplayInAppMessage")) return;
         try {
             invokeMethodOnUiThread(
                     "OneSignal#onDidDisplayInAppMessage",
-                    OneSignalSerializer.convertInAppMessageDidDisplayEventToMap(event));
+                    EventCodec.encode(
+                            EventCodec.IAM_DID_DISPLAY,
+                            OneSignalSerializer.convertInAppMessageDidDisplayEventToMap(event)));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -159,10 +182,13 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
 
     @Override
     public void onWillDismiss(IInAppMessageWillDismissEvent event) {
+        if (!shouldSendEvent("OneSignal#onWillDismissInAppMessage")) return;
         try {
             invokeMethodOnUiThread(
                     "OneSignal#onWillDismissInAppMessage",
-                    OneSignalSerializer.convertInAppMessageWillDismissEventToMap(event));
+                    EventCodec.encode(
+                            EventCodec.IAM_WILL_DISMISS,
+                            OneSignalSerializer.convertInAppMessageWillDismissEventToMap(event)));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -174,10 +200,13 @@ public class OneSignalInAppMessages extends FlutterMessengerResponder
 
     @Override
     public void onDidDismiss(IInAppMessageDidDismissEvent event) {
+        if (!shouldSendEvent("OneSignal#onDidDismissInAppMessage")) return;
         try {
             invokeMethodOnUiThread(
                     "OneSignal#onDidDismissInAppMessage",
-                    OneSignalSerializer.convertInAppMessageDidDismissEventToMap(event));
+                    EventCodec.encode(
+                            EventCodec.IAM_DID_DISMISS,
+                            OneSignalSerializer.convertInAppMessageDidDismissEventToMap(event)));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -14,37 +14,37 @@ public class OneSignalLocation extends FlutterMessengerResponder implements Meth
     private static final String LOCATION_MODULE_NOT_AVAILABLE =
             "OneSignal location module is not available. Add the location dependency to use OneSignal.Location.";
 
-    public static OneSignalLocation getSharedInstance() {
+    public static synchronized OneSignalLocation getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalLocation();
         }
         return sharedInstance;
     }
 
-    private OneSignalLocation() {}
+    private OneSignalLocation() {
+        super(LaneExecutor.Lane.LOCATION);
+        dispatcher
+                .register("OneSignal#requestPermission", (call, result) -> this.requestPermission(result))
+                .registerOverwriting("OneSignal#setShared", "shared", this::setShared)
+                .registerIdempotent("OneSignal#isShared", (call, result) -> this.isShared(result));
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalLocation registerWith(BinaryMessenger messenger) {
         OneSignalLocation controller = getSharedInstance();
         controller.messenger = messenger;
         controller.channel = new MethodChannel(messenger, "OneSignal#location");
         controller.channel.setMethodCallHandler(controller);
+        return controller;
     }
 
     @Override
-    public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
+    boolean parksUntilInitialized() {
+        return true;
     }
 
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#requestPermission")) this.requestPermission(result);
-        else if (call.method.contentEquals("OneSignal#setShared")) this.setShared(call, result);
-        else if (call.method.contentEquals("OneSignal#isShared")) this.isShared(result);
-        else replyNotImplemented(result);
+    @Override
+    public void onMethodCall(final MethodCall call, final Result result) {
+        runOnBackgroundThread(call, result);
     }
 
     private void logLocationModuleNotAvailable(Throwable throwable) {
@@ -16,7 +16,6 @@ import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import kotlin.coroutines.Continuation;
 import kotlin.coroutines.CoroutineContext;
 import kotlinx.coroutines.Dispatchers;
@@ -27,22 +26,91 @@ public class OneSignalNotifications extends FlutterMessengerResponder
         implements MethodCallHandler, INotificationClickListener, INotificationLifecycleListener, IPermissionObserver {
     private static OneSignalNotifications sharedInstance;
 
-    private final Map<String, INotificationWillDisplayEvent> notificationOnWillDisplayEventCache =
-            new ConcurrentHashMap<>();
-    private final Map<String, INotificationWillDisplayEvent> preventedDefaultCache = new ConcurrentHashMap<>();
+    // Foreground notifications waiting on Dart to display them or prevent their display. An entry is
+    // removed once it is displayed; a prevented one stays until Dart displays it, or it ages out.
+    static final int DEFAULT_WILL_DISPLAY_CACHE_SIZE = 64;
+    static final long DEFAULT_WILL_DISPLAY_CACHE_TTL_MS = 10 * 60 * 1000;
+    private final BoundedLruCache<String, INotificationWillDisplayEvent> notificationOnWillDisplayEventCache =
+            new BoundedLruCache<>(DEFAULT_WILL_DISPLAY_CACHE_SIZE, DEFAULT_WILL_DISPLAY_CACHE_TTL_MS);
+    private final BoundedLruCache<String, INotificationWillDisplayEvent> preventedDefaultCache =
+            new BoundedLruCache<>(DEFAULT_WILL_DISPLAY_CACHE_SIZE, DEFAULT_WILL_DISPLAY_CACHE_TTL_MS);
+    private final DisplayDeadline displayDeadline = new DisplayDeadline();
+
+    // Notifications whose rawPayload and additionalData were left out of the event sent to Dart, kept
+    // so OneSignal#notificationPayload can serve them on demand.
+    static final int DEFAULT_PAYLOAD_CACHE_SIZE = 32;
+    private static final long PAYLOAD_CACHE_TTL_MS = 10 * 60 * 1000;
+    private final BoundedLruCache<String, INotification> payloadCache =
+            new BoundedLruCache<>(DEFAULT_PAYLOAD_CACHE_SIZE, PAYLOAD_CACHE_TTL_MS);
+    private volatile boolean deferPayloads = false;
+
+    // Converted notification maps, so the willDisplay and click events for one notification convert it
+    // once. Cached maps are shared between events and must not be modified after conversion.
+    static final int DEFAULT_CONVERTED_CACHE_SIZE = 16;
+    static final long DEFAULT_CONVERTED_CACHE_TTL_MS = 60 * 1000;
+    private final BoundedLruCache<String, HashMap<String, Object>> convertedCache =
+            new BoundedLruCache<>(DEFAULT_CONVERTED_CACHE_SIZE, DEFAULT_CONVERTED_CACHE_TTL_MS);
+
+    // The configureBridge options this responder reads, as last set. Kept statically so configuring the
+    // bridge doesn't create the responder; an instance created afterwards starts with them.
+    private static final String[] OPTIONS = {
+        "deferNotificationPayloads",
+        "notificationPayloadCacheSize",
+        "notificationMapCacheSize",
+        "notificationMapCacheTtlMs",
+        "willDisplayCacheSize",
+        "willDisplayCacheTtlMs",
+        "willDisplayDeadlineMs",
+        "willDisplayDeadlinePolicy",
+    };
+    private static final HashMap<String, Object> configuredOptions = new HashMap<>();
 
     // #1138: tracks if Dart requested clicks, so we can queue (not drop) them
     // while the channel is detached across engine/activity lifecycles.
     private volatile boolean clickListenerRequested = false;
 
-    public static OneSignalNotifications getSharedInstance() {
+    public static synchronized OneSignalNotifications getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalNotifications();
         }
         return sharedInstance;
     }
 
-    private OneSignalNotifications() {}
+    /** Null until a channel call or activity attach created the instance. */
+    static synchronized OneSignalNotifications getSharedInstanceIfCreated() {
+        return sharedInstance;
+    }
+
+    private OneSignalNotifications() {
+        super(LaneExecutor.Lane.NOTIFICATIONS);
+        // These paths only use cached foreground events and must not wait behind
+        // SDK calls that can block during initialization.
+        platformThreadDispatcher
+                .register("OneSignal#displayNotification", this::displayNotification)
+                .register("OneSignal#preventDefault", this::preventDefault)
+                .register("OneSignal#proceedWithWillDisplay", this::proceedWithWillDisplay);
+        dispatcher
+                .registerIdempotent(
+                        "OneSignal#permission",
+                        (call, result) ->
+                                replySuccess(result, OneSignal.getNotifications().getPermission()))
+                .registerIdempotent(
+                        "OneSignal#canRequest",
+                        (call, result) -> replySuccess(
+                                result, OneSignal.getNotifications().getCanRequestPermission()))
+                .registerIdempotent("OneSignal#notificationPayload", this::notificationPayload)
+                .register("OneSignal#requestPermission", this::requestPermission)
+                .register("OneSignal#removeNotification", this::removeNotification)
+                .register("OneSignal#removeGroupedNotifications", this::removeGroupedNotifications)
+                .register("OneSignal#clearAll", this::clearAll)
+                .register("OneSignal#lifecycleInit", (call, result) -> this.lifecycleInit(result))
+                .register("OneSignal#addNativeClickListener", (call, result) -> {
+                    this.registerClickListener();
+                    replySuccess(result, null);
+                });
+        // Created under the class lock, so no configure call can slip in between.
+        applyOptions(configuredOptions);
+    }
 
     /**
      * A helper class to encapsulate invoking the suspending function [requestPermission] in Java.
@@ -77,41 +145,21 @@ public class OneSignalNotifications extends FlutterMessengerResponder
         }
     }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalNotifications registerWith(BinaryMessenger messenger) {
         OneSignalNotifications controller = getSharedInstance();
         controller.bindChannelIfUnbound(messenger, "OneSignal#notifications", controller);
+        return controller;
+    }
+
+    @Override
+    boolean parksUntilInitialized() {
+        return true;
     }
 
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        // These paths only use cached foreground events and must not wait behind
-        // SDK calls that can block during initialization.
-        if (call.method.contentEquals("OneSignal#displayNotification")) this.displayNotification(call, result);
-        else if (call.method.contentEquals("OneSignal#preventDefault")) this.preventDefault(call, result);
-        else if (call.method.contentEquals("OneSignal#proceedWithWillDisplay"))
-            this.proceedWithWillDisplay(call, result);
-        else
-            runOnBackgroundThread(result, new Runnable() {
-                @Override
-                public void run() {
-                    handleMethodCall(call, result);
-                }
-            });
-    }
-
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#permission"))
-            replySuccess(result, OneSignal.getNotifications().getPermission());
-        else if (call.method.contentEquals("OneSignal#canRequest"))
-            replySuccess(result, OneSignal.getNotifications().getCanRequestPermission());
-        else if (call.method.contentEquals("OneSignal#requestPermission")) this.requestPermission(call, result);
-        else if (call.method.contentEquals("OneSignal#removeNotification")) this.removeNotification(call, result);
-        else if (call.method.contentEquals("OneSignal#removeGroupedNotifications"))
-            this.removeGroupedNotifications(call, result);
-        else if (call.method.contentEquals("OneSignal#clearAll")) this.clearAll(call, result);
-        else if (call.method.contentEquals("OneSignal#lifecycleInit")) this.lifecycleInit(result);
-        else if (call.method.contentEquals("OneSignal#addNativeClickListener")) this.registerClickListener();
-        else replyNotImplemented(result);
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
     }
 
     private void requestPermission(MethodCall call, Result result) {
@@ -125,6 +173,128 @@ public class OneSignalNotifications extends FlutterMessengerResponder
         OneSignal.getNotifications().requestPermission(fallback, new RequestPermissionContinuation(result));
     }
 
+    private void notificationPayload(MethodCall call, Result result) {
+        String notificationId = call.argument("notificationId");
+        String field = call.argument("field");
+        INotification notification = payloadCache.get(notificationId);
+        if (notification == null) {
+            replyError(result, "OneSignal", "No cached payload for notification with id: " + notificationId, null);
+            return;
+        }
+        try {
+            if ("rawPayload".equals(field)) {
+                replySuccess(result, notification.getRawPayload());
+            } else {
+                JSONObject additionalData = notification.getAdditionalData();
+                replySuccess(
+                        result,
+                        additionalData == null || additionalData.length() == 0
+                                ? null
+                                : OneSignalSerializer.convertJSONObjectToHashMap(additionalData));
+            }
+        } catch (JSONException e) {
+            replyError(result, "OneSignal", "Encountered an error converting additionalData: " + e.toString(), null);
+        }
+    }
+
+    /**
+     * Applies the notification options of a configureBridge call to the instance if it exists, and keeps
+     * them for the instance if it is created later. Absent options keep their current value.
+     */
+    static synchronized void configure(Map<String, Object> options) {
+        for (String option : OPTIONS) {
+            Object value = options.get(option);
+            if (value != null) configuredOptions.put(option, value);
+        }
+        if (sharedInstance != null) sharedInstance.applyOptions(options);
+    }
+
+    /** Drops the instance and the kept options, as at process start. */
+    static synchronized void reset() {
+        sharedInstance = null;
+        configuredOptions.clear();
+    }
+
+    private void applyOptions(Map<String, Object> options) {
+        configurePayloads(
+                (Boolean) options.get("deferNotificationPayloads"),
+                (Integer) options.get("notificationPayloadCacheSize"));
+        configureConvertedCache(
+                (Integer) options.get("notificationMapCacheSize"),
+                toLong(options.get("notificationMapCacheTtlMs")));
+        configureWillDisplayCache(
+                (Integer) options.get("willDisplayCacheSize"), toLong(options.get("willDisplayCacheTtlMs")));
+        configureDisplayDeadline(
+                (Integer) options.get("willDisplayDeadlineMs"), (Integer) options.get("willDisplayDeadlinePolicy"));
+    }
+
+    // The codec sends a Dart int as Integer or Long depending on its size.
+    private static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    /** Null arguments keep the current setting. */
+    void configurePayloads(Boolean defer, Integer cacheSize) {
+        if (defer != null) {
+            deferPayloads = defer;
+            if (!defer) payloadCache.clear();
+        }
+        payloadCache.configure(cacheSize, null);
+    }
+
+    /** Null arguments keep the current setting. */
+    void configureConvertedCache(Integer cacheSize, Long ttlMs) {
+        convertedCache.configure(cacheSize, ttlMs);
+    }
+
+    HashMap<String, Object> convertedCacheMetrics() {
+        return convertedCache.metrics();
+    }
+
+    /** Null arguments keep the current setting. */
+    void configureWillDisplayCache(Integer cacheSize, Long ttlMs) {
+        notificationOnWillDisplayEventCache.configure(cacheSize, ttlMs);
+        preventedDefaultCache.configure(cacheSize, ttlMs);
+        displayDeadline.configureExpired(cacheSize, ttlMs);
+    }
+
+    /** Null arguments keep the current setting. */
+    void configureDisplayDeadline(Integer deadlineMs, Integer policy) {
+        displayDeadline.configure(deadlineMs, policy);
+    }
+
+    HashMap<String, Object> displayDeadlineMetrics() {
+        return displayDeadline.metrics();
+    }
+
+    HashMap<String, Object> willDisplayCacheMetrics() {
+        HashMap<String, Object> hash = notificationOnWillDisplayEventCache.metrics();
+        hash.put("prevented", preventedDefaultCache.metrics());
+        return hash;
+    }
+
+    private HashMap<String, Object> convertNotification(INotification notification, boolean includePayload)
+            throws JSONException {
+        String notificationId = notification.getNotificationId();
+        if (notificationId == null) {
+            return OneSignalSerializer.convertNotificationToMap(notification, includePayload);
+        }
+        // The deferred form leaves out the payload, so it is cached separately from the full form.
+        String key = includePayload ? notificationId : "deferred:" + notificationId;
+        HashMap<String, Object> hash = convertedCache.get(key);
+        if (hash == null) {
+            hash = OneSignalSerializer.convertNotificationToMap(notification, includePayload);
+            convertedCache.put(key, hash);
+        }
+        return hash;
+    }
+
+    HashMap<String, Object> payloadCacheMetrics() {
+        HashMap<String, Object> hash = payloadCache.metrics();
+        hash.put("deferPayloads", deferPayloads);
+        return hash;
+    }
+
     private void removeNotification(MethodCall call, Result result) {
         int notificationId = call.argument("notificationId");
         OneSignal.getNotifications().removeNotification(notificationId);
@@ -150,6 +320,11 @@ public class OneSignalNotifications extends FlutterMessengerResponder
     /// If any of them have called preventDefault() we will not call display(). Otherwise we will display.
     private void proceedWithWillDisplay(MethodCall call, Result result) {
         String notificationId = call.argument("notificationId");
+        if (!displayDeadline.decide(notificationId)) {
+            // The deadline already displayed or suppressed it; Dart decided too late to change that.
+            replySuccess(result, null);
+            return;
+        }
         INotificationWillDisplayEvent event = notificationOnWillDisplayEventCache.get(notificationId);
         if (event == null) {
             Logging.error(
@@ -160,18 +335,24 @@ public class OneSignalNotifications extends FlutterMessengerResponder
             replySuccess(result, null);
             return;
         }
+        notificationOnWillDisplayEventCache.remove(notificationId);
         event.getNotification().display();
         replySuccess(result, null);
     }
 
     private void displayNotification(MethodCall call, Result result) {
         String notificationId = call.argument("notificationId");
+        // Dart has decided, so the deadline must not fire later. If it already suppressed the notification,
+        // Dart can still display it, just as it can one it prevented itself.
+        displayDeadline.decide(notificationId);
         INotificationWillDisplayEvent event = notificationOnWillDisplayEventCache.get(notificationId);
         if (event == null) {
             Logging.error(
                     "Could not find onWillDisplayNotification event for notification with id: " + notificationId, null);
             return;
         }
+        notificationOnWillDisplayEventCache.remove(notificationId);
+        preventedDefaultCache.remove(notificationId);
         event.getNotification().display();
         replySuccess(result, null);
     }
@@ -191,9 +372,17 @@ public class OneSignalNotifications extends FlutterMessengerResponder
 
     @Override
     public void onClick(INotificationClickEvent event) {
+        // An opened notification starts a new attribution, so unique outcomes count again.
+        OutcomeAggregator.startSession();
+        boolean defer = deferPayloads;
+        if (defer) payloadCache.put(event.getNotification().getNotificationId(), event.getNotification());
         try {
             invokeMethodOnUiThread(
-                    "OneSignal#onClickNotification", OneSignalSerializer.convertNotificationClickEventToMap(event));
+                    "OneSignal#onClickNotification",
+                    EventCodec.encode(
+                            EventCodec.NOTIFICATION_CLICK,
+                            OneSignalSerializer.convertNotificationClickEventToMap(
+                                    event, convertNotification(event.getNotification(), !defer))));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -218,15 +407,31 @@ public class OneSignalNotifications extends FlutterMessengerResponder
 
     @Override
     public void onWillDisplay(INotificationWillDisplayEvent event) {
+        // With no Dart listener there is nobody to call preventDefault, so let the SDK display it as usual.
+        if (!shouldSendEvent("OneSignal#onWillDisplayNotification")) return;
         INotification notification = event.getNotification();
         notificationOnWillDisplayEventCache.put(notification.getNotificationId(), event);
         /// Our bridge layer needs to preventDefault() so that the Flutter listener has time to preventDefault() before
         // the notification is displayed
         event.preventDefault();
+        String notificationId = notification.getNotificationId();
+        displayDeadline.start(
+                notificationId,
+                () -> {
+                    if (preventedDefaultCache.containsKey(notificationId)) return;
+                    notificationOnWillDisplayEventCache.remove(notificationId);
+                    notification.display();
+                },
+                () -> preventedDefaultCache.put(notificationId, event));
+        boolean defer = deferPayloads;
+        if (defer) payloadCache.put(notificationId, notification);
         try {
             invokeMethodOnUiThread(
                     "OneSignal#onWillDisplayNotification",
-                    OneSignalSerializer.convertNotificationWillDisplayEventToMap(event));
+                    EventCodec.encode(
+                            EventCodec.NOTIFICATION_WILL_DISPLAY,
+                            OneSignalSerializer.convertNotificationWillDisplayEventToMap(
+                                    convertNotification(notification, !defer))));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -297,6 +502,8 @@ public class OneSignalNotifications extends FlutterMessengerResponder
         OneSignal.getNotifications().addPermissionObserver(this);
         notificationOnWillDisplayEventCache.clear();
         preventedDefaultCache.clear();
+        displayDeadline.clear();
+        convertedCache.clear();
         replySuccess(result, null);
     }
 
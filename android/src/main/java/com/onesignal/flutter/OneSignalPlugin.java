@@ -4,6 +4,9 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import com.onesignal.OneSignal;
 import com.onesignal.common.OneSignalWrapper;
+import com.onesignal.debug.internal.logging.Logging;
+import com.onesignal.user.IUserManager;
+import com.onesignal.user.subscriptions.IPushSubscription;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
@@ -12,16 +15,69 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /** OnesignalPlugin */
 public class OneSignalPlugin extends FlutterMessengerResponder
         implements FlutterPlugin, MethodCallHandler, ActivityAware {
+    private final LatencyHistogram snapshotLatency = new LatencyHistogram();
 
-    public OneSignalPlugin() {}
+    // Keyed by channel name. Filled on attach, before any call can arrive.
+    private final HashMap<String, LazyResponderChannel<?>> responderChannels = new HashMap<>();
+
+    public OneSignalPlugin() {
+        super(LaneExecutor.Lane.CORE);
+        dispatcher
+                .registerOverwriting("OneSignal#consentRequired", "consentRequired", this::setConsentRequired)
+                .registerOverwriting("OneSignal#consentGiven", "consentGiven", this::setConsentGiven)
+                .register("OneSignal#login", this::login)
+                .register("OneSignal#loginWithJWT", this::loginWithJWT)
+                .register("OneSignal#logout", this::logout)
+                .register("OneSignal#snapshot", (call, result) -> this.snapshot(result));
+        // Metrics only read bridge counters, so answer them right away rather than
+        // queueing behind the very calls they are meant to measure.
+        platformThreadDispatcher
+                .register("OneSignal#bridgeMetrics", (call, result) -> this.bridgeMetrics(result))
+                .register("OneSignal#configureBridge", this::configureBridge)
+                .register("OneSignal#initialize", this::initialize)
+                .register("OneSignal#whenReady", (call, result) -> InitPipeline.whenReady(this, result))
+                .register("OneSignal#login", this::changeIdentity)
+                .register("OneSignal#loginWithJWT", this::changeIdentity)
+                .register("OneSignal#logout", this::changeIdentity)
+                .register("OneSignal#batch", this::batch)
+                .register("OneSignal#snapshot", this::parkUntilInitialized);
+    }
+
+    /**
+     * Identity changes decide which user the user lane's calls apply to, so they run on that lane, in
+     * order with them, as they did when every call shared one background thread. Consent must be set
+     * before the SDK initializes, so it runs on the init lane, ahead of any {@code initialize} Dart made
+     * after it.
+     */
+    @Override
+    LaneExecutor.Lane laneFor(String method) {
+        switch (method) {
+            case "OneSignal#login":
+            case "OneSignal#loginWithJWT":
+            case "OneSignal#logout":
+                return LaneExecutor.Lane.USER;
+            case "OneSignal#consentRequired":
+            case "OneSignal#consentGiven":
+                return LaneExecutor.Lane.INIT;
+            default:
+                return super.laneFor(method);
+        }
+    }
 
     private void init(Context context, BinaryMessenger messenger) {
+        long start = StartupTrace.begin("attach");
         this.context = context;
         this.messenger = messenger;
+        BackgroundFlusher.install(context);
+        EventSpool.install(context);
+        InitPipeline.install(context);
         OneSignalWrapper.setSdkType("flutter");
         // Keep in sync with pubspec.yaml version
         OneSignalWrapper.setSdkVersion("050607");
@@ -29,13 +85,21 @@ public class OneSignalPlugin extends FlutterMessengerResponder
         channel = new MethodChannel(messenger, "OneSignal");
         channel.setMethodCallHandler(this);
 
-        OneSignalDebug.registerWith(messenger);
-        OneSignalLocation.registerWith(messenger);
-        OneSignalSession.registerWith(messenger);
-        OneSignalInAppMessages.registerWith(messenger);
-        OneSignalUser.registerWith(messenger);
-        OneSignalPushSubscription.registerWith(messenger);
-        OneSignalNotifications.registerWith(messenger);
+        // Responders are created when their channel is first called, so engines that never use them, such
+        // as FlutterFire background engines, don't pay for them.
+        installResponderChannel("OneSignal#debug", OneSignalDebug::registerWith);
+        installResponderChannel("OneSignal#location", OneSignalLocation::registerWith);
+        installResponderChannel("OneSignal#session", OneSignalSession::registerWith);
+        installResponderChannel("OneSignal#inappmessages", OneSignalInAppMessages::registerWith);
+        installResponderChannel("OneSignal#user", OneSignalUser::registerWith);
+        installResponderChannel("OneSignal#pushsubscription", OneSignalPushSubscription::registerWith);
+        installResponderChannel("OneSignal#notifications", OneSignalNotifications::registerWith);
+        StartupTrace.end("attach", start);
+    }
+
+    private <T extends FlutterMessengerResponder & MethodCallHandler> void installResponderChannel(
+            String channelName, LazyResponderChannel.Binder<T> binder) {
+        responderChannels.put(channelName, LazyResponderChannel.install(messenger, channelName, binder));
     }
 
     @Override
@@ -47,7 +111,13 @@ public class OneSignalPlugin extends FlutterMessengerResponder
     public void onDetachedFromEngine(@NonNull FlutterPlugin.FlutterPluginBinding binding) {
         // #1138: pass the detaching engine's messenger so a background (FlutterFire)
         // engine detaching doesn't tear down the listener bound to the UI engine.
-        OneSignalNotifications.getSharedInstance().onDetachedFromEngine(binding.getBinaryMessenger());
+        OneSignalNotifications notifications = OneSignalNotifications.getSharedInstanceIfCreated();
+        if (notifications != null) {
+            notifications.onDetachedFromEngine(binding.getBinaryMessenger());
+        }
+        if (FlutterMessengerResponder.activityMessenger == binding.getBinaryMessenger()) {
+            FlutterMessengerResponder.activityMessenger = null;
+        }
     }
 
     @Override
@@ -59,7 +129,7 @@ public class OneSignalPlugin extends FlutterMessengerResponder
     @Override
     public void onDetachedFromActivity() {
         // #1138: unregister so the native SDK queues clicks until a new activity attaches.
-        OneSignalNotifications.getSharedInstance().onDetachedFromActivity();
+        detachNotificationsFromActivity();
     }
 
     @Override
@@ -71,70 +141,274 @@ public class OneSignalPlugin extends FlutterMessengerResponder
     /**
      * #1138: (re)bind the process-global singleton channels to the engine that
      * hosts the activity (the UI isolate), so native callbacks aren't routed to a
-     * FlutterFire background engine that has no listeners.
+     * FlutterFire background engine that has no listeners. Responders not created yet are left
+     * alone; they bind to this engine when they are.
      */
     private void rebindChannelsToActivityEngine() {
-        OneSignalNotifications.getSharedInstance().onAttachedToActivity(this.messenger);
-        OneSignalUser.getSharedInstance().onAttachedToActivity(this.messenger);
-        OneSignalPushSubscription.getSharedInstance().onAttachedToActivity(this.messenger);
-        OneSignalInAppMessages.getSharedInstance().onAttachedToActivity(this.messenger);
+        FlutterMessengerResponder.activityMessenger = this.messenger;
+        OneSignalNotifications notifications = OneSignalNotifications.getSharedInstanceIfCreated();
+        if (notifications != null) notifications.onAttachedToActivity(this.messenger);
+        OneSignalUser user = OneSignalUser.getSharedInstanceIfCreated();
+        if (user != null) user.onAttachedToActivity(this.messenger);
+        OneSignalPushSubscription pushSubscription = OneSignalPushSubscription.getSharedInstanceIfCreated();
+        if (pushSubscription != null) pushSubscription.onAttachedToActivity(this.messenger);
+        OneSignalInAppMessages inAppMessages = OneSignalInAppMessages.getSharedInstanceIfCreated();
+        if (inAppMessages != null) inAppMessages.onAttachedToActivity(this.messenger);
     }
 
     @Override
     public void onDetachedFromActivityForConfigChanges() {
-        OneSignalNotifications.getSharedInstance().onDetachedFromActivity();
+        detachNotificationsFromActivity();
+    }
+
+    private static void detachNotificationsFromActivity() {
+        OneSignalNotifications notifications = OneSignalNotifications.getSharedInstanceIfCreated();
+        if (notifications != null) notifications.onDetachedFromActivity();
     }
 
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
-    }
-
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#initialize")) this.initWithContext(call, result);
-        else if (call.method.contentEquals("OneSignal#consentRequired")) this.setConsentRequired(call, result);
-        else if (call.method.contentEquals("OneSignal#consentGiven")) this.setConsentGiven(call, result);
-        else if (call.method.contentEquals("OneSignal#login")) this.login(call, result);
-        else if (call.method.contentEquals("OneSignal#loginWithJWT")) this.loginWithJWT(call, result);
-        else if (call.method.contentEquals("OneSignal#logout")) this.logout(call, result);
-        else replyNotImplemented(result);
-    }
-
-    private void initWithContext(MethodCall call, Result reply) {
-        String appId = call.argument("appId");
-        OneSignal.initWithContext(context, appId);
-        replySuccess(reply, null);
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
     }
 
     private void setConsentRequired(MethodCall call, Result reply) {
         boolean required = call.argument("required");
         OneSignal.setConsentRequired(required);
+        EventSpool.requestFlush();
         replySuccess(reply, null);
     }
 
     private void setConsentGiven(MethodCall call, Result reply) {
         boolean granted = call.argument("granted");
         OneSignal.setConsentGiven(granted);
+        EventSpool.requestFlush();
         replySuccess(reply, null);
     }
 
     private void login(MethodCall call, Result result) {
+        // Buffered tags belong to the user they were set on.
+        TagWriteBuffer.flush();
         OneSignal.login((String) call.argument("externalId"));
         replySuccess(result, null);
     }
 
     private void loginWithJWT(MethodCall call, Result result) {
+        TagWriteBuffer.flush();
         OneSignal.login((String) call.argument("externalId"), (String) call.argument("jwt"));
         replySuccess(result, null);
     }
 
     private void logout(MethodCall call, Result result) {
+        TagWriteBuffer.flush();
         OneSignal.logout();
         replySuccess(result, null);
     }
+
+    /**
+     * Runs an ordered list of {channel, method, arguments} entries, handing each to the responder that owns
+     * its channel exactly as if it had arrived on that channel, and replies once with a per-entry result
+     * list when every entry has replied. Entries therefore keep their order on each lane, wait for
+     * initialization where their responder does, and count against lane capacity.
+     */
+    @SuppressWarnings("unchecked")
+    private void batch(MethodCall call, Result result) {
+        List<Map<String, Object>> entries;
+        try {
+            entries = (List<Map<String, Object>>) call.arguments;
+        } catch (ClassCastException e) {
+            replyError(result, "OneSignal", "batch failed with error: " + e.getMessage(), null);
+            return;
+        }
+        if (entries == null) {
+            replyError(result, "OneSignal", "batch() entries must not be null", null);
+            return;
+        }
+
+        BatchEntryResult.Batch batch = new BatchEntryResult.Batch(this, result, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            runBatchEntry(batch, i, entries.get(i));
+        }
+    }
+
+    private void runBatchEntry(BatchEntryResult.Batch batch, int index, Map<String, Object> entry) {
+        String channelName = (String) entry.get("channel");
+        String method = (String) entry.get("method");
+        if ("OneSignal#batch".equals(method)) {
+            batch.complete(
+                    index, BatchEntryResult.errorMap("OneSignal", "batch() entries cannot be nested batches", null));
+            return;
+        }
+        MethodCallHandler handler = handlerForChannel(channelName);
+        if (handler == null || method == null) {
+            batch.complete(
+                    index,
+                    BatchEntryResult.errorMap(
+                            "OneSignal", "batch() entry has an unknown channel or method: " + channelName, null));
+            return;
+        }
+
+        BatchEntryResult entryResult = batch.entry(index);
+        try {
+            handler.onMethodCall(new MethodCall(method, entry.get("arguments")), entryResult);
+        } catch (Exception e) {
+            Logging.error("Encountered an error while handling a batched Flutter method call: " + e.toString(), e);
+            entryResult.error("OneSignal", e.getMessage(), null);
+        }
+    }
+
+    private MethodCallHandler handlerForChannel(String channelName) {
+        if (channelName == null) {
+            return null;
+        }
+        if ("OneSignal".equals(channelName)) {
+            return this;
+        }
+        LazyResponderChannel<?> responderChannel = responderChannels.get(channelName);
+        return responderChannel == null ? null : responderChannel.responder();
+    }
+
+    /**
+     * Applies bridge tuning options sent from Dart. Options that are absent keep their current value, so
+     * this can be called more than once.
+     */
+    @SuppressWarnings("unchecked")
+    private void configureBridge(MethodCall call, Result result) {
+        PreInitCallQueue.configure(
+                (Integer) call.argument("preInitQueueCapacity"), (Integer) call.argument("preInitQueueOverflow"));
+        LaneExecutor.configure(
+                (Integer) call.argument("laneQueueCapacity"), (Integer) call.argument("laneQueueOverflow"));
+        OneSignalNotifications.configure((Map<String, Object>) call.arguments);
+        EventCodec.configure((Boolean) call.argument("binaryEvents"));
+        StateConflator.configure(
+                (Boolean) call.argument("conflateStateChanges"), (Integer) call.argument("stateConflationWindowMs"));
+        EventBatcher.configure((Boolean) call.argument("batchEvents"), (Integer) call.argument("eventBatchWindowMs"));
+        TagWriteBuffer.configure(
+                (Boolean) call.argument("bufferTagWrites"), (Integer) call.argument("tagWriteWindowMs"));
+        StateSnapshot.configure((Boolean) call.argument("cacheStateReads"));
+        TriggerBuffer.configure(
+                (Boolean) call.argument("bufferTriggers"), (Integer) call.argument("triggerWindowMs"));
+        OutcomeAggregator.configure(
+                (Boolean) call.argument("aggregateOutcomes"), (Integer) call.argument("outcomeWindowMs"));
+        EventSpool.configure(
+                (Boolean) call.argument("spoolTrackedEvents"),
+                (Integer) call.argument("eventSpoolMaxBytes"),
+                (Integer) call.argument("eventSpoolFlushCount"),
+                (Integer) call.argument("eventSpoolFlushIntervalMs"));
+        replySuccess(result, null);
+    }
+
+    // Initialization runs on its own lane, so core calls that need the SDK wait for it here rather than
+    // by queueing behind it. Consent calls don't, as they must be able to run before initialization.
+    private void initialize(MethodCall call, Result result) {
+        OutcomeAggregator.startSession();
+        InitPipeline.initialize(this, context, call.argument("appId"), result);
+    }
+
+    /** A different user starts a new outcome session as soon as the change is received. */
+    private void changeIdentity(MethodCall call, Result result) {
+        OutcomeAggregator.startSession();
+        parkUntilInitialized(call, result);
+    }
+
+    private void parkUntilInitialized(MethodCall call, Result result) {
+        result = StateSnapshot.trackWrite(call.method, result);
+        if (PreInitCallQueue.park(this, call, result)) return;
+        executeOnLane(call, result);
+    }
+
+    /**
+     * Reads the state apps typically need at startup in one lane task, instead of one queued call per
+     * value. The values also fill {@link StateSnapshot} where it caches the same getter.
+     */
+    private void snapshot(Result result) {
+        long start = System.nanoTime();
+        HashMap<String, Object> hash = new HashMap<>();
+
+        HashMap<String, Object> notifications = new HashMap<>();
+        notifications.put("permission", OneSignal.getNotifications().getPermission());
+        notifications.put("canRequest", OneSignal.getNotifications().getCanRequestPermission());
+        hash.put("notifications", notifications);
+
+        IPushSubscription subscription = OneSignal.getUser().getPushSubscription();
+        HashMap<String, Object> pushSubscription = new HashMap<>();
+        pushSubscription.put("id", readForSnapshot(StateSnapshot.PUSH_SUBSCRIPTION_ID, subscription::getId));
+        pushSubscription.put("token", readForSnapshot(StateSnapshot.PUSH_SUBSCRIPTION_TOKEN, subscription::getToken));
+        pushSubscription.put(
+                "optedIn", readForSnapshot(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, subscription::getOptedIn));
+        hash.put("pushSubscription", pushSubscription);
+
+        TagWriteBuffer.flush();
+        IUserManager userManager = OneSignal.getUser();
+        HashMap<String, Object> user = new HashMap<>();
+        user.put(
+                "onesignalId",
+                readForSnapshot(
+                        StateSnapshot.ONESIGNAL_ID, () -> OneSignalUser.emptyToNull(userManager.getOnesignalId())));
+        user.put(
+                "externalId",
+                readForSnapshot(
+                        StateSnapshot.EXTERNAL_ID, () -> OneSignalUser.emptyToNull(userManager.getExternalId())));
+        user.put("tags", readForSnapshot(StateSnapshot.TAGS, () -> {
+            Map<String, String> tags = userManager.getTags();
+            return tags == null ? null : new HashMap<>(tags);
+        }));
+        hash.put("user", user);
+
+        HashMap<String, Object> inAppMessages = new HashMap<>();
+        inAppMessages.put("paused", OneSignal.getInAppMessages().getPaused());
+        hash.put("inAppMessages", inAppMessages);
+
+        HashMap<String, Object> location = new HashMap<>();
+        boolean shared = false;
+        try {
+            shared = OneSignal.getLocation().isShared();
+        } catch (Throwable t) {
+            // The location module is optional; OneSignalLocation reports its absence.
+        }
+        location.put("shared", shared);
+        hash.put("location", location);
+
+        snapshotLatency.record(System.nanoTime() - start);
+        replySuccess(result, hash);
+    }
+
+    private interface SnapshotRead {
+        Object read();
+    }
+
+    private static Object readForSnapshot(String method, SnapshotRead read) {
+        long generation = StateSnapshot.generation(method);
+        Object value = read.read();
+        StateSnapshot.fill(method, generation, value);
+        return value;
+    }
+
+    private void bridgeMetrics(Result result) {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("lanes", LaneExecutor.metrics());
+        hash.put("replyPump", MainThreadReplyPump.metrics());
+        hash.put("preInitQueue", PreInitCallQueue.metrics());
+        hash.put("serializer", OneSignalSerializer.metrics());
+        // Left out until the notifications responder exists, rather than creating it to report empty caches.
+        OneSignalNotifications notifications = OneSignalNotifications.getSharedInstanceIfCreated();
+        if (notifications != null) {
+            hash.put("notificationPayloadCache", notifications.payloadCacheMetrics());
+            hash.put("notificationMapCache", notifications.convertedCacheMetrics());
+            hash.put("willDisplayCache", notifications.willDisplayCacheMetrics());
+            hash.put("displayDeadline", notifications.displayDeadlineMetrics());
+        }
+        hash.put("eventCodec", EventCodec.metrics());
+        hash.put("tagWriteBuffer", TagWriteBuffer.metrics());
+        hash.put("stateSnapshot", StateSnapshot.metrics());
+        hash.put("eventSpool", EventSpool.metrics());
+        hash.put("outcomeAggregator", OutcomeAggregator.metrics());
+        hash.put("triggerBuffer", TriggerBuffer.metrics());
+        hash.put("snapshot", snapshotLatency.metrics());
+        hash.put("startup", StartupTrace.metrics());
+        hash.put("eventBatcher", EventBatcher.metrics());
+        hash.put("stateConflator", StateConflator.metrics());
+        hash.put("skippedEvents", FlutterMessengerResponder.skippedEvents());
+        replySuccess(result, hash);
+    }
 }
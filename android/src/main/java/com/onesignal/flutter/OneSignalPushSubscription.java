@@ -4,6 +4,7 @@ import com.onesignal.OneSignal;
 import com.onesignal.debug.internal.logging.Logging;
 import com.onesignal.user.subscriptions.IPushSubscriptionObserver;
 import com.onesignal.user.subscriptions.PushSubscriptionChangedState;
+import com.onesignal.user.subscriptions.PushSubscriptionState;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -14,45 +15,73 @@ public class OneSignalPushSubscription extends FlutterMessengerResponder
         implements MethodCallHandler, IPushSubscriptionObserver {
     private static OneSignalPushSubscription sharedInstance;
 
-    public static OneSignalPushSubscription getSharedInstance() {
+    public static synchronized OneSignalPushSubscription getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalPushSubscription();
         }
         return sharedInstance;
     }
 
-    private OneSignalPushSubscription() {}
+    /** Null until a channel call created the instance. */
+    static synchronized OneSignalPushSubscription getSharedInstanceIfCreated() {
+        return sharedInstance;
+    }
+
+    private OneSignalPushSubscription() {
+        super(LaneExecutor.Lane.PUSH_SUBSCRIPTION);
+        dispatcher
+                .registerOverwriting("OneSignal#optIn", "optedIn", this::optIn)
+                .registerOverwriting("OneSignal#optOut", "optedIn", this::optOut)
+                .registerIdempotent(StateSnapshot.PUSH_SUBSCRIPTION_ID, this::pushSubscriptionId)
+                .registerIdempotent(StateSnapshot.PUSH_SUBSCRIPTION_TOKEN, this::pushSubscriptionToken)
+                .registerIdempotent(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, this::pushSubscriptionOptedIn)
+                .register("OneSignal#lifecycleInit", (call, result) -> this.lifecycleInit(result));
+        platformThreadDispatcher
+                .register(StateSnapshot.PUSH_SUBSCRIPTION_ID, this::answerFromSnapshot)
+                .register(StateSnapshot.PUSH_SUBSCRIPTION_TOKEN, this::answerFromSnapshot)
+                .register(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, this::answerFromSnapshot);
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalPushSubscription registerWith(BinaryMessenger messenger) {
         OneSignalPushSubscription controller = getSharedInstance();
         controller.bindChannelIfUnbound(messenger, "OneSignal#pushsubscription", controller);
+        return controller;
     }
 
     void onAttachedToActivity(BinaryMessenger activityMessenger) {
         rebindChannelToEngine(activityMessenger, "OneSignal#pushsubscription", this);
     }
 
+    @Override
+    boolean parksUntilInitialized() {
+        return true;
+    }
+
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
+    }
+
+    private void pushSubscriptionId(MethodCall call, Result result) {
+        long generation = StateSnapshot.generation(StateSnapshot.PUSH_SUBSCRIPTION_ID);
+        String id = OneSignal.getUser().getPushSubscription().getId();
+        StateSnapshot.fill(StateSnapshot.PUSH_SUBSCRIPTION_ID, generation, id);
+        replySuccess(result, id);
+    }
+
+    private void pushSubscriptionToken(MethodCall call, Result result) {
+        long generation = StateSnapshot.generation(StateSnapshot.PUSH_SUBSCRIPTION_TOKEN);
+        String token = OneSignal.getUser().getPushSubscription().getToken();
+        StateSnapshot.fill(StateSnapshot.PUSH_SUBSCRIPTION_TOKEN, generation, token);
+        replySuccess(result, token);
     }
 
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#optIn")) this.optIn(call, result);
-        else if (call.method.contentEquals("OneSignal#optOut")) this.optOut(call, result);
-        else if (call.method.contentEquals("OneSignal#pushSubscriptionId"))
-            replySuccess(result, OneSignal.getUser().getPushSubscription().getId());
-        else if (call.method.contentEquals("OneSignal#pushSubscriptionToken"))
-            replySuccess(result, OneSignal.getUser().getPushSubscription().getToken());
-        else if (call.method.contentEquals("OneSignal#pushSubscriptionOptedIn"))
-            replySuccess(result, OneSignal.getUser().getPushSubscription().getOptedIn());
-        else if (call.method.contentEquals("OneSignal#lifecycleInit")) this.lifecycleInit(result);
-        else replyNotImplemented(result);
+    private void pushSubscriptionOptedIn(MethodCall call, Result result) {
+        long generation = StateSnapshot.generation(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN);
+        boolean optedIn = OneSignal.getUser().getPushSubscription().getOptedIn();
+        StateSnapshot.fill(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, generation, optedIn);
+        replySuccess(result, optedIn);
     }
 
     private void optIn(MethodCall call, Result reply) {
@@ -73,8 +102,11 @@ public class OneSignalPushSubscription extends FlutterMessengerResponder
 
     @Override
     public void onPushSubscriptionChange(PushSubscriptionChangedState changeState) {
+        PushSubscriptionState current = changeState.getCurrent();
+        StateSnapshot.onPushSubscriptionState(current.getId(), current.getToken(), current.getOptedIn());
         try {
-            invokeMethodOnUiThread(
+            StateConflator.send(
+                    this,
                     "OneSignal#onPushSubscriptionChange",
                     OneSignalSerializer.convertOnPushSubscriptionChange(changeState));
         } catch (JSONException e) {
@@ -1,5 +1,6 @@
 package com.onesignal.flutter;
 
+import com.onesignal.debug.internal.logging.Logging;
 import com.onesignal.inAppMessages.IInAppMessage;
 import com.onesignal.inAppMessages.IInAppMessageClickEvent;
 import com.onesignal.inAppMessages.IInAppMessageClickResult;
@@ -18,56 +19,128 @@ import com.onesignal.user.subscriptions.PushSubscriptionChangedState;
 import com.onesignal.user.subscriptions.PushSubscriptionState;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import org.json.JSONArray;
+import java.util.concurrent.atomic.AtomicLong;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * Converts SDK objects into the maps sent to Dart.
+ *
+ * <p>The notification map and the additionalData maps can outgrow a default {@code HashMap}, so they are
+ * sized up front from the entries they will hold. The other maps hold a handful of entries and use the
+ * default capacity. Nothing here depends on iteration order, which differs between HashMap implementations
+ * across API levels; Dart reads the maps by key.
+ */
 class OneSignalSerializer {
 
+    private static final AtomicLong notificationsConverted = new AtomicLong();
+    private static final AtomicLong additionalDataOverLimit = new AtomicLong();
+
     static HashMap<String, Object> convertNotificationToMap(INotification notification) throws JSONException {
-        HashMap<String, Object> hash = new HashMap<>();
+        return convertNotificationToMap(notification, true);
+    }
+
+    /**
+     * @param includePayload false to leave out rawPayload and additionalData and set payloadDeferred instead;
+     *     Dart then fetches them with OneSignal#notificationPayload when asked for.
+     */
+    static HashMap<String, Object> convertNotificationToMap(INotification notification, boolean includePayload)
+            throws JSONException {
+        notificationsConverted.incrementAndGet();
+
+        // Read every getter once; several of them parse or copy on each call.
+        List<INotification> groupedNotifications = notification.getGroupedNotifications();
+        String groupKey = notification.getGroupKey();
+        String groupMessage = notification.getGroupMessage();
+        String body = notification.getBody();
+        String smallIcon = notification.getSmallIcon();
+        String largeIcon = notification.getLargeIcon();
+        String bigPicture = notification.getBigPicture();
+        String smallIconAccentColor = notification.getSmallIconAccentColor();
+        String launchUrl = notification.getLaunchURL();
+        String sound = notification.getSound();
+        String ledColor = notification.getLedColor();
+        String fromProjectNumber = notification.getFromProjectNumber();
+        String collapseId = notification.getCollapseId();
+        JSONObject additionalData = includePayload ? notification.getAdditionalData() : null;
+        List<IActionButton> actionButtons = notification.getActionButtons();
+        boolean grouped = groupedNotifications != null;
+        HashMap<String, Object> additionalDataMap = null;
+        if (additionalData != null && additionalData.length() > 0) {
+            try {
+                additionalDataMap = convertJSONObjectToHashMap(additionalData);
+            } catch (JsonConverter.LimitExceededException e) {
+                // Still deliver the notification; only its custom data is unusable.
+                additionalDataOverLimit.incrementAndGet();
+                Logging.error("Leaving out additionalData of notification " + notification.getNotificationId()
+                        + ": " + e.getMessage(), null);
+            }
+        }
+        boolean hasAdditionalData = additionalDataMap != null;
+
+        // androidNotificationId, notificationId, title, lockScreenVisibility, priority, and then rawPayload
+        // or payloadDeferred
+        int size = 6;
+        if (grouped) size += 3;
+        else {
+            if (groupKey != null) size++;
+            if (groupMessage != null) size++;
+        }
+        if (body != null) size++;
+        if (smallIcon != null) size++;
+        if (largeIcon != null) size++;
+        if (bigPicture != null) size++;
+        if (smallIconAccentColor != null) size++;
+        if (launchUrl != null) size++;
+        if (sound != null) size++;
+        if (ledColor != null) size++;
+        if (fromProjectNumber != null) size++;
+        if (collapseId != null) size++;
+        if (hasAdditionalData) size++;
+        if (actionButtons != null) size++;
+
+        HashMap<String, Object> hash = newMap(size);
 
         hash.put("androidNotificationId", notification.getAndroidNotificationId());
 
-        if (notification.getGroupedNotifications() != null) {
-            hash.put("groupKey", notification.getGroupKey());
-            hash.put("groupMessage", notification.getGroupMessage());
-            hash.put("groupedNotifications", notification.getGroupedNotifications());
+        // Grouped notifications always carry groupKey and groupMessage, even when null.
+        if (grouped) {
+            hash.put("groupKey", groupKey);
+            hash.put("groupMessage", groupMessage);
+            hash.put("groupedNotifications", groupedNotifications);
         }
 
         hash.put("notificationId", notification.getNotificationId());
         hash.put("title", notification.getTitle());
 
-        if (notification.getBody() != null) hash.put("body", notification.getBody());
-        if (notification.getSmallIcon() != null) hash.put("smallIcon", notification.getSmallIcon());
-        if (notification.getLargeIcon() != null) hash.put("largeIcon", notification.getLargeIcon());
-        if (notification.getBigPicture() != null) hash.put("bigPicture", notification.getBigPicture());
-        if (notification.getSmallIconAccentColor() != null)
-            hash.put("smallIconAccentColor", notification.getSmallIconAccentColor());
-        if (notification.getLaunchURL() != null) hash.put("launchUrl", notification.getLaunchURL());
-        if (notification.getSound() != null) hash.put("sound", notification.getSound());
-        if (notification.getLedColor() != null) hash.put("ledColor", notification.getLedColor());
+        if (body != null) hash.put("body", body);
+        if (smallIcon != null) hash.put("smallIcon", smallIcon);
+        if (largeIcon != null) hash.put("largeIcon", largeIcon);
+        if (bigPicture != null) hash.put("bigPicture", bigPicture);
+        if (smallIconAccentColor != null) hash.put("smallIconAccentColor", smallIconAccentColor);
+        if (launchUrl != null) hash.put("launchUrl", launchUrl);
+        if (sound != null) hash.put("sound", sound);
+        if (ledColor != null) hash.put("ledColor", ledColor);
         hash.put("lockScreenVisibility", notification.getLockScreenVisibility());
-        if (notification.getGroupKey() != null) hash.put("groupKey", notification.getGroupKey());
-        if (notification.getGroupMessage() != null) hash.put("groupMessage", notification.getGroupMessage());
-        if (notification.getFromProjectNumber() != null)
-            hash.put("fromProjectNumber", notification.getFromProjectNumber());
-        if (notification.getCollapseId() != null) hash.put("collapseId", notification.getCollapseId());
+        if (!grouped) {
+            if (groupKey != null) hash.put("groupKey", groupKey);
+            if (groupMessage != null) hash.put("groupMessage", groupMessage);
+        }
+        if (fromProjectNumber != null) hash.put("fromProjectNumber", fromProjectNumber);
+        if (collapseId != null) hash.put("collapseId", collapseId);
         hash.put("priority", notification.getPriority());
-        if (notification.getAdditionalData() != null
-                && notification.getAdditionalData().length() > 0)
-            hash.put("additionalData", convertJSONObjectToHashMap(notification.getAdditionalData()));
-        if (notification.getActionButtons() != null) {
-            hash.put("buttons", convertActionButtonsToMap(notification.getActionButtons()));
+        if (hasAdditionalData) hash.put("additionalData", additionalDataMap);
+        if (actionButtons != null) {
+            hash.put("buttons", convertActionButtonsToMap(actionButtons));
         }
-        hash.put("rawPayload", notification.getRawPayload());
+        if (includePayload) hash.put("rawPayload", notification.getRawPayload());
+        else hash.put("payloadDeferred", true);
         return hash;
     }
 
     static List<HashMap<String, Object>> convertActionButtonsToMap(List<IActionButton> actionButtons) {
-        List<HashMap<String, Object>> convertedList = new ArrayList<HashMap<String, Object>>();
+        List<HashMap<String, Object>> convertedList = new ArrayList<>(actionButtons.size());
         for (IActionButton actionButton : actionButtons) {
             HashMap<String, Object> hash = new HashMap<>();
             hash.put("id", actionButton.getId());
@@ -80,13 +153,17 @@ class OneSignalSerializer {
 
     static HashMap<String, Object> convertNotificationWillDisplayEventToMap(INotificationWillDisplayEvent event)
             throws JSONException {
+        return convertNotificationWillDisplayEventToMap(convertNotificationToMap(event.getNotification()));
+    }
+
+    /** @param notification the already converted notification, possibly shared with other events. */
+    static HashMap<String, Object> convertNotificationWillDisplayEventToMap(HashMap<String, Object> notification) {
         HashMap<String, Object> hash = new HashMap<>();
-        hash.put("notification", convertNotificationToMap(event.getNotification()));
+        hash.put("notification", notification);
         return hash;
     }
 
-    private static HashMap<String, Object> convertNotificationClickResultToMap(INotificationClickResult result)
-            throws JSONException {
+    private static HashMap<String, Object> convertNotificationClickResultToMap(INotificationClickResult result) {
         HashMap<String, Object> hash = new HashMap<>();
 
         hash.put("action_id", result.getActionId());
@@ -97,9 +174,15 @@ class OneSignalSerializer {
 
     static HashMap<String, Object> convertNotificationClickEventToMap(INotificationClickEvent event)
             throws JSONException {
+        return convertNotificationClickEventToMap(event, convertNotificationToMap(event.getNotification()));
+    }
+
+    /** @param notification the already converted {@code event.getNotification()}, possibly shared. */
+    static HashMap<String, Object> convertNotificationClickEventToMap(
+            INotificationClickEvent event, HashMap<String, Object> notification) {
         HashMap<String, Object> hash = new HashMap<>();
 
-        hash.put("notification", convertNotificationToMap(event.getNotification()));
+        hash.put("notification", notification);
         hash.put("result", convertNotificationClickResultToMap(event.getResult()));
 
         return hash;
@@ -211,48 +294,36 @@ class OneSignalSerializer {
     }
 
     static HashMap<String, Object> convertJSONObjectToHashMap(JSONObject object) throws JSONException {
-        HashMap<String, Object> hash = new HashMap<>();
-
-        if (object == null || object == JSONObject.NULL) return hash;
-
-        Iterator<String> keys = object.keys();
-
-        while (keys.hasNext()) {
-            String key = keys.next();
-
-            if (object.isNull(key)) continue;
-
-            Object val = object.get(key);
-
-            if (val instanceof JSONArray) {
-                val = convertJSONArrayToList((JSONArray) val);
-            } else if (val instanceof JSONObject) {
-                val = convertJSONObjectToHashMap((JSONObject) val);
-            }
-
-            hash.put(key, val);
-        }
+        if (object == null || object == JSONObject.NULL) return new HashMap<>();
+        return JsonConverter.toHashMap(object);
+    }
 
+    /** Conversion counters, for comparing releases on a real device. */
+    static HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("notificationsConverted", notificationsConverted.get());
+        hash.put("additionalDataOverLimit", additionalDataOverLimit.get());
         return hash;
     }
 
-    private static List<Object> convertJSONArrayToList(JSONArray array) throws JSONException {
-        List<Object> list = new ArrayList<>();
-
-        for (int i = 0; i < array.length(); i++) {
-            Object val = array.get(i);
-
-            if (val instanceof JSONArray) val = OneSignalSerializer.convertJSONArrayToList((JSONArray) val);
-            else if (val instanceof JSONObject) val = convertJSONObjectToHashMap((JSONObject) val);
-
-            list.add(val);
+    /**
+     * The table size a default {@code HashMap} ends up with after {@code size} insertions, so the map
+     * holds them without resizing.
+     */
+    private static int tableSizeFor(int size) {
+        int tableSize = 16;
+        while (size > tableSize * 3 / 4) {
+            tableSize <<= 1;
         }
+        return tableSize;
+    }
 
-        return list;
+    static HashMap<String, Object> newMap(int size) {
+        return new HashMap<>(tableSizeFor(size));
     }
 
-    /** Helper method to return null value if string is empty **/
+    /** Helper method to return null value if string is null or empty **/
     static String setNullIfEmpty(String value) {
-        return value.isEmpty() ? null : value;
+        return value == null || value.isEmpty() ? null : value;
     }
 }
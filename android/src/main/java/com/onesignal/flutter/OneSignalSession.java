@@ -10,37 +10,48 @@ import io.flutter.plugin.common.MethodChannel.Result;
 public class OneSignalSession extends FlutterMessengerResponder implements MethodCallHandler {
     private static OneSignalSession sharedInstance;
 
-    public static OneSignalSession getSharedInstance() {
+    public static synchronized OneSignalSession getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalSession();
         }
         return sharedInstance;
     }
 
-    private OneSignalSession() {}
+    private OneSignalSession() {
+        super(LaneExecutor.Lane.SESSION);
+        dispatcher
+                .register("OneSignal#addOutcome", this::addOutcome)
+                .register("OneSignal#addUniqueOutcome", this::addUniqueOutcome)
+                .register("OneSignal#addOutcomeWithValue", this::addOutcomeWithValue);
+        platformThreadDispatcher.register("OneSignal#addUniqueOutcome", this::skipDuplicateUniqueOutcome);
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    static OneSignalSession registerWith(BinaryMessenger messenger) {
         OneSignalSession controller = getSharedInstance();
         controller.messenger = messenger;
         controller.channel = new MethodChannel(messenger, "OneSignal#session");
         controller.channel.setMethodCallHandler(controller);
+        return controller;
+    }
+
+    @Override
+    boolean parksUntilInitialized() {
+        return true;
     }
 
     @Override
     public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
     }
 
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#addOutcome")) this.addOutcome(call, result);
-        else if (call.method.contentEquals("OneSignal#addUniqueOutcome")) this.addUniqueOutcome(call, result);
-        else if (call.method.contentEquals("OneSignal#addOutcomeWithValue")) this.addOutcomeWithValue(call, result);
-        else replyNotImplemented(result);
+    /** Answers a unique outcome this session already sent without queueing it; see {@link OutcomeAggregator}. */
+    private void skipDuplicateUniqueOutcome(MethodCall call, Result result) {
+        if (OutcomeAggregator.isDuplicateUnique((String) call.arguments)) {
+            replySuccess(result, null);
+            return;
+        }
+        runOnBackgroundThread(call, result);
     }
 
     private void addOutcome(MethodCall call, Result result) {
@@ -81,7 +92,9 @@ public class OneSignalSession extends FlutterMessengerResponder implements Metho
             return;
         }
 
-        OneSignal.getSession().addOutcomeWithValue(name, value.floatValue());
+        if (!OutcomeAggregator.addOutcomeWithValue(name, value)) {
+            OneSignal.getSession().addOutcomeWithValue(name, value.floatValue());
+        }
         replySuccess(result, null);
     }
 }
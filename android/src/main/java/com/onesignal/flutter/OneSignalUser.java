@@ -4,10 +4,12 @@ import com.onesignal.OneSignal;
 import com.onesignal.debug.internal.logging.Logging;
 import com.onesignal.user.state.IUserStateObserver;
 import com.onesignal.user.state.UserChangedState;
+import com.onesignal.user.state.UserState;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.json.JSONException;
@@ -15,18 +17,52 @@ import org.json.JSONException;
 public class OneSignalUser extends FlutterMessengerResponder implements MethodCallHandler, IUserStateObserver {
     private static OneSignalUser sharedInstance;
 
-    public static OneSignalUser getSharedInstance() {
+    public static synchronized OneSignalUser getSharedInstance() {
         if (sharedInstance == null) {
             sharedInstance = new OneSignalUser();
         }
         return sharedInstance;
     }
 
-    private OneSignalUser() {}
+    /** Null until a channel call created the instance. */
+    static synchronized OneSignalUser getSharedInstanceIfCreated() {
+        return sharedInstance;
+    }
 
-    static void registerWith(BinaryMessenger messenger) {
+    // Bridge-internal: a trackEvent call bound for the spool, queued like any other call on the lane. It
+    // is only created by spoolOrTrackEvent; onMethodCall refuses it from Dart.
+    private static final String SPOOL_EVENT = "OneSignal#spoolEvent";
+
+    private OneSignalUser() {
+        super(LaneExecutor.Lane.USER);
+        dispatcher
+                .registerOverwriting("OneSignal#setLanguage", "language", this::setLanguage)
+                .registerIdempotent("OneSignal#getOnesignalId", this::getOnesignalId)
+                .registerIdempotent("OneSignal#getExternalId", this::getExternalId)
+                .register("OneSignal#addAliases", this::addAliases)
+                .register("OneSignal#removeAliases", this::removeAliases)
+                .register("OneSignal#addEmail", this::addEmail)
+                .register("OneSignal#removeEmail", this::removeEmail)
+                .register("OneSignal#addSms", this::addSms)
+                .register("OneSignal#removeSms", this::removeSms)
+                .register("OneSignal#addTags", this::addTags)
+                .register("OneSignal#removeTags", this::removeTags)
+                .registerIdempotent("OneSignal#getTags", this::getTags)
+                .register("OneSignal#lifecycleInit", (call, result) -> this.lifecycleInit(result))
+                .register("OneSignal#trackEvent", this::trackEvent)
+                .register(SPOOL_EVENT, this::spoolEvent)
+                .register("OneSignal#applyChanges", this::applyChanges);
+        platformThreadDispatcher
+                .register(StateSnapshot.ONESIGNAL_ID, this::answerFromSnapshot)
+                .register(StateSnapshot.EXTERNAL_ID, this::answerFromSnapshot)
+                .register(StateSnapshot.TAGS, this::answerFromSnapshot)
+                .register("OneSignal#trackEvent", this::spoolOrTrackEvent);
+    }
+
+    static OneSignalUser registerWith(BinaryMessenger messenger) {
         OneSignalUser controller = getSharedInstance();
         controller.bindChannelIfUnbound(messenger, "OneSignal#user", controller);
+        return controller;
     }
 
     void onAttachedToActivity(BinaryMessenger activityMessenger) {
@@ -34,42 +70,30 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
     }
 
     @Override
-    public void onMethodCall(final MethodCall call, final Result result) {
-        runOnBackgroundThread(result, new Runnable() {
-            @Override
-            public void run() {
-                handleMethodCall(call, result);
-            }
-        });
+    boolean parksUntilInitialized() {
+        return true;
     }
 
-    private void handleMethodCall(MethodCall call, Result result) {
-        if (call.method.contentEquals("OneSignal#setLanguage")) this.setLanguage(call, result);
-        else if (call.method.contentEquals("OneSignal#getOnesignalId")) this.getOnesignalId(call, result);
-        else if (call.method.contentEquals("OneSignal#getExternalId")) this.getExternalId(call, result);
-        else if (call.method.contentEquals("OneSignal#addAliases")) this.addAliases(call, result);
-        else if (call.method.contentEquals("OneSignal#removeAliases")) this.removeAliases(call, result);
-        else if (call.method.contentEquals("OneSignal#addEmail")) this.addEmail(call, result);
-        else if (call.method.contentEquals("OneSignal#removeEmail")) this.removeEmail(call, result);
-        else if (call.method.contentEquals("OneSignal#addSms")) this.addSms(call, result);
-        else if (call.method.contentEquals("OneSignal#removeSms")) this.removeSms(call, result);
-        else if (call.method.contentEquals("OneSignal#addTags")) this.addTags(call, result);
-        else if (call.method.contentEquals("OneSignal#removeTags")) this.removeTags(call, result);
-        else if (call.method.contentEquals("OneSignal#getTags")) this.getTags(call, result);
-        else if (call.method.contentEquals("OneSignal#lifecycleInit")) this.lifecycleInit(result);
-        else if (call.method.contentEquals("OneSignal#trackEvent")) this.trackEvent(call, result);
-        else replyNotImplemented(result);
+    @Override
+    public void onMethodCall(final MethodCall call, final Result result) {
+        if (SPOOL_EVENT.equals(call.method)) {
+            replyNotImplemented(result);
+            return;
+        }
+        if (platformThreadDispatcher.dispatch(call, result)) return;
+        runOnBackgroundThread(call, result);
     }
 
     private void setLanguage(MethodCall call, Result result) {
-        String language = call.argument("language");
-        if (language != null && language.length() == 0) {
-            language = null;
-        }
-        OneSignal.getUser().setLanguage(language);
+        setLanguage((String) call.argument("language"));
         replySuccess(result, null);
     }
 
+    /** Sets the SDK language; an empty string clears it, however the language arrived. */
+    private static void setLanguage(String language) {
+        OneSignal.getUser().setLanguage(OneSignalSerializer.setNullIfEmpty(language));
+    }
+
     private void lifecycleInit(Result result) {
         OneSignal.getUser().removeObserver(this);
         OneSignal.getUser().addObserver(this);
@@ -77,18 +101,22 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
     }
 
     private void getOnesignalId(MethodCall call, Result result) {
+        long generation = StateSnapshot.generation(StateSnapshot.ONESIGNAL_ID);
         String onesignalId = OneSignal.getUser().getOnesignalId();
         if (onesignalId.isEmpty()) {
             onesignalId = null;
         }
+        StateSnapshot.fill(StateSnapshot.ONESIGNAL_ID, generation, onesignalId);
         replySuccess(result, onesignalId);
     }
 
     private void getExternalId(MethodCall call, Result result) {
+        long generation = StateSnapshot.generation(StateSnapshot.EXTERNAL_ID);
         String externalId = OneSignal.getUser().getExternalId();
         if (externalId.isEmpty()) {
             externalId = null;
         }
+        StateSnapshot.fill(StateSnapshot.EXTERNAL_ID, generation, externalId);
         replySuccess(result, externalId);
     }
 
@@ -143,7 +171,8 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
     @SuppressWarnings("unchecked")
     private void addTags(MethodCall call, Result result) {
         try {
-            OneSignal.getUser().addTags((Map<String, String>) call.arguments);
+            Map<String, String> tags = (Map<String, String>) call.arguments;
+            if (!TagWriteBuffer.addTags(tags)) OneSignal.getUser().addTags(tags);
             replySuccess(result, null);
         } catch (ClassCastException e) {
             replyError(
@@ -157,7 +186,8 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
     @SuppressWarnings("unchecked")
     private void removeTags(MethodCall call, Result result) {
         try {
-            OneSignal.getUser().removeTags((List<String>) call.arguments);
+            List<String> keys = (List<String>) call.arguments;
+            if (!TagWriteBuffer.removeTags(keys)) OneSignal.getUser().removeTags(keys);
             replySuccess(result, null);
         } catch (ClassCastException e) {
             replyError(
@@ -169,7 +199,150 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
     }
 
     private void getTags(MethodCall call, Result result) {
-        replySuccess(result, OneSignal.getUser().getTags());
+        TagWriteBuffer.flush();
+        long generation = StateSnapshot.generation(StateSnapshot.TAGS);
+        Map<String, String> tags = OneSignal.getUser().getTags();
+        StateSnapshot.fill(StateSnapshot.TAGS, generation, tags == null ? null : new HashMap<>(tags));
+        replySuccess(result, tags);
+    }
+
+    /**
+     * Applies several kinds of user changes in one lane task. The whole description is validated first
+     * and nothing is applied if any part is malformed. Parts are then applied in a fixed order, removals
+     * before additions, and the reply maps each part that was present to its own result.
+     */
+    private void applyChanges(MethodCall call, Result result) {
+        final Map<String, Object> changes;
+        try {
+            changes = validateChanges(call.arguments);
+        } catch (IllegalArgumentException e) {
+            replyError(result, "OneSignal", "applyChanges failed validation: " + e.getMessage(), null);
+            return;
+        }
+
+        HashMap<String, Object> parts = new HashMap<>();
+        applyPart(parts, changes, "language", value -> setLanguage((String) value));
+        applyPart(parts, changes, "removeAliases", value -> OneSignal.getUser().removeAliases(stringList(value)));
+        applyPart(parts, changes, "addAliases", value -> OneSignal.getUser().addAliases(stringMap(value)));
+        applyPart(parts, changes, "removeEmails", value -> {
+            for (String email : stringList(value)) OneSignal.getUser().removeEmail(email);
+        });
+        applyPart(parts, changes, "addEmails", value -> {
+            for (String email : stringList(value)) OneSignal.getUser().addEmail(email);
+        });
+        applyPart(parts, changes, "removeSms", value -> {
+            for (String sms : stringList(value)) OneSignal.getUser().removeSms(sms);
+        });
+        applyPart(parts, changes, "addSms", value -> {
+            for (String sms : stringList(value)) OneSignal.getUser().addSms(sms);
+        });
+        if (changes.containsKey("removeTags") || changes.containsKey("addTags")) {
+            // Buffered tag writes were made earlier, so they go first.
+            TagWriteBuffer.flush();
+        }
+        applyPart(parts, changes, "removeTags", value -> OneSignal.getUser().removeTags(stringList(value)));
+        applyPart(parts, changes, "addTags", value -> OneSignal.getUser().addTags(stringMap(value)));
+        replySuccess(result, parts);
+    }
+
+    private interface ChangePart {
+        void apply(Object value);
+    }
+
+    private static void applyPart(
+            HashMap<String, Object> parts, Map<String, Object> changes, String name, ChangePart part) {
+        if (!changes.containsKey(name)) {
+            return;
+        }
+        try {
+            part.apply(changes.get(name));
+            HashMap<String, Object> hash = new HashMap<>();
+            hash.put("success", true);
+            parts.put(name, hash);
+        } catch (RuntimeException e) {
+            parts.put(name, BatchEntryResult.errorMap("OneSignal", e.toString(), null));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> validateChanges(Object arguments) {
+        if (!(arguments instanceof Map)) {
+            throw new IllegalArgumentException("expected a map of changes");
+        }
+        Map<String, Object> changes = (Map<String, Object>) arguments;
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            switch (name) {
+                case "language":
+                    if (value != null && !(value instanceof String)) {
+                        throw new IllegalArgumentException("language must be a string");
+                    }
+                    break;
+                case "addAliases":
+                case "addTags":
+                    if (!(value instanceof Map)) throw new IllegalArgumentException(name + " must be a map");
+                    for (Map.Entry<Object, Object> pair : ((Map<Object, Object>) value).entrySet()) {
+                        if (!(pair.getKey() instanceof String)
+                                || ((String) pair.getKey()).isEmpty()
+                                || !(pair.getValue() instanceof String)) {
+                            throw new IllegalArgumentException(name + " must map non-empty strings to strings");
+                        }
+                    }
+                    break;
+                case "removeAliases":
+                case "removeTags":
+                case "addEmails":
+                case "removeEmails":
+                case "addSms":
+                case "removeSms":
+                    if (!(value instanceof List)) throw new IllegalArgumentException(name + " must be a list");
+                    for (Object item : (List<Object>) value) {
+                        if (!(item instanceof String) || ((String) item).isEmpty()) {
+                            throw new IllegalArgumentException(name + " must contain non-empty strings");
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown change " + name);
+            }
+        }
+        return changes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> stringList(Object value) {
+        return (List<String>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> stringMap(Object value) {
+        return (Map<String, String>) value;
+    }
+
+    /**
+     * With the spool on, events skip the pre-init queue and are appended to the spool file on the lane, so
+     * they are never held on the heap waiting for initialization or consent. While queued for the append
+     * they count against the lane's capacity like any other call.
+     */
+    private void spoolOrTrackEvent(MethodCall call, Result result) {
+        if (!EventSpool.isEnabled()) {
+            runOnBackgroundThread(call, result);
+            return;
+        }
+        executeOnLane(new MethodCall(SPOOL_EVENT, call.arguments), result);
+    }
+
+    /**
+     * Runs on the lane. An event the spool can't take goes back through the pre-init queue as a plain
+     * trackEvent, so it still waits for initialization.
+     */
+    private void spoolEvent(MethodCall call, Result result) {
+        if (EventSpool.append(call.argument("name"), call.argument("properties"))) {
+            replySuccess(result, null);
+        } else {
+            runOnBackgroundThread(new MethodCall("OneSignal#trackEvent", call.arguments), result);
+        }
     }
 
     private void trackEvent(MethodCall call, Result result) {
@@ -181,9 +354,14 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
 
     @Override
     public void onUserStateChange(UserChangedState userChangedState) {
+        UserState current = userChangedState.getCurrent();
+        StateSnapshot.onUserState(emptyToNull(current.getOnesignalId()), emptyToNull(current.getExternalId()));
+        if (!shouldSendEvent("OneSignal#onUserStateChange")) return;
         try {
-            invokeMethodOnUiThread(
-                    "OneSignal#onUserStateChange", OneSignalSerializer.convertOnUserStateChange(userChangedState));
+            StateConflator.send(
+                    this,
+                    "OneSignal#onUserStateChange",
+                    OneSignalSerializer.convertOnUserStateChange(userChangedState));
         } catch (JSONException e) {
             e.getStackTrace();
             Logging.error(
@@ -191,4 +369,8 @@ public class OneSignalUser extends FlutterMessengerResponder implements MethodCa
                     null);
         }
     }
+
+    static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
 }
@@ -0,0 +1,139 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.onesignal.OneSignal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Optionally aggregates outcomes before they reach the SDK.
+ *
+ * <p>Values sent with {@code addOutcomeWithValue} within a window are summed per outcome name and
+ * forwarded as one outcome when the window ends or the app goes to the background.
+ *
+ * <p>Unique outcomes already sent in the current session are answered on the platform thread instead of
+ * being forwarded again. The bridge can't see the SDK's own session timeout, so it starts a new session
+ * at the boundaries it does see: {@code initialize}, login and logout, and a notification being opened,
+ * which starts a new attribution. A session here is therefore never longer than the SDK's for those
+ * events, though it may be for a session the SDK restarts after the app sat in the background.
+ */
+final class OutcomeAggregator {
+
+    static final int DEFAULT_WINDOW_MS = 1000;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private static final Runnable FLUSH_ON_LANE = new Runnable() {
+        @Override
+        public void run() {
+            LaneExecutor.execute(LaneExecutor.Lane.SESSION, FLUSH);
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int windowMs = DEFAULT_WINDOW_MS;
+
+    private static final LinkedHashMap<String, Double> sums = new LinkedHashMap<>();
+    private static final HashSet<String> uniqueSent = new HashSet<>();
+    private static boolean flushScheduled = false;
+
+    private static long accepted = 0;
+    private static long merged = 0;
+    private static long forwarded = 0;
+    private static long uniqueDeduplicated = 0;
+
+    static {
+        BackgroundFlusher.register(FLUSH_ON_LANE);
+    }
+
+    private OutcomeAggregator() {}
+
+    /** Null arguments keep the current setting. Turning aggregation off forwards anything pending. */
+    static void configure(Boolean enable, Integer newWindowMs) {
+        if (newWindowMs != null && newWindowMs >= 0) {
+            windowMs = newWindowMs;
+        }
+        if (enable != null) {
+            enabled = enable;
+            if (!enable) {
+                startSession();
+                FLUSH_ON_LANE.run();
+            }
+        }
+    }
+
+    /** @return false if aggregation is off; the caller then forwards the outcome itself. */
+    static synchronized boolean addOutcomeWithValue(String name, double value) {
+        if (!enabled) {
+            return false;
+        }
+        accepted++;
+        Double sum = sums.get(name);
+        if (sum != null) {
+            merged++;
+            value += sum;
+        }
+        sums.put(name, value);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            HANDLER.postDelayed(FLUSH_ON_LANE, windowMs);
+        }
+        return true;
+    }
+
+    /** @return true if this session already sent the unique outcome, so it need not be forwarded. */
+    static synchronized boolean isDuplicateUnique(String name) {
+        if (!enabled || name == null || name.isEmpty()) {
+            return false;
+        }
+        accepted++;
+        if (!uniqueSent.add(name)) {
+            uniqueDeduplicated++;
+            return true;
+        }
+        forwarded++;
+        return false;
+    }
+
+    /** Forgets the unique outcomes sent so far. Called at every session boundary the bridge sees. */
+    static synchronized void startSession() {
+        uniqueSent.clear();
+    }
+
+    /** Forwards the pending sums on the calling thread. */
+    static void flush() {
+        LinkedHashMap<String, Double> batch;
+        synchronized (OutcomeAggregator.class) {
+            flushScheduled = false;
+            if (sums.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(sums);
+            sums.clear();
+            forwarded += batch.size();
+        }
+        for (Map.Entry<String, Double> outcome : batch.entrySet()) {
+            OneSignal.getSession().addOutcomeWithValue(outcome.getKey(), outcome.getValue().floatValue());
+        }
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("windowMs", windowMs);
+        hash.put("pending", sums.size());
+        hash.put("accepted", accepted);
+        hash.put("merged", merged);
+        hash.put("forwarded", forwarded);
+        hash.put("uniqueDeduplicated", uniqueDeduplicated);
+        return hash;
+    }
+}
@@ -0,0 +1,236 @@
+package com.onesignal.flutter;
+
+import com.onesignal.OneSignal;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds calls for SDK-backed responders that arrive before {@code OneSignal#initialize} has finished,
+ * and hands them to their lanes in arrival order once it has.
+ *
+ * <p>Parked calls live in a fixed-size ring of parallel arrays, so parking allocates nothing beyond the
+ * {@code MethodCall} the engine already created. When the ring is full the configured {@link OverflowPolicy}
+ * decides what happens to the new call.
+ */
+final class PreInitCallQueue {
+
+    /** Declared in the same order as the Dart OSPreInitQueueOverflow enum, whose index is sent over. */
+    enum OverflowPolicy {
+        /** Reply to the new call with an error. */
+        REJECT,
+        /** Evict the oldest parked call with an error and park the new one. */
+        DROP_OLDEST,
+        /** Run the new call right away, as the bridge did before parking existed. */
+        PASS_THROUGH;
+
+        static OverflowPolicy fromIndex(int index) {
+            OverflowPolicy[] values = values();
+            return index >= 0 && index < values.length ? values[index] : REJECT;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    private static OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private static boolean ready = false;
+
+    private static FlutterMessengerResponder[] responders = new FlutterMessengerResponder[DEFAULT_CAPACITY];
+    private static MethodChannel.Result[] results = new MethodChannel.Result[DEFAULT_CAPACITY];
+    private static MethodCall[] calls = new MethodCall[DEFAULT_CAPACITY];
+    private static long[] parkedAtNanos = new long[DEFAULT_CAPACITY];
+    private static int head = 0;
+    private static int size = 0;
+
+    private static long parked = 0;
+    private static long replayed = 0;
+    private static long rejected = 0;
+    private static long dropped = 0;
+    private static long passedThrough = 0;
+    private static long failed = 0;
+    private static int maxDepth = 0;
+    private static long totalParkedNanos = 0;
+    private static long maxParkedNanos = 0;
+
+    private PreInitCallQueue() {}
+
+    /**
+     * Parks the call if the SDK is not initialized yet.
+     *
+     * @return true if the call was parked or answered here; false if the caller should run it now.
+     */
+    static boolean park(FlutterMessengerResponder responder, MethodCall call, MethodChannel.Result result) {
+        synchronized (PreInitCallQueue.class) {
+            if (ready) {
+                return false;
+            }
+        }
+        // The SDK may have been initialized natively (e.g. from Application#onCreate) without going
+        // through OneSignal#initialize; treat that as ready too. Checked outside the lock since it
+        // calls into the SDK.
+        if (OneSignal.isInitialized()) {
+            release();
+            return false;
+        }
+
+        FlutterMessengerResponder evictedResponder = null;
+        MethodChannel.Result evictedResult = null;
+        synchronized (PreInitCallQueue.class) {
+            if (ready) {
+                return false;
+            }
+            int capacity = calls.length;
+            if (size == capacity) {
+                switch (overflowPolicy) {
+                    case PASS_THROUGH:
+                        passedThrough++;
+                        return false;
+                    case DROP_OLDEST:
+                        evictedResponder = responders[head];
+                        evictedResult = results[head];
+                        clearSlot(head);
+                        head = (head + 1) % capacity;
+                        size--;
+                        dropped++;
+                        break;
+                    default:
+                        rejected++;
+                        responder.replyError(result, "OneSignal", "Too many calls made before initialize", null);
+                        return true;
+                }
+            }
+            int slot = (head + size) % capacity;
+            responders[slot] = responder;
+            results[slot] = result;
+            calls[slot] = call;
+            parkedAtNanos[slot] = System.nanoTime();
+            size++;
+            parked++;
+            if (size > maxDepth) {
+                maxDepth = size;
+            }
+        }
+        if (evictedResponder != null) {
+            evictedResponder.replyError(
+                    evictedResult, "OneSignal", "Dropped a call made before initialize to make room", null);
+        }
+        return true;
+    }
+
+    /**
+     * Marks the SDK ready and hands every parked call to its responder's lane, oldest first. Runs under
+     * the queue lock so a call arriving concurrently can't overtake the calls being replayed.
+     */
+    static synchronized void release() {
+        if (ready) {
+            return;
+        }
+        ready = true;
+        long now = System.nanoTime();
+        int capacity = calls.length;
+        while (size > 0) {
+            long parkedNanos = now - parkedAtNanos[head];
+            totalParkedNanos += parkedNanos;
+            if (parkedNanos > maxParkedNanos) {
+                maxParkedNanos = parkedNanos;
+            }
+            responders[head].executeOnLane(calls[head], results[head]);
+            clearSlot(head);
+            head = (head + 1) % capacity;
+            size--;
+            replayed++;
+        }
+        head = 0;
+    }
+
+    /**
+     * Fails every parked call, for when initialization failed. The queue stays closed, so later calls
+     * park until a retried initialization succeeds.
+     */
+    static void failParked(String message) {
+        FlutterMessengerResponder[] failedResponders;
+        MethodChannel.Result[] failedResults;
+        synchronized (PreInitCallQueue.class) {
+            int capacity = calls.length;
+            failedResponders = new FlutterMessengerResponder[size];
+            failedResults = new MethodChannel.Result[size];
+            for (int i = 0; i < failedResponders.length; i++) {
+                failedResponders[i] = responders[head];
+                failedResults[i] = results[head];
+                clearSlot(head);
+                head = (head + 1) % capacity;
+            }
+            size = 0;
+            head = 0;
+            failed += failedResponders.length;
+        }
+        for (int i = 0; i < failedResponders.length; i++) {
+            failedResponders[i].replyError(failedResults[i], "OneSignal", message, null);
+        }
+    }
+
+    /** Resizes the ring, keeping parked calls in order. Shrinking below the parked count is ignored. */
+    static synchronized void configure(Integer capacity, Integer policy) {
+        if (policy != null) {
+            overflowPolicy = OverflowPolicy.fromIndex(policy);
+        }
+        if (capacity == null || capacity < 1 || capacity < size || capacity == calls.length) {
+            return;
+        }
+        FlutterMessengerResponder[] newResponders = new FlutterMessengerResponder[capacity];
+        MethodChannel.Result[] newResults = new MethodChannel.Result[capacity];
+        MethodCall[] newCalls = new MethodCall[capacity];
+        long[] newParkedAtNanos = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % calls.length;
+            newResponders[i] = responders[slot];
+            newResults[i] = results[slot];
+            newCalls[i] = calls[slot];
+            newParkedAtNanos[i] = parkedAtNanos[slot];
+        }
+        responders = newResponders;
+        results = newResults;
+        calls = newCalls;
+        parkedAtNanos = newParkedAtNanos;
+        head = 0;
+    }
+
+    /** Puts the queue back as it was at process start: closed, empty and with default settings. */
+    static synchronized void reset() {
+        overflowPolicy = OverflowPolicy.REJECT;
+        ready = false;
+        responders = new FlutterMessengerResponder[DEFAULT_CAPACITY];
+        results = new MethodChannel.Result[DEFAULT_CAPACITY];
+        calls = new MethodCall[DEFAULT_CAPACITY];
+        parkedAtNanos = new long[DEFAULT_CAPACITY];
+        head = 0;
+        size = 0;
+        parked = replayed = rejected = dropped = passedThrough = failed = 0;
+        maxDepth = 0;
+        totalParkedNanos = maxParkedNanos = 0;
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("ready", ready);
+        hash.put("depth", size);
+        hash.put("maxDepth", maxDepth);
+        hash.put("capacity", calls.length);
+        hash.put("parked", parked);
+        hash.put("replayed", replayed);
+        hash.put("rejected", rejected);
+        hash.put("dropped", dropped);
+        hash.put("passedThrough", passedThrough);
+        hash.put("failed", failed);
+        hash.put("totalParkedMs", TimeUnit.NANOSECONDS.toMillis(totalParkedNanos));
+        hash.put("maxParkedMs", TimeUnit.NANOSECONDS.toMillis(maxParkedNanos));
+        return hash;
+    }
+
+    private static void clearSlot(int slot) {
+        responders[slot] = null;
+        results[slot] = null;
+        calls[slot] = null;
+    }
+}
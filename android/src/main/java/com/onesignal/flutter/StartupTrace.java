@@ -0,0 +1,61 @@
+package com.onesignal.flutter;
+
+import android.os.Build;
+import android.os.Trace;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times the bridge's startup work, such as engine attach and binding each responder.
+ *
+ * <p>Each phase is wrapped in a systrace section, so it shows up in Perfetto and Android Studio
+ * profiler captures of a cold start, and its duration is recorded for bridgeMetrics. A phase that runs
+ * more than once, like attach for each engine, accumulates in one histogram.
+ */
+final class StartupTrace {
+
+    private static final HashMap<String, LatencyHistogram> phases = new HashMap<>();
+
+    private StartupTrace() {}
+
+    /**
+     * Opens the trace section for {@code phase}. Must be paired with {@link #end} on the same thread.
+     *
+     * @return the start time to pass to {@link #end}.
+     */
+    static long begin(String phase) {
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.beginSection("OneSignal " + phase);
+        }
+        return System.nanoTime();
+    }
+
+    static void end(String phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.endSection();
+        }
+        record(phase, elapsed);
+    }
+
+    /** Records a phase that did not run inside a single {@link #begin}/{@link #end} pair. */
+    static void record(String phase, long nanos) {
+        LatencyHistogram histogram;
+        synchronized (StartupTrace.class) {
+            histogram = phases.get(phase);
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                phases.put(phase, histogram);
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> phase : phases.entrySet()) {
+            hash.put(phase.getKey(), phase.getValue().metrics());
+        }
+        return hash;
+    }
+}
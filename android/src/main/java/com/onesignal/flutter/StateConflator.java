@@ -0,0 +1,134 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.HashMap;
+
+/**
+ * Optionally conflates bursts of user-state and push-subscription change events.
+ *
+ * <p>Login, logout and token refresh can each raise several changes within milliseconds, and every one
+ * of them wakes the Dart observers. When enabled, the first change of a stream opens a short window;
+ * changes raised during it replace the pending event's {@code current} while its {@code previous}
+ * stays that of the first change, so Dart sees one transition from where the burst started to where it
+ * ended.
+ */
+final class StateConflator {
+
+    static final int DEFAULT_WINDOW_MS = 50;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+    private static volatile boolean enabled = false;
+    private static volatile int windowMs = DEFAULT_WINDOW_MS;
+
+    // Keyed by event method name; one stream per kind of change.
+    private static final HashMap<String, Stream> streams = new HashMap<>();
+
+    private static final class Stream implements Runnable {
+        final FlutterMessengerResponder responder;
+        final String method;
+        HashMap<String, Object> pending;
+        long received = 0;
+        long delivered = 0;
+        long coalesced = 0;
+
+        Stream(FlutterMessengerResponder responder, String method) {
+            this.responder = responder;
+            this.method = method;
+        }
+
+        @Override
+        public void run() {
+            HashMap<String, Object> event;
+            synchronized (StateConflator.class) {
+                event = pending;
+                pending = null;
+                if (event == null) {
+                    return;
+                }
+                delivered++;
+            }
+            responder.invokeMethodOnUiThread(method, event);
+        }
+    }
+
+    private StateConflator() {}
+
+    /**
+     * Null arguments keep the current setting. Called on the main thread. Turning conflation off delivers
+     * anything pending right away, before any change raised after this call can reach Dart.
+     */
+    static void configure(Boolean enable, Integer newWindowMs) {
+        if (newWindowMs != null && newWindowMs >= 0) {
+            windowMs = newWindowMs;
+        }
+        if (enable == null) {
+            return;
+        }
+        Stream[] pending;
+        synchronized (StateConflator.class) {
+            enabled = enable;
+            if (enable) {
+                return;
+            }
+            pending = streams.values().toArray(new Stream[0]);
+        }
+        for (Stream stream : pending) {
+            HANDLER.removeCallbacks(stream);
+            stream.run();
+        }
+    }
+
+    /**
+     * Sends a change event, conflated with others raised for the same method within the window.
+     *
+     * @param event a map with a {@code current} entry and optionally a {@code previous} entry.
+     */
+    static void send(FlutterMessengerResponder responder, String method, HashMap<String, Object> event) {
+        if (!enabled) {
+            responder.invokeMethodOnUiThread(method, event);
+            return;
+        }
+        Stream schedule = null;
+        synchronized (StateConflator.class) {
+            // Conflation may have been turned off, and its streams drained, since the check above.
+            if (!enabled) {
+                responder.invokeMethodOnUiThread(method, event);
+                return;
+            }
+            Stream stream = streams.get(method);
+            if (stream == null) {
+                stream = new Stream(responder, method);
+                streams.put(method, stream);
+            }
+            stream.received++;
+            if (stream.pending == null) {
+                stream.pending = event;
+                schedule = stream;
+            } else {
+                stream.pending.put("current", event.get("current"));
+                stream.coalesced++;
+            }
+        }
+        if (schedule != null) {
+            HANDLER.postDelayed(schedule, windowMs);
+        }
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("windowMs", windowMs);
+        HashMap<String, Object> streamsHash = new HashMap<>();
+        for (Stream stream : streams.values()) {
+            HashMap<String, Object> streamHash = new HashMap<>();
+            streamHash.put("received", stream.received);
+            streamHash.put("delivered", stream.delivered);
+            streamHash.put("coalesced", stream.coalesced);
+            streamsHash.put(stream.method, streamHash);
+        }
+        hash.put("streams", streamsHash);
+        return hash;
+    }
+}
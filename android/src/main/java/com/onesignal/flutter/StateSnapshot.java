@@ -0,0 +1,254 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optional cache of the user and push subscription getters, so Dart reads can be answered on the
+ * platform thread instead of queueing behind the lane.
+ *
+ * <p>A getter's value becomes valid when a lane read returns it, and is then kept current by the user
+ * state and push subscription observers. Calls through the bridge that change what a getter returns
+ * before the SDK notifies its observers (login, logout, opting in or out, tag writes) invalidate it on
+ * the platform thread as soon as they are received, and keep it invalid until they are answered, so a
+ * read made after such a call never sees the value from before it.
+ */
+final class StateSnapshot {
+
+    static final String ONESIGNAL_ID = "OneSignal#getOnesignalId";
+    static final String EXTERNAL_ID = "OneSignal#getExternalId";
+    static final String TAGS = "OneSignal#getTags";
+    static final String PUSH_SUBSCRIPTION_ID = "OneSignal#pushSubscriptionId";
+    static final String PUSH_SUBSCRIPTION_TOKEN = "OneSignal#pushSubscriptionToken";
+    static final String PUSH_SUBSCRIPTION_OPTED_IN = "OneSignal#pushSubscriptionOptedIn";
+
+    // Method calls that change what getters return, to the getters they change.
+    private static final HashMap<String, String[]> WRITES = new HashMap<>();
+
+    static {
+        String[] user = {ONESIGNAL_ID, EXTERNAL_ID, TAGS};
+        WRITES.put("OneSignal#login", user);
+        WRITES.put("OneSignal#loginWithJWT", user);
+        WRITES.put("OneSignal#logout", user);
+        String[] tags = {TAGS};
+        WRITES.put("OneSignal#addTags", tags);
+        WRITES.put("OneSignal#removeTags", tags);
+        WRITES.put("OneSignal#applyChanges", tags);
+        String[] optedIn = {PUSH_SUBSCRIPTION_OPTED_IN};
+        WRITES.put("OneSignal#optIn", optedIn);
+        WRITES.put("OneSignal#optOut", optedIn);
+    }
+
+    private static final class Slot {
+        Object value;
+        boolean valid = false;
+        // Bumped by every update and invalidation, so a lane read that raced one doesn't store its value.
+        long generation = 0;
+        // Writes received but not yet answered; the value can't become valid while any are.
+        int pendingWrites = 0;
+        long updatedAtNanos = 0;
+        long hits = 0;
+        long misses = 0;
+        // How old the oldest value answered from the cache was; observers keep values current, so this
+        // shows how long a getter goes without an update.
+        long maxHitAgeNanos = 0;
+    }
+
+    private static final HashMap<String, Slot> SLOTS = new HashMap<>();
+
+    static {
+        for (String method : new String[] {
+            ONESIGNAL_ID, EXTERNAL_ID, TAGS, PUSH_SUBSCRIPTION_ID, PUSH_SUBSCRIPTION_TOKEN, PUSH_SUBSCRIPTION_OPTED_IN
+        }) {
+            SLOTS.put(method, new Slot());
+        }
+    }
+
+    private static volatile boolean enabled = false;
+    private static long invalidations = 0;
+
+    private StateSnapshot() {}
+
+    /** Null keeps the current setting. Turning the cache off drops everything in it. */
+    static void configure(Boolean enable) {
+        if (enable == null) {
+            return;
+        }
+        enabled = enable;
+        if (!enable) {
+            synchronized (StateSnapshot.class) {
+                for (Slot slot : SLOTS.values()) {
+                    slot.valid = false;
+                    slot.value = null;
+                    slot.generation++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers a getter from the cache.
+     *
+     * @return false if the cache can't answer it; the caller then reads it on the lane.
+     */
+    static boolean answer(FlutterMessengerResponder responder, String method, Result result) {
+        Object value;
+        synchronized (StateSnapshot.class) {
+            Slot slot = SLOTS.get(method);
+            if (!enabled || slot == null) {
+                return false;
+            }
+            if (!slot.valid) {
+                slot.misses++;
+                return false;
+            }
+            slot.hits++;
+            slot.maxHitAgeNanos = Math.max(slot.maxHitAgeNanos, System.nanoTime() - slot.updatedAtNanos);
+            value = slot.value;
+        }
+        responder.replySuccess(result, value);
+        return true;
+    }
+
+    /** Taken on the lane before reading from the SDK, and passed back to {@link #fill}. */
+    static synchronized long generation(String method) {
+        return SLOTS.get(method).generation;
+    }
+
+    /** Stores what a lane read returned, unless the getter was updated or invalidated meanwhile. */
+    static synchronized void fill(String method, long generation, Object value) {
+        Slot slot = SLOTS.get(method);
+        if (!enabled || slot.generation != generation) {
+            return;
+        }
+        set(slot, value);
+    }
+
+    static synchronized void onUserState(String onesignalId, String externalId) {
+        if (!enabled) {
+            return;
+        }
+        set(SLOTS.get(ONESIGNAL_ID), onesignalId);
+        set(SLOTS.get(EXTERNAL_ID), externalId);
+        // Tags belong to the user; a new user's tags arrive from the backend without an observer call.
+        invalidate(TAGS);
+    }
+
+    static synchronized void onPushSubscriptionState(String id, String token, boolean optedIn) {
+        if (!enabled) {
+            return;
+        }
+        set(SLOTS.get(PUSH_SUBSCRIPTION_ID), id);
+        set(SLOTS.get(PUSH_SUBSCRIPTION_TOKEN), token);
+        set(SLOTS.get(PUSH_SUBSCRIPTION_OPTED_IN), optedIn);
+    }
+
+    /**
+     * Called on the platform thread for every call before it is queued. If the call changes getters, they
+     * are invalidated now and stay invalid until the returned result is answered.
+     *
+     * @return the result to queue the call with.
+     */
+    static Result trackWrite(String method, Result result) {
+        String[] getters = WRITES.get(method);
+        if (getters == null || !enabled) {
+            return result;
+        }
+        synchronized (StateSnapshot.class) {
+            for (String getter : getters) {
+                SLOTS.get(getter).pendingWrites++;
+            }
+            invalidate(getters);
+        }
+        return new WriteResult(result, getters);
+    }
+
+    /** Ends a write once it is answered, however it ends. */
+    private static synchronized void endWrite(String[] getters) {
+        for (String getter : getters) {
+            Slot slot = SLOTS.get(getter);
+            slot.pendingWrites--;
+            // A lane read that started while the write was pending may have read from before it.
+            slot.generation++;
+        }
+    }
+
+    private static synchronized void invalidate(String... methods) {
+        for (String method : methods) {
+            Slot slot = SLOTS.get(method);
+            slot.generation++;
+            if (slot.valid) {
+                slot.valid = false;
+                slot.value = null;
+                invalidations++;
+            }
+        }
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("invalidations", invalidations);
+        long now = System.nanoTime();
+        HashMap<String, Object> getters = new HashMap<>();
+        for (Map.Entry<String, Slot> entry : SLOTS.entrySet()) {
+            Slot slot = entry.getValue();
+            HashMap<String, Object> slotHash = new HashMap<>();
+            slotHash.put("valid", slot.valid);
+            slotHash.put("hits", slot.hits);
+            slotHash.put("misses", slot.misses);
+            slotHash.put("maxHitAgeMs", TimeUnit.NANOSECONDS.toMillis(slot.maxHitAgeNanos));
+            slotHash.put("ageMs", slot.valid ? TimeUnit.NANOSECONDS.toMillis(now - slot.updatedAtNanos) : null);
+            getters.put(entry.getKey(), slotHash);
+        }
+        hash.put("getters", getters);
+        return hash;
+    }
+
+    private static void set(Slot slot, Object value) {
+        slot.generation++;
+        if (slot.pendingWrites > 0) {
+            return;
+        }
+        slot.value = value;
+        slot.valid = true;
+        slot.updatedAtNanos = System.nanoTime();
+    }
+
+    /** Answers a write's caller, ending the write the first time it is answered. */
+    static final class WriteResult implements Result {
+        final Result delegate;
+        private final String[] getters;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private WriteResult(Result delegate, String[] getters) {
+            this.delegate = delegate;
+            this.getters = getters;
+        }
+
+        private void end() {
+            if (ended.compareAndSet(false, true)) endWrite(getters);
+        }
+
+        @Override
+        public void success(Object result) {
+            end();
+            delegate.success(result);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            end();
+            delegate.error(errorCode, errorMessage, errorDetails);
+        }
+
+        @Override
+        public void notImplemented() {
+            end();
+            delegate.notImplemented();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.onesignal.OneSignal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optionally combines {@code addTags} and {@code removeTags} calls made within a short window into one
+ * net change per kind.
+ *
+ * <p>A later value for a key replaces an earlier one, and removing a key drops any add for it still
+ * buffered. The net change is applied when the window ends, before {@code getTags}, login and logout
+ * read or change the user, and when the app goes to the background.
+ */
+final class TagWriteBuffer {
+
+    static final int DEFAULT_WINDOW_MS = 500;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Runnable FLUSH_ON_LANE = new Runnable() {
+        @Override
+        public void run() {
+            LaneExecutor.execute(LaneExecutor.Lane.USER, FLUSH);
+        }
+    };
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int windowMs = DEFAULT_WINDOW_MS;
+
+    private static final LinkedHashMap<String, String> adds = new LinkedHashMap<>();
+    private static final LinkedHashSet<String> removes = new LinkedHashSet<>();
+    private static boolean flushScheduled = false;
+
+    private static long operations = 0;
+    private static long merged = 0;
+    private static long flushes = 0;
+
+    static {
+        BackgroundFlusher.register(FLUSH_ON_LANE);
+    }
+
+    private TagWriteBuffer() {}
+
+    /** Null arguments keep the current setting. Turning buffering off applies anything buffered. */
+    static void configure(Boolean enable, Integer newWindowMs) {
+        if (newWindowMs != null && newWindowMs >= 0) {
+            windowMs = newWindowMs;
+        }
+        if (enable != null) {
+            enabled = enable;
+            if (!enable) FLUSH_ON_LANE.run();
+        }
+    }
+
+    /** @return false if buffering is off; the caller then applies the tags itself. */
+    static boolean addTags(Map<String, String> tags) {
+        if (!enabled) {
+            return false;
+        }
+        synchronized (TagWriteBuffer.class) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                operations++;
+                boolean combined = removes.remove(tag.getKey());
+                if (adds.put(tag.getKey(), tag.getValue()) != null) combined = true;
+                if (combined) merged++;
+            }
+            scheduleFlush();
+        }
+        return true;
+    }
+
+    /** @return false if buffering is off; the caller then removes the tags itself. */
+    static boolean removeTags(List<String> keys) {
+        if (!enabled) {
+            return false;
+        }
+        synchronized (TagWriteBuffer.class) {
+            for (String key : keys) {
+                operations++;
+                // An add still buffered never reaches the SDK, but the key may already be set there, so
+                // the remove is kept.
+                boolean combined = adds.remove(key) != null;
+                if (!removes.add(key)) combined = true;
+                if (combined) merged++;
+            }
+            scheduleFlush();
+        }
+        return true;
+    }
+
+    /** A net change taken out of the buffer. A key is never in both, so they can be applied in any order. */
+    static final class Batch {
+        final HashMap<String, String> adds;
+        final ArrayList<String> removes;
+
+        Batch(HashMap<String, String> adds, ArrayList<String> removes) {
+            this.adds = adds;
+            this.removes = removes;
+        }
+    }
+
+    /**
+     * Applies the buffered change on the calling thread. The change is applied while holding the lock,
+     * so a flush that returns has nothing of an earlier flush still on its way to the SDK; login and
+     * logout rely on that to apply every tag set before them to the user they were set on.
+     */
+    static synchronized void flush() {
+        Batch batch = take();
+        if (batch == null) {
+            return;
+        }
+        if (!batch.removes.isEmpty()) OneSignal.getUser().removeTags(batch.removes);
+        if (!batch.adds.isEmpty()) OneSignal.getUser().addTags(batch.adds);
+    }
+
+    /** Empties the buffer and returns its net change, or null if nothing was buffered. */
+    static synchronized Batch take() {
+        flushScheduled = false;
+        if (adds.isEmpty() && removes.isEmpty()) {
+            return null;
+        }
+        Batch batch = new Batch(new HashMap<>(adds), new ArrayList<>(removes));
+        adds.clear();
+        removes.clear();
+        flushes++;
+        return batch;
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("windowMs", windowMs);
+        hash.put("pendingAdds", adds.size());
+        hash.put("pendingRemoves", removes.size());
+        hash.put("operations", operations);
+        hash.put("merged", merged);
+        hash.put("flushes", flushes);
+        return hash;
+    }
+
+    private static void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        HANDLER.postDelayed(FLUSH_ON_LANE, windowMs);
+    }
+}
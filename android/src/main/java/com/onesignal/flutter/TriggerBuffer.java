@@ -0,0 +1,195 @@
+package com.onesignal.flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.onesignal.OneSignal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optionally diffs in-app message trigger changes against what the SDK already has.
+ *
+ * <p>The bridge keeps a shadow copy of the triggers it has set, plus the state Dart's calls since the
+ * last flush ask for. Calls that leave the requested state unchanged are dropped. Adds, removes and
+ * clears made within a window become one net update when it ends: the keys that changed value and the
+ * keys that went away, or a single clear if nothing is left. The SDK therefore re-evaluates triggers
+ * only when something really changed.
+ *
+ * <p>The shadow copy assumes triggers are only changed through this bridge. It is kept up to date while
+ * buffering is off as well, so turning it on later doesn't drop a remove or clear of a trigger set
+ * before. Triggers live in memory in the SDK, so both start empty with each process.
+ */
+final class TriggerBuffer {
+
+    static final int DEFAULT_WINDOW_MS = 100;
+
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static final Runnable FLUSH = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private static final Runnable FLUSH_ON_LANE = new Runnable() {
+        @Override
+        public void run() {
+            LaneExecutor.execute(LaneExecutor.Lane.IN_APP_MESSAGES, FLUSH);
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int windowMs = DEFAULT_WINDOW_MS;
+
+    // What the SDK was last given, and what Dart has asked for since.
+    private static final HashMap<String, String> applied = new HashMap<>();
+    private static final HashMap<String, String> requested = new HashMap<>();
+    private static boolean flushScheduled = false;
+
+    private static long operations = 0;
+    private static long unchanged = 0;
+    private static long flushes = 0;
+    private static long sdkCalls = 0;
+
+    static {
+        BackgroundFlusher.register(FLUSH_ON_LANE);
+    }
+
+    private TriggerBuffer() {}
+
+    /** Null arguments keep the current setting. Turning buffering off applies anything pending. */
+    static void configure(Boolean enable, Integer newWindowMs) {
+        if (newWindowMs != null && newWindowMs >= 0) {
+            windowMs = newWindowMs;
+        }
+        if (enable != null) {
+            enabled = enable;
+            if (!enable) FLUSH_ON_LANE.run();
+        }
+    }
+
+    /** @return false if buffering is off; the caller then adds the triggers itself. */
+    static synchronized boolean addTriggers(Map<String, String> triggers) {
+        if (!enabled) {
+            applied.putAll(triggers);
+            requested.putAll(triggers);
+            return false;
+        }
+        operations++;
+        boolean changed = false;
+        for (Map.Entry<String, String> trigger : triggers.entrySet()) {
+            String previous = requested.put(trigger.getKey(), trigger.getValue());
+            if (previous == null || !previous.equals(trigger.getValue())) changed = true;
+        }
+        afterOperation(changed);
+        return true;
+    }
+
+    /** @return false if buffering is off; the caller then removes the triggers itself. */
+    static synchronized boolean removeTriggers(Collection<String> keys) {
+        if (!enabled) {
+            applied.keySet().removeAll(keys);
+            requested.keySet().removeAll(keys);
+            return false;
+        }
+        operations++;
+        boolean changed = false;
+        for (String key : keys) {
+            if (requested.remove(key) != null) changed = true;
+        }
+        afterOperation(changed);
+        return true;
+    }
+
+    /** @return false if buffering is off; the caller then clears the triggers itself. */
+    static synchronized boolean clearTriggers() {
+        if (!enabled) {
+            applied.clear();
+            requested.clear();
+            return false;
+        }
+        operations++;
+        boolean changed = !requested.isEmpty();
+        requested.clear();
+        afterOperation(changed);
+        return true;
+    }
+
+    /** A net change: a single clear, or the keys that changed value and the keys that went away. */
+    static final class Change {
+        final HashMap<String, String> adds;
+        final ArrayList<String> removes;
+        final boolean clear;
+
+        Change(HashMap<String, String> adds, ArrayList<String> removes, boolean clear) {
+            this.adds = adds;
+            this.removes = removes;
+            this.clear = clear;
+        }
+    }
+
+    /** Applies the net change on the calling thread. */
+    static void flush() {
+        Change change = take();
+        if (change == null) {
+            return;
+        }
+        if (change.clear) {
+            OneSignal.getInAppMessages().clearTriggers();
+            return;
+        }
+        if (!change.removes.isEmpty()) OneSignal.getInAppMessages().removeTriggers(change.removes);
+        if (!change.adds.isEmpty()) OneSignal.getInAppMessages().addTriggers(change.adds);
+    }
+
+    /**
+     * Records the requested state as applied and returns the change that takes the SDK there, or null if
+     * there is none.
+     */
+    static synchronized Change take() {
+        flushScheduled = false;
+        HashMap<String, String> adds = new HashMap<>();
+        ArrayList<String> removes = new ArrayList<>();
+        for (Map.Entry<String, String> trigger : requested.entrySet()) {
+            if (!trigger.getValue().equals(applied.get(trigger.getKey()))) {
+                adds.put(trigger.getKey(), trigger.getValue());
+            }
+        }
+        for (String key : applied.keySet()) {
+            if (!requested.containsKey(key)) removes.add(key);
+        }
+        if (adds.isEmpty() && removes.isEmpty()) {
+            return null;
+        }
+        boolean clear = requested.isEmpty();
+        applied.clear();
+        applied.putAll(requested);
+        flushes++;
+        sdkCalls += clear ? 1 : (adds.isEmpty() ? 0 : 1) + (removes.isEmpty() ? 0 : 1);
+        return new Change(adds, removes, clear);
+    }
+
+    static synchronized HashMap<String, Object> metrics() {
+        HashMap<String, Object> hash = new HashMap<>();
+        hash.put("enabled", enabled);
+        hash.put("windowMs", windowMs);
+        hash.put("triggers", applied.size());
+        hash.put("operations", operations);
+        hash.put("unchanged", unchanged);
+        hash.put("flushes", flushes);
+        hash.put("sdkCalls", sdkCalls);
+        return hash;
+    }
+
+    private static void afterOperation(boolean changed) {
+        if (!changed) {
+            unchanged++;
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            HANDLER.postDelayed(FLUSH_ON_LANE, windowMs);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import org.junit.Test;
+
+public class BoundedLruCacheTest {
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntryWhenFull() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(2, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+
+        cache.put("c", 3);
+
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+        assertEquals(1L, cache.metrics().get("evictions"));
+    }
+
+    @Test
+    public void expiresEntriesOlderThanTheTtl() throws InterruptedException {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10, 5);
+        cache.put("a", 1);
+
+        Thread.sleep(20);
+
+        assertFalse(cache.containsKey("a"));
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.metrics().get("expirations"));
+    }
+
+    @Test
+    public void insertDropsExpiredEntries() throws InterruptedException {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10, 5);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        Thread.sleep(20);
+        cache.put("c", 3);
+
+        HashMap<String, Object> metrics = cache.metrics();
+        assertEquals(1, metrics.get("size"));
+        assertEquals(2L, metrics.get("expirations"));
+        assertEquals(0L, metrics.get("evictions"));
+    }
+
+    @Test
+    public void zeroTtlKeepsEntriesUntilEvicted() throws InterruptedException {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10, 0);
+        cache.put("a", 1);
+
+        Thread.sleep(20);
+
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+    }
+
+    @Test
+    public void shrinkingEvictsLeastRecentlyUsedEntriesRightAway() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(4, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.put("d", 4);
+        cache.get("a");
+
+        cache.configure(2, null);
+
+        assertEquals(2, cache.metrics().get("size"));
+        assertTrue(cache.containsKey("a"));
+        assertTrue(cache.containsKey("d"));
+        assertEquals(2L, cache.metrics().get("evictions"));
+    }
+
+    @Test
+    public void configureIgnoresNullAndOutOfRangeValues() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(4, 1000);
+
+        cache.configure(null, null);
+        cache.configure(0, -1L);
+
+        HashMap<String, Object> metrics = cache.metrics();
+        assertEquals(4, metrics.get("capacity"));
+        assertEquals(1000L, metrics.get("ttlMs"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(4, 0);
+        cache.put("a", 1);
+
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        HashMap<String, Object> metrics = cache.metrics();
+        assertEquals(2L, metrics.get("hits"));
+        assertEquals(1L, metrics.get("misses"));
+    }
+
+    @Test
+    public void removeAndClearDoNotCountAsEvictions() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(4, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        assertEquals(Integer.valueOf(1), cache.remove("a"));
+        assertNull(cache.remove("a"));
+        cache.clear();
+
+        assertEquals(0, cache.metrics().get("size"));
+        assertEquals(0L, cache.metrics().get("evictions"));
+    }
+}
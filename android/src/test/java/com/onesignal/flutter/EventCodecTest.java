@@ -0,0 +1,173 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventCodecTest {
+
+    @Before
+    public void setUp() {
+        EventCodec.configure(true);
+    }
+
+    @After
+    public void tearDown() {
+        EventCodec.configure(false);
+    }
+
+    /** A notification with the fields a typical push carries, as OneSignalSerializer builds it. */
+    private static HashMap<String, Object> notification() {
+        HashMap<String, Object> notification = new HashMap<>();
+        notification.put("androidNotificationId", 1_204_339_215);
+        notification.put("notificationId", "6f1e9a5c-2b7d-4c1e-9a53-0d2f7c1b8e41");
+        notification.put("title", "Your order has shipped");
+        notification.put("body", "Track it from the app. It should arrive on Thursday.");
+        notification.put("smallIcon", "ic_stat_onesignal_default");
+        notification.put("launchUrl", "https://example.com/orders/1234");
+        notification.put("lockScreenVisibility", 1);
+        notification.put("fromProjectNumber", "123456789012");
+        notification.put("priority", 5);
+        notification.put(
+                "rawPayload",
+                "{\"google.sent_time\":1700000000000,\"custom\":\"{\\\"i\\\":\\\"6f1e9a5c\\\"}\","
+                        + "\"alert\":\"Track it from the app.\",\"title\":\"Your order has shipped\"}");
+        HashMap<String, Object> additionalData = new HashMap<>();
+        additionalData.put("orderId", "1234");
+        additionalData.put("screen", "orders");
+        notification.put("additionalData", additionalData);
+        HashMap<String, Object> button = new HashMap<>();
+        button.put("id", "track");
+        button.put("text", "Track");
+        button.put("icon", null);
+        List<Object> buttons = new ArrayList<>();
+        buttons.add(button);
+        notification.put("buttons", buttons);
+        return notification;
+    }
+
+    private static HashMap<String, Object> event(String key, Object value) {
+        HashMap<String, Object> event = new HashMap<>();
+        event.put(key, value);
+        return event;
+    }
+
+    private static HashMap<String, Object> message() {
+        return event("message_id", "3b2f4e6a-1c9d-4a7e-8f20-5d6c7b8a9e01");
+    }
+
+    private static int mapBytes(HashMap<String, Object> event) {
+        ByteBuffer buffer = StandardMessageCodec.INSTANCE.encodeMessage(event);
+        return buffer.capacity();
+    }
+
+    @Test
+    public void sendsTheMapWhenDisabled() {
+        EventCodec.configure(false);
+        HashMap<String, Object> event = event("notification", notification());
+
+        assertSame(event, EventCodec.encode(EventCodec.NOTIFICATION_WILL_DISPLAY, event));
+    }
+
+    @Test
+    public void writesTheVersionKindAndPresenceMask() {
+        HashMap<String, Object> notification = new HashMap<>();
+        notification.put("notificationId", "n");
+        notification.put("title", "t");
+
+        byte[] bytes = (byte[]) EventCodec.encode(
+                EventCodec.NOTIFICATION_WILL_DISPLAY, event("notification", notification));
+
+        byte[] expected = {
+            EventCodec.VERSION, EventCodec.NOTIFICATION_WILL_DISPLAY,
+            0, 0, 0, 6, // notificationId and title
+            0, 0, 0, 1, 'n',
+            0, 0, 0, 1, 't',
+        };
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test
+    public void writesAnInAppMessageClickInFieldOrder() {
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("action_id", "a");
+        result.put("url", null);
+        result.put("closing_message", true);
+        HashMap<String, Object> event = event("message", event("message_id", "m"));
+        event.put("result", result);
+
+        byte[] bytes = (byte[]) EventCodec.encode(EventCodec.IAM_CLICK, event);
+
+        byte[] expected = {
+            EventCodec.VERSION, EventCodec.IAM_CLICK,
+            0, 0, 0, 1, 'm',
+            0, 0, 0, 1, 'a',
+            -1, -1, -1, -1, // null url
+            1,
+        };
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test
+    public void sendsTheMapWhenANotificationHasAFieldOutsideTheSchema() {
+        HashMap<String, Object> notification = notification();
+        notification.put("addedLater", "x");
+        HashMap<String, Object> event = event("notification", notification);
+        long fallbacks = (Long) EventCodec.metrics().get("fallbacks");
+
+        assertSame(event, EventCodec.encode(EventCodec.NOTIFICATION_WILL_DISPLAY, event));
+        assertEquals(fallbacks + 1, EventCodec.metrics().get("fallbacks"));
+    }
+
+    /** The binary form of each event kind is smaller than its map form; failures name both sizes. */
+    @Test
+    public void binaryEventsAreSmallerThanMaps() {
+        HashMap<String, Object> clickResult = new HashMap<>();
+        clickResult.put("action_id", "track");
+        clickResult.put("url", null);
+        HashMap<String, Object> notificationClick = event("notification", notification());
+        notificationClick.put("result", clickResult);
+        HashMap<String, Object> messageResult = new HashMap<>(clickResult);
+        messageResult.put("closing_message", true);
+        HashMap<String, Object> messageClick = event("message", message());
+        messageClick.put("result", messageResult);
+
+        Object[][] events = {
+            {"notification will display", EventCodec.NOTIFICATION_WILL_DISPLAY, event("notification", notification())},
+            {"notification click", EventCodec.NOTIFICATION_CLICK, notificationClick},
+            {"in-app message click", EventCodec.IAM_CLICK, messageClick},
+            {"in-app message lifecycle", EventCodec.IAM_WILL_DISPLAY, event("message", message())},
+        };
+        for (Object[] row : events) {
+            @SuppressWarnings("unchecked")
+            HashMap<String, Object> event = (HashMap<String, Object>) row[2];
+            int binary = ((byte[]) EventCodec.encode((Byte) row[1], event)).length;
+            int map = mapBytes(event);
+            assertTrue(row[0] + ": binary " + binary + " B, map " + map + " B", binary < map);
+        }
+    }
+
+    @Test
+    public void samplesMapSizesForMetrics() {
+        HashMap<String, Object> event = event("message", message());
+        long sampled = (Long) EventCodec.metrics().get("sampledEvents");
+
+        for (int i = 0; i < 64; i++) {
+            EventCodec.encode(EventCodec.IAM_DID_DISMISS, event);
+        }
+
+        HashMap<String, Object> metrics = EventCodec.metrics();
+        assertEquals(sampled + 2, metrics.get("sampledEvents"));
+        assertTrue((Long) metrics.get("sampledMapBytes") > (Long) metrics.get("sampledBinaryBytes"));
+    }
+}
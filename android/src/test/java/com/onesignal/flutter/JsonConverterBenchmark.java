@@ -0,0 +1,160 @@
+package com.onesignal.flutter;
+
+import static com.onesignal.flutter.JsonConverterTest.nestedArrays;
+import static com.onesignal.flutter.JsonConverterTest.payload;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Times JsonConverter against the recursive converter it replaced. Runs with {@code -Pbenchmarks}. */
+// Robolectric, for Android's org.json rather than the throwing stubs in android.jar.
+@RunWith(RobolectricTestRunner.class)
+public class JsonConverterBenchmark {
+
+    private static final int WARMUP_ROUNDS = 10_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    /** The recursive converter OneSignalSerializer used before JsonConverter, kept as the baseline. */
+    static HashMap<String, Object> recursiveToHashMap(JSONObject object) throws JSONException {
+        HashMap<String, Object> hash = new HashMap<>();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (object.isNull(key)) continue;
+            Object val = object.get(key);
+            if (val instanceof JSONArray) val = recursiveToList((JSONArray) val);
+            else if (val instanceof JSONObject) val = recursiveToHashMap((JSONObject) val);
+            hash.put(key, val);
+        }
+        return hash;
+    }
+
+    private static List<Object> recursiveToList(JSONArray array) throws JSONException {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            Object val = array.get(i);
+            if (val instanceof JSONArray) val = recursiveToList((JSONArray) val);
+            else if (val instanceof JSONObject) val = recursiveToHashMap((JSONObject) val);
+            list.add(val);
+        }
+        return list;
+    }
+
+    /**
+     * Prints the cost of converting 1 KB and 4 KB payloads, and one nested just within {@link
+     * JsonConverter#MAX_DEPTH}, with toHashMap and with the recursive converter. Both produce the same maps;
+     * timings vary by machine and aren't asserted.
+     */
+    @Test
+    public void toHashMapVersusRecursiveConverter() throws JSONException {
+        String[] names = {"1 KB", "4 KB", (JsonConverter.MAX_DEPTH - 1) + " nested arrays"};
+        JSONObject[] payloads = {
+            new JSONObject(payload(1024)),
+            new JSONObject(payload(4096)),
+            new JSONObject(nestedArrays(JsonConverter.MAX_DEPTH - 1)),
+        };
+        for (JSONObject json : payloads) {
+            assertEquals(recursiveToHashMap(json), JsonConverter.toHashMap(json));
+        }
+        int size = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (JSONObject json : payloads) {
+                size += JsonConverter.toHashMap(json).size();
+                size -= recursiveToHashMap(json).size();
+            }
+        }
+        for (int p = 0; p < payloads.length; p++) {
+            JSONObject json = payloads[p];
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                size += JsonConverter.toHashMap(json).size();
+            }
+            long iterative = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                size -= recursiveToHashMap(json).size();
+            }
+            long recursive = System.nanoTime() - start;
+            System.out.println("json: " + names[p] + ", toHashMap " + iterative / MEASURED_ROUNDS
+                    + " ns, recursive " + recursive / MEASURED_ROUNDS + " ns");
+        }
+
+        assertEquals(0, size);
+    }
+
+    /**
+     * Converts custom data nested far deeper than any real payload. toHashMap fails fast with its limit;
+     * prints how the recursive converter fares on the same tree.
+     */
+    @Test
+    public void pathologicalNesting() throws JSONException {
+        // Built directly; org.json's own parser recurses and would overflow first.
+        JSONArray outer = new JSONArray();
+        for (int i = 0; i < 100_000; i++) {
+            outer = new JSONArray().put(outer);
+        }
+        JSONObject json = new JSONObject().put("a", outer);
+
+        long start = System.nanoTime();
+        try {
+            JsonConverter.toHashMap(json);
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            System.out.println("json: 100000 nested arrays, toHashMap rejected them in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+        }
+
+        start = System.nanoTime();
+        String outcome;
+        try {
+            recursiveToHashMap(json);
+            outcome = "converted them";
+        } catch (StackOverflowError e) {
+            outcome = "overflowed the stack";
+        }
+        System.out.println("json: 100000 nested arrays, recursive " + outcome + " in "
+                + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    /**
+     * Prints the cost of turning 1 KB and 4 KB payload strings into maps, by parse and by org.json plus
+     * toHashMap. Timings vary by machine and aren't asserted.
+     */
+    @Test
+    public void parseVersusJsonObjectAndToHashMap() throws JSONException {
+        String[] payloads = {payload(1024), payload(4096)};
+        int size = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String json : payloads) {
+                size += ((HashMap<?, ?>) JsonConverter.parse(json)).size();
+                size -= JsonConverter.toHashMap(new JSONObject(json)).size();
+            }
+        }
+        for (String json : payloads) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                size += ((HashMap<?, ?>) JsonConverter.parse(json)).size();
+            }
+            long parsed = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                size -= JsonConverter.toHashMap(new JSONObject(json)).size();
+            }
+            long converted = System.nanoTime() - start;
+            System.out.println("json: " + json.length() + " B payload, parse " + parsed / MEASURED_ROUNDS
+                    + " ns, JSONObject + toHashMap " + converted / MEASURED_ROUNDS + " ns");
+        }
+
+        assertEquals(0, size);
+    }
+}
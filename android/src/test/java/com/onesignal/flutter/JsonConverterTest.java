@@ -0,0 +1,189 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, for Android's org.json rather than the throwing stubs in android.jar.
+@RunWith(RobolectricTestRunner.class)
+public class JsonConverterTest {
+
+    /** Custom notification data of about {@code bytes} characters: a few fields and an array of small items. */
+    static String payload(int bytes) {
+        StringBuilder json = new StringBuilder("{\"campaign\":\"spring-sale\",\"items\":[");
+        int i = 0;
+        while (json.length() < bytes - 40) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":")
+                    .append(i)
+                    .append(",\"sku\":\"SKU-")
+                    .append(1000 + i)
+                    .append("\",\"price\":")
+                    .append(i)
+                    .append(".99,\"tags\":[\"sale\",\"new\"],\"note\":null}");
+            i++;
+        }
+        return json.append("],\"count\":").append(i).append(",\"live\":true}").toString();
+    }
+
+    static String nestedArrays(int depth) {
+        StringBuilder json = new StringBuilder("{\"a\":");
+        for (int i = 0; i < depth; i++) json.append('[');
+        for (int i = 0; i < depth; i++) json.append(']');
+        return json.append('}').toString();
+    }
+
+    static String flatArray(int length) {
+        StringBuilder json = new StringBuilder("{\"a\":[");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) json.append(',');
+            json.append(i);
+        }
+        return json.append("]}").toString();
+    }
+
+    @Test
+    public void toHashMapCopiesValuesAndLeavesOutNullKeys() throws JSONException {
+        JSONObject json = new JSONObject()
+                .put("s", "x")
+                .put("i", 1)
+                .put("l", 3000000000L)
+                .put("d", 1.5)
+                .put("b", true)
+                .put("n", JSONObject.NULL)
+                .put("a", new JSONArray().put(1).put(JSONObject.NULL).put(new JSONObject().put("k", "v")));
+
+        HashMap<String, Object> map = JsonConverter.toHashMap(json);
+
+        assertEquals("x", map.get("s"));
+        assertEquals(1, map.get("i"));
+        assertEquals(3000000000L, map.get("l"));
+        assertEquals(1.5, map.get("d"));
+        assertEquals(true, map.get("b"));
+        assertFalse(map.containsKey("n"));
+        List<?> list = (List<?>) map.get("a");
+        assertEquals(3, list.size());
+        assertEquals(1, list.get(0));
+        assertNull(list.get(1));
+        assertEquals("v", ((HashMap<?, ?>) list.get(2)).get("k"));
+    }
+
+    @Test
+    public void toHashMapCopiesTypicalPayloads() throws JSONException {
+        for (int bytes : new int[] {1024, 4096}) {
+            JSONObject json = new JSONObject(payload(bytes));
+
+            HashMap<String, Object> map = JsonConverter.toHashMap(json);
+
+            assertEquals(json.getJSONArray("items").length(), ((List<?>) map.get("items")).size());
+            assertEquals(json.getInt("count"), map.get("count"));
+            HashMap<?, ?> first = (HashMap<?, ?>) ((List<?>) map.get("items")).get(0);
+            assertEquals(4, first.size());
+        }
+    }
+
+    @Test
+    public void toHashMapAcceptsNestingUpToTheLimit() throws JSONException {
+        // The root object is one level, so MAX_DEPTH - 1 arrays fit inside it.
+        JsonConverter.toHashMap(new JSONObject(nestedArrays(JsonConverter.MAX_DEPTH - 1)));
+
+        try {
+            JsonConverter.toHashMap(new JSONObject(nestedArrays(JsonConverter.MAX_DEPTH)));
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            assertTrue(expected.getMessage().contains("nested"));
+        }
+    }
+
+    @Test
+    public void toHashMapRejectsPathologicalNestingWithoutOverflowingTheStack() throws JSONException {
+        // Build the tree directly; org.json's own parser recurses and would overflow first.
+        JSONArray outer = new JSONArray();
+        for (int i = 0; i < 10_000; i++) {
+            outer = new JSONArray().put(outer);
+        }
+
+        try {
+            JsonConverter.toHashMap(new JSONObject().put("a", outer));
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            // Not a StackOverflowError.
+        }
+    }
+
+    @Test
+    public void toHashMapRejectsMoreValuesThanAPayloadCanHold() throws JSONException {
+        HashMap<String, Object> map = JsonConverter.toHashMap(new JSONObject(flatArray(JsonConverter.MAX_NODES - 2)));
+        assertEquals(JsonConverter.MAX_NODES - 2, ((List<?>) map.get("a")).size());
+
+        try {
+            JsonConverter.toHashMap(new JSONObject(flatArray(JsonConverter.MAX_NODES + 1)));
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            assertTrue(expected.getMessage().contains(String.valueOf(JsonConverter.MAX_NODES)));
+        }
+    }
+
+    @Test
+    public void parseProducesWhatToHashMapProduces() throws JSONException {
+        for (String json : new String[] {
+            payload(1024),
+            payload(4096),
+            "{\"i\":1,\"l\":3000000000,\"d\":1.5,\"e\":1e3,\"b\":false,\"n\":null,\"a\":[null,\"x\",{}]}",
+        }) {
+            assertEquals(JsonConverter.toHashMap(new JSONObject(json)), JsonConverter.parse(json));
+        }
+    }
+
+    @Test
+    public void parseReturnsArrayRootsAndRejectsScalarRoots() throws JSONException {
+        assertEquals(2, ((List<?>) JsonConverter.parse("[1,2]")).size());
+
+        for (String scalar : new String[] {"\"x\"", "1", "null"}) {
+            try {
+                JsonConverter.parse(scalar);
+                fail(scalar);
+            } catch (JSONException expected) {
+                assertFalse(expected instanceof JsonConverter.LimitExceededException);
+            }
+        }
+    }
+
+    @Test
+    public void parseRejectsPathologicalInputWithoutOverflowingTheStack() throws JSONException {
+        try {
+            JsonConverter.parse(nestedArrays(10_000));
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            assertTrue(expected.getMessage().contains("nested"));
+        }
+
+        try {
+            JsonConverter.parse(flatArray(JsonConverter.MAX_NODES + 1));
+            fail();
+        } catch (JsonConverter.LimitExceededException expected) {
+            assertTrue(expected.getMessage().contains(String.valueOf(JsonConverter.MAX_NODES)));
+        }
+    }
+
+    @Test
+    public void parseReportsMalformedJsonAsAJsonException() {
+        try {
+            JsonConverter.parse("{\"a\":");
+            fail();
+        } catch (JSONException expected) {
+            assertFalse(expected instanceof JsonConverter.LimitExceededException);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodCall;
+import java.util.HashMap;
+import org.junit.Test;
+
+/** Measures what reading startup state in one lane task saves. Runs with {@code -Pbenchmarks}. */
+public class LaneExecutorBenchmark {
+
+    // What OneSignal#snapshot collects in one lane task, and an app reads one getter at a time otherwise.
+    private static final String[] STARTUP_GETTERS = {
+        "OneSignal#permission",
+        "OneSignal#canRequest",
+        "OneSignal#pushSubscriptionId",
+        "OneSignal#pushSubscriptionToken",
+        "OneSignal#pushSubscriptionOptedIn",
+        "OneSignal#getOnesignalId",
+        "OneSignal#getExternalId",
+        "OneSignal#getTags",
+        "OneSignal#paused",
+        "OneSignal#isShared",
+    };
+
+    /**
+     * Reads the startup state as ten getter round trips, awaited one after another as Dart does, and as
+     * one snapshot task, and prints the cost of each. The getters answer with constants, so this is the
+     * lane overhead alone; SDK reads cost the same either way. Timings vary by machine and aren't asserted.
+     */
+    @Test
+    public void snapshotVersusSequentialGetters() throws InterruptedException {
+        TestResponder responder = new TestResponder(LaneExecutor.Lane.CORE);
+        for (String getter : STARTUP_GETTERS) {
+            responder.dispatcher.register(getter, (call, result) -> responder.replySuccess(result, getter));
+        }
+        responder.dispatcher.register("OneSignal#snapshot", (call, result) -> {
+            HashMap<String, Object> snapshot = new HashMap<>();
+            for (String getter : STARTUP_GETTERS) {
+                snapshot.put(getter, getter);
+            }
+            responder.replySuccess(result, snapshot);
+        });
+
+        for (int round = 0; round < 2_000; round++) {
+            readSequentially(responder);
+            readSnapshot(responder);
+        }
+        int rounds = 10_000;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            readSequentially(responder);
+        }
+        long sequential = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            readSnapshot(responder);
+        }
+        long snapshot = System.nanoTime() - start;
+        System.out.println("lanes: " + STARTUP_GETTERS.length + " sequential getters " + sequential / rounds
+                + " ns, one snapshot " + snapshot / rounds + " ns");
+
+        assertEquals(STARTUP_GETTERS.length, readSnapshot(responder).size());
+    }
+
+    private static void readSequentially(TestResponder responder) throws InterruptedException {
+        for (String getter : STARTUP_GETTERS) {
+            RecordingResult result = new RecordingResult();
+            LaneExecutor.submit(LaneExecutor.Lane.CORE, responder, new MethodCall(getter, null), result);
+            assertTrue(result.await());
+        }
+    }
+
+    private static HashMap<?, ?> readSnapshot(TestResponder responder) throws InterruptedException {
+        RecordingResult result = new RecordingResult();
+        LaneExecutor.submit(LaneExecutor.Lane.CORE, responder, new MethodCall("OneSignal#snapshot", null), result);
+        assertTrue(result.await());
+        return (HashMap<?, ?>) result.value;
+    }
+}
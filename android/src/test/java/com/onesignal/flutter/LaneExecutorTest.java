@@ -0,0 +1,274 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodCall;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Test;
+
+public class LaneExecutorTest {
+
+    private final List<Object> ran = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void restoreDefaults() {
+        LaneExecutor.configure(LaneExecutor.DEFAULT_CAPACITY, LaneExecutor.OverflowPolicy.REJECT.ordinal());
+    }
+
+    private TestResponder recordingResponder(LaneExecutor.Lane lane) {
+        TestResponder responder = new TestResponder(lane);
+        responder.dispatcher.register("record", (call, result) -> {
+            ran.add(call.arguments);
+            responder.replySuccess(result, call.arguments);
+        });
+        return responder;
+    }
+
+    @Test
+    public void callsOnOneLaneRunInSubmissionOrder() throws InterruptedException {
+        TestResponder responder = recordingResponder(LaneExecutor.Lane.LOCATION);
+        List<Object> expected = new ArrayList<>();
+        RecordingResult last = null;
+        for (int i = 0; i < 200; i++) {
+            last = new RecordingResult();
+            LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("record", i), last);
+            expected.add(i);
+        }
+
+        assertTrue(last.await());
+        assertEquals(expected, ran);
+    }
+
+    @Test
+    public void aBlockedLaneDoesNotHoldUpOtherLanes() throws InterruptedException {
+        CountDownLatch release = TestLanes.block(LaneExecutor.Lane.SESSION);
+        try {
+            TestResponder sessionResponder = recordingResponder(LaneExecutor.Lane.SESSION);
+            TestResponder locationResponder = recordingResponder(LaneExecutor.Lane.LOCATION);
+            RecordingResult behindBlock = new RecordingResult();
+            RecordingResult otherLane = new RecordingResult();
+
+            LaneExecutor.submit(
+                    LaneExecutor.Lane.SESSION, sessionResponder, new MethodCall("record", "session"), behindBlock);
+            LaneExecutor.submit(
+                    LaneExecutor.Lane.LOCATION, locationResponder, new MethodCall("record", "location"), otherLane);
+
+            assertTrue(otherLane.await());
+            assertFalse(behindBlock.isAnswered());
+        } finally {
+            release.countDown();
+        }
+        TestLanes.drain(LaneExecutor.Lane.SESSION);
+        assertEquals(2, ran.size());
+    }
+
+    @Test
+    public void aFailingCallIsAnsweredWithAnErrorAndTheLaneKeepsGoing() throws InterruptedException {
+        TestResponder responder = recordingResponder(LaneExecutor.Lane.LOCATION);
+        responder.dispatcher.register("fail", (call, result) -> {
+            throw new IllegalStateException("boom");
+        });
+        RecordingResult failed = new RecordingResult();
+        RecordingResult next = new RecordingResult();
+
+        LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("fail", null), failed);
+        LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("record", "after"), next);
+
+        assertTrue(next.await());
+        assertEquals("boom", failed.errorMessage);
+        assertEquals("after", next.value);
+    }
+
+    @Test
+    public void anUnknownMethodIsAnsweredNotImplemented() throws InterruptedException {
+        TestResponder responder = recordingResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult result = new RecordingResult();
+
+        LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("unknown", null), result);
+
+        assertTrue(result.await());
+        assertTrue(result.notImplemented);
+    }
+
+    @Test
+    public void internalWorkIsNotCountedAgainstCapacity() throws InterruptedException {
+        LaneExecutor.configure(1, LaneExecutor.OverflowPolicy.REJECT.ordinal());
+        TestResponder responder = recordingResponder(LaneExecutor.Lane.LOCATION);
+        CountDownLatch release = TestLanes.block(LaneExecutor.Lane.LOCATION);
+        RecordingResult accepted = new RecordingResult();
+        RecordingResult rejected = new RecordingResult();
+        try {
+            for (int i = 0; i < 10; i++) {
+                LaneExecutor.execute(LaneExecutor.Lane.LOCATION, () -> ran.add("internal"));
+            }
+            LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("record", "call"), accepted);
+            LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall("record", "over"), rejected);
+
+            assertTrue(rejected.isError());
+        } finally {
+            release.countDown();
+        }
+        assertTrue(accepted.await());
+        assertEquals(11, ran.size());
+    }
+
+    /** Registers a getter, a setter and a plain write, each recording the call it ran. */
+    private TestResponder overflowResponder(LaneExecutor.Lane lane) {
+        TestResponder responder = new TestResponder(lane);
+        MethodDispatcher.Handler record = (call, result) -> {
+            ran.add(call.method + ":" + call.arguments);
+            responder.replySuccess(result, call.arguments);
+        };
+        responder.dispatcher
+                .registerIdempotent("get", record)
+                .registerOverwriting("optIn", "optedIn", record)
+                .registerOverwriting("optOut", "optedIn", record)
+                .registerOverwriting("setLanguage", "language", record)
+                .register("addTags", record);
+        return responder;
+    }
+
+    private static RecordingResult submit(TestResponder responder, String method, Object arguments) {
+        RecordingResult result = new RecordingResult();
+        LaneExecutor.submit(LaneExecutor.Lane.LOCATION, responder, new MethodCall(method, arguments), result);
+        return result;
+    }
+
+    private void fillThenRun(int capacity, LaneExecutor.OverflowPolicy policy, Runnable fill)
+            throws InterruptedException {
+        LaneExecutor.configure(capacity, policy.ordinal());
+        CountDownLatch release = TestLanes.block(LaneExecutor.Lane.LOCATION);
+        try {
+            fill.run();
+        } finally {
+            release.countDown();
+        }
+        TestLanes.drain(LaneExecutor.Lane.LOCATION);
+    }
+
+    @Test
+    public void rejectAnswersTheNewCallWhenTheLaneIsFull() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[3];
+
+        fillThenRun(2, LaneExecutor.OverflowPolicy.REJECT, () -> {
+            results[0] = submit(responder, "get", 1);
+            results[1] = submit(responder, "get", 2);
+            results[2] = submit(responder, "get", 3);
+        });
+
+        assertTrue(results[2].isError());
+        assertEquals(Arrays.<Object>asList("get:1", "get:2"), ran);
+    }
+
+    @Test
+    public void dropOldestEvictsTheOldestGetterButNoWrite() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[4];
+
+        fillThenRun(3, LaneExecutor.OverflowPolicy.DROP_OLDEST, () -> {
+            results[0] = submit(responder, "setLanguage", "en");
+            results[1] = submit(responder, "get", 1);
+            results[2] = submit(responder, "addTags", "a");
+            results[3] = submit(responder, "get", 2);
+        });
+
+        assertTrue(results[1].isError());
+        assertEquals(Arrays.<Object>asList("setLanguage:en", "addTags:a", "get:2"), ran);
+    }
+
+    @Test
+    public void dropOldestRejectsTheNewCallWhenOnlyWritesArePending() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[3];
+
+        fillThenRun(2, LaneExecutor.OverflowPolicy.DROP_OLDEST, () -> {
+            results[0] = submit(responder, "setLanguage", "en");
+            results[1] = submit(responder, "optIn", null);
+            results[2] = submit(responder, "get", 1);
+        });
+
+        assertTrue(results[2].isError());
+        assertEquals(Arrays.<Object>asList("setLanguage:en", "optIn:null"), ran);
+    }
+
+    @Test
+    public void coalesceFoldsASetterIntoTheSameSetterAtTheTail() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[2];
+
+        fillThenRun(1, LaneExecutor.OverflowPolicy.COALESCE, () -> {
+            results[0] = submit(responder, "setLanguage", "en");
+            results[1] = submit(responder, "setLanguage", "fr");
+        });
+
+        assertEquals(Collections.<Object>singletonList("setLanguage:fr"), ran);
+        assertEquals("fr", results[0].value);
+        assertEquals("fr", results[1].value);
+    }
+
+    @Test
+    public void coalesceTreatsOptInAndOptOutAsOneSetter() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+
+        fillThenRun(1, LaneExecutor.OverflowPolicy.COALESCE, () -> {
+            submit(responder, "optIn", null);
+            submit(responder, "optOut", null);
+        });
+
+        assertEquals(Collections.<Object>singletonList("optOut:null"), ran);
+    }
+
+    @Test
+    public void coalesceNeverMovesACallAheadOfOnesQueuedAfterTheCallItWouldJoin() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[3];
+
+        fillThenRun(2, LaneExecutor.OverflowPolicy.COALESCE, () -> {
+            results[0] = submit(responder, "setLanguage", "en");
+            results[1] = submit(responder, "addTags", "a");
+            results[2] = submit(responder, "setLanguage", "fr");
+        });
+
+        assertTrue(results[2].isError());
+        assertEquals(Arrays.<Object>asList("setLanguage:en", "addTags:a"), ran);
+    }
+
+    @Test
+    public void coalesceJoinsGettersOnlyWithEqualArguments() throws InterruptedException {
+        TestResponder responder = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[3];
+
+        fillThenRun(1, LaneExecutor.OverflowPolicy.COALESCE, () -> {
+            results[0] = submit(responder, "get", "a");
+            results[1] = submit(responder, "get", "b");
+            results[2] = submit(responder, "get", "a");
+        });
+
+        assertTrue(results[1].isError());
+        assertEquals(Collections.<Object>singletonList("get:a"), ran);
+        assertEquals("a", results[2].value);
+    }
+
+    @Test
+    public void coalesceDoesNotJoinCallsToDifferentResponders() throws InterruptedException {
+        TestResponder first = overflowResponder(LaneExecutor.Lane.LOCATION);
+        TestResponder second = overflowResponder(LaneExecutor.Lane.LOCATION);
+        RecordingResult[] results = new RecordingResult[2];
+
+        fillThenRun(1, LaneExecutor.OverflowPolicy.COALESCE, () -> {
+            results[0] = submit(first, "setLanguage", "en");
+            results[1] = submit(second, "setLanguage", "fr");
+        });
+
+        assertTrue(results[1].isError());
+        assertEquals(Collections.<Object>singletonList("setLanguage:en"), ran);
+    }
+}
@@ -0,0 +1,77 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+
+import io.flutter.plugin.common.MethodCall;
+import org.junit.Test;
+
+/** Compares table dispatch with the contentEquals chains it replaced. Runs with {@code -Pbenchmarks}. */
+public class MethodDispatcherBenchmark {
+
+    private static final String[] USER_METHODS = MethodDispatcherTest.USER_METHODS;
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 200_000;
+
+    private final int[] handled = new int[USER_METHODS.length];
+
+    /** What dispatch looked like before the table: one contentEquals per registered method. */
+    private boolean dispatchByChain(MethodCall call) {
+        for (int i = 0; i < USER_METHODS.length; i++) {
+            if (call.method.contentEquals(USER_METHODS[i])) {
+                handled[i]++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dispatches every user method in turn through the table and through the old chain, and prints the
+     * cost per call of each. Timings vary by machine, so only the dispatch counts are asserted.
+     */
+    @Test
+    public void tableVersusContentEqualsChain() {
+        MethodDispatcher dispatcher = new MethodDispatcher();
+        for (int i = 0; i < USER_METHODS.length; i++) {
+            final int index = i;
+            dispatcher.register(USER_METHODS[i], (call, result) -> handled[index]++);
+        }
+        MethodCall[] calls = new MethodCall[USER_METHODS.length];
+        for (int i = 0; i < calls.length; i++) {
+            // Fresh strings, as the engine decodes a new one for every call.
+            calls[i] = new MethodCall(new String(USER_METHODS[i].toCharArray()), null);
+        }
+        RecordingResult result = new RecordingResult();
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (MethodCall call : calls) {
+                dispatcher.dispatch(call, result);
+                dispatchByChain(call);
+            }
+        }
+
+        long tableStart = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (MethodCall call : calls) {
+                dispatcher.dispatch(call, result);
+            }
+        }
+        long tableNanos = System.nanoTime() - tableStart;
+
+        long chainStart = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (MethodCall call : calls) {
+                dispatchByChain(call);
+            }
+        }
+        long chainNanos = System.nanoTime() - chainStart;
+
+        long dispatched = (long) MEASURED_ROUNDS * calls.length;
+        System.out.printf(
+                "dispatch over %d methods: table %.1f ns/call, contentEquals chain %.1f ns/call%n",
+                calls.length, (double) tableNanos / dispatched, (double) chainNanos / dispatched);
+        for (int count : handled) {
+            assertEquals(2 * (WARMUP_ROUNDS + MEASURED_ROUNDS), count);
+        }
+    }
+}
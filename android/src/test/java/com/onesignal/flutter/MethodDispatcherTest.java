@@ -0,0 +1,92 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodCall;
+import org.junit.Test;
+
+public class MethodDispatcherTest {
+
+    // OneSignalUser's methods, in the order its contentEquals chain checked them before the table.
+    static final String[] USER_METHODS = {
+        "OneSignal#setLanguage",
+        "OneSignal#getOnesignalId",
+        "OneSignal#getExternalId",
+        "OneSignal#addAliases",
+        "OneSignal#removeAliases",
+        "OneSignal#addEmail",
+        "OneSignal#removeEmail",
+        "OneSignal#addSms",
+        "OneSignal#removeSms",
+        "OneSignal#addTags",
+        "OneSignal#removeTags",
+        "OneSignal#getTags",
+        "OneSignal#lifecycleInit",
+        "OneSignal#trackEvent",
+    };
+
+    private final int[] handled = new int[USER_METHODS.length];
+
+    private MethodDispatcher userDispatcher() {
+        MethodDispatcher dispatcher = new MethodDispatcher();
+        for (int i = 0; i < USER_METHODS.length; i++) {
+            final int index = i;
+            dispatcher.register(USER_METHODS[i], (call, result) -> handled[index]++);
+        }
+        return dispatcher;
+    }
+
+    @Test
+    public void dispatchRunsTheHandlerRegisteredForTheMethod() {
+        MethodDispatcher dispatcher = userDispatcher();
+
+        for (String method : USER_METHODS) {
+            assertTrue(dispatcher.dispatch(new MethodCall(method, null), new RecordingResult()));
+        }
+
+        for (int count : handled) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void dispatchLeavesUnknownMethodsToTheCaller() {
+        MethodDispatcher dispatcher = userDispatcher();
+
+        assertFalse(dispatcher.dispatch(new MethodCall("OneSignal#unknown", null), new RecordingResult()));
+        assertFalse(dispatcher.handles("OneSignal#unknown"));
+        assertTrue(dispatcher.handles("OneSignal#trackEvent"));
+    }
+
+    @Test
+    public void aLaterRegistrationReplacesAnEarlierOne() {
+        MethodDispatcher dispatcher = new MethodDispatcher();
+        RecordingResult result = new RecordingResult();
+        dispatcher.register("OneSignal#getTags", (call, reply) -> reply.success("first"));
+        dispatcher.register("OneSignal#getTags", (call, reply) -> reply.success("second"));
+
+        dispatcher.dispatch(new MethodCall("OneSignal#getTags", null), result);
+
+        assertEquals("second", result.value);
+    }
+
+    @Test
+    public void onlyGettersAreDroppableAndSettersCoalesceByTheirKey() {
+        MethodDispatcher dispatcher = new MethodDispatcher()
+                .registerIdempotent("OneSignal#getTags", (call, reply) -> {})
+                .registerOverwriting("OneSignal#optIn", "optedIn", (call, reply) -> {})
+                .registerOverwriting("OneSignal#optOut", "optedIn", (call, reply) -> {})
+                .register("OneSignal#addTags", (call, reply) -> {});
+
+        assertTrue(dispatcher.isDroppable("OneSignal#getTags"));
+        assertFalse(dispatcher.isDroppable("OneSignal#optIn"));
+        assertFalse(dispatcher.isDroppable("OneSignal#addTags"));
+        assertEquals("OneSignal#getTags", dispatcher.coalescingKey("OneSignal#getTags"));
+        assertEquals("optedIn", dispatcher.coalescingKey("OneSignal#optIn"));
+        assertEquals("optedIn", dispatcher.coalescingKey("OneSignal#optOut"));
+        assertNull(dispatcher.coalescingKey("OneSignal#addTags"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.onesignal.notifications.INotification;
+import com.onesignal.notifications.INotificationWillDisplayEvent;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, so events sent to Dart run on the main thread straight away.
+@RunWith(RobolectricTestRunner.class)
+public class OneSignalNotificationsTest {
+
+    private static final int NOTIFICATIONS = 100_000;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong displayed = new AtomicLong();
+
+    @After
+    public void tearDown() {
+        OneSignalNotifications.reset();
+    }
+
+    /** Counts the events sent to Dart and ignores everything else. */
+    private BinaryMessenger messenger() {
+        return (BinaryMessenger) Proxy.newProxyInstance(
+                BinaryMessenger.class.getClassLoader(),
+                new Class<?>[] {BinaryMessenger.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("send")) sent.incrementAndGet();
+                    return null;
+                });
+    }
+
+    private INotificationWillDisplayEvent willDisplay(String notificationId) {
+        INotification notification = (INotification) Proxy.newProxyInstance(
+                INotification.class.getClassLoader(), new Class<?>[] {INotification.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getNotificationId":
+                            return notificationId;
+                        case "getTitle":
+                            return "Title " + notificationId;
+                        case "display":
+                            displayed.incrementAndGet();
+                            return null;
+                        default:
+                            Class<?> type = method.getReturnType();
+                            if (type == int.class) return 0;
+                            if (type == long.class) return 0L;
+                            if (type == boolean.class) return false;
+                            return null;
+                    }
+                });
+        return (INotificationWillDisplayEvent) Proxy.newProxyInstance(
+                INotificationWillDisplayEvent.class.getClassLoader(),
+                new Class<?>[] {INotificationWillDisplayEvent.class},
+                (proxy, method, args) -> method.getName().equals("getNotification") ? notification : null);
+    }
+
+    private static void decide(OneSignalNotifications notifications, String method, String notificationId) {
+        notifications.onMethodCall(
+                new MethodCall(method, Collections.singletonMap("notificationId", notificationId)),
+                new RecordingResult());
+    }
+
+    /**
+     * Sends 100k foreground notifications. Dart displays a third of them, prevents a third and never answers
+     * for the rest. However they end, the caches stay within their capacity.
+     */
+    @Test
+    public void willDisplayCachesStayBoundedUnderSustainedNotifications() {
+        OneSignalNotifications notifications = OneSignalNotifications.registerWith(messenger());
+
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            String notificationId = "notification-" + i;
+            notifications.onWillDisplay(willDisplay(notificationId));
+            if (i % 3 == 0) decide(notifications, "OneSignal#proceedWithWillDisplay", notificationId);
+            else if (i % 3 == 1) decide(notifications, "OneSignal#preventDefault", notificationId);
+        }
+
+        HashMap<String, Object> metrics = notifications.willDisplayCacheMetrics();
+        @SuppressWarnings("unchecked")
+        HashMap<String, Object> prevented = (HashMap<String, Object>) metrics.get("prevented");
+
+        assertEquals(NOTIFICATIONS, sent.get());
+        assertEquals((NOTIFICATIONS + 2) / 3, displayed.get());
+        int capacity = OneSignalNotifications.DEFAULT_WILL_DISPLAY_CACHE_SIZE;
+        assertTrue((Integer) metrics.get("size") <= capacity);
+        assertTrue((Integer) prevented.get("size") <= capacity);
+        assertTrue((Integer) notifications.convertedCacheMetrics().get("size")
+                <= OneSignalNotifications.DEFAULT_CONVERTED_CACHE_SIZE);
+    }
+
+    @Test
+    public void configuringTheBridgeKeepsOptionsForTheResponderInsteadOfCreatingIt() {
+        OneSignalNotifications.reset();
+        HashMap<String, Object> options = new HashMap<>();
+        options.put("willDisplayCacheSize", 8);
+        options.put("notificationMapCacheTtlMs", 5_000_000_000L);
+        options.put("willDisplayDeadlineMs", 250);
+
+        OneSignalNotifications.configure(options);
+        OneSignalNotifications.configure(Collections.<String, Object>singletonMap("willDisplayDeadlineMs", 500));
+
+        assertNull(OneSignalNotifications.getSharedInstanceIfCreated());
+        OneSignalNotifications notifications = OneSignalNotifications.getSharedInstance();
+        assertEquals(8, notifications.willDisplayCacheMetrics().get("capacity"));
+        assertEquals(5_000_000_000L, notifications.convertedCacheMetrics().get("ttlMs"));
+        assertEquals(500, notifications.displayDeadlineMetrics().get("deadlineMs"));
+
+        OneSignalNotifications.configure(Collections.<String, Object>singletonMap("willDisplayCacheSize", 16));
+        assertEquals(16, notifications.willDisplayCacheMetrics().get("capacity"));
+    }
+
+    @Test
+    public void displayingFromDartDisarmsTheDeadline() {
+        OneSignalNotifications notifications = OneSignalNotifications.registerWith(messenger());
+        notifications.configureDisplayDeadline(60_000, DisplayDeadline.POLICY_SUPPRESS);
+        notifications.onWillDisplay(willDisplay("notification"));
+        decide(notifications, "OneSignal#preventDefault", "notification");
+
+        decide(notifications, "OneSignal#displayNotification", "notification");
+
+        assertEquals(1, displayed.get());
+        HashMap<String, Object> deadline = notifications.displayDeadlineMetrics();
+        assertEquals(0, deadline.get("pending"));
+        assertEquals(1L, deadline.get("decided"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import com.onesignal.notifications.IActionButton;
+import com.onesignal.notifications.INotification;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.Test;
+
+/** Compares convertNotificationToMap with the converter it replaced. Runs with {@code -Pbenchmarks}. */
+public class OneSignalSerializerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 10_000;
+    private static final int MEASURED_ROUNDS = 20_000;
+
+    /** convertNotificationToMap as it was before the serializer read each getter once and sized its map. */
+    static HashMap<String, Object> baselineConvertNotificationToMap(INotification notification)
+            throws JSONException {
+        HashMap<String, Object> hash = new HashMap<>();
+
+        hash.put("androidNotificationId", notification.getAndroidNotificationId());
+
+        if (notification.getGroupedNotifications() != null) {
+            hash.put("groupKey", notification.getGroupKey());
+            hash.put("groupMessage", notification.getGroupMessage());
+            hash.put("groupedNotifications", notification.getGroupedNotifications());
+        }
+
+        hash.put("notificationId", notification.getNotificationId());
+        hash.put("title", notification.getTitle());
+
+        if (notification.getBody() != null) hash.put("body", notification.getBody());
+        if (notification.getSmallIcon() != null) hash.put("smallIcon", notification.getSmallIcon());
+        if (notification.getLargeIcon() != null) hash.put("largeIcon", notification.getLargeIcon());
+        if (notification.getBigPicture() != null) hash.put("bigPicture", notification.getBigPicture());
+        if (notification.getSmallIconAccentColor() != null)
+            hash.put("smallIconAccentColor", notification.getSmallIconAccentColor());
+        if (notification.getLaunchURL() != null) hash.put("launchUrl", notification.getLaunchURL());
+        if (notification.getSound() != null) hash.put("sound", notification.getSound());
+        if (notification.getLedColor() != null) hash.put("ledColor", notification.getLedColor());
+        hash.put("lockScreenVisibility", notification.getLockScreenVisibility());
+        if (notification.getGroupKey() != null) hash.put("groupKey", notification.getGroupKey());
+        if (notification.getGroupMessage() != null) hash.put("groupMessage", notification.getGroupMessage());
+        if (notification.getFromProjectNumber() != null)
+            hash.put("fromProjectNumber", notification.getFromProjectNumber());
+        if (notification.getCollapseId() != null) hash.put("collapseId", notification.getCollapseId());
+        hash.put("priority", notification.getPriority());
+        if (notification.getAdditionalData() != null
+                && notification.getAdditionalData().length() > 0)
+            hash.put(
+                    "additionalData", JsonConverterBenchmark.recursiveToHashMap(notification.getAdditionalData()));
+        if (notification.getActionButtons() != null) {
+            hash.put("buttons", baselineConvertActionButtonsToMap(notification.getActionButtons()));
+        }
+        hash.put("rawPayload", notification.getRawPayload());
+        return hash;
+    }
+
+    private static List<HashMap<String, Object>> baselineConvertActionButtonsToMap(List<IActionButton> buttons) {
+        List<HashMap<String, Object>> convertedList = new ArrayList<HashMap<String, Object>>();
+        for (IActionButton actionButton : buttons) {
+            HashMap<String, Object> hash = new HashMap<>();
+            hash.put("id", actionButton.getId());
+            hash.put("text", actionButton.getText());
+            hash.put("icon", actionButton.getIcon());
+            convertedList.add(hash);
+        }
+        return convertedList;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private interface Converter {
+        HashMap<String, Object> convert(INotification notification) throws JSONException;
+    }
+
+    /** Bytes allocated and nanoseconds spent per conversion, averaged over the measured rounds. */
+    private static long[] measure(
+            com.sun.management.ThreadMXBean threads, Converter converter, INotification notification)
+            throws JSONException {
+        // Keep every map reachable so none of them is optimized away.
+        HashMap<?, ?>[] maps = new HashMap<?, ?>[MEASURED_ROUNDS];
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            maps[i] = converter.convert(notification);
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        return new long[] {bytes / MEASURED_ROUNDS, nanos / MEASURED_ROUNDS};
+    }
+
+    /**
+     * Converts the same notification with both converters and prints the bytes and time each takes. Timings
+     * and allocation vary by JVM, so only the equality of the two maps is asserted.
+     */
+    @Test
+    public void convertNotificationToMapVersusBaseline() throws Exception {
+        com.sun.management.ThreadMXBean threads = threads();
+        INotification notification = OneSignalSerializerTest.notification();
+        Converter current = OneSignalSerializer::convertNotificationToMap;
+        Converter baseline = OneSignalSerializerBenchmark::baselineConvertNotificationToMap;
+
+        HashMap<String, Object> expected = baseline.convert(notification);
+        assertEquals(expected, current.convert(notification));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            current.convert(notification);
+            baseline.convert(notification);
+        }
+        long[] ours = measure(threads, current, notification);
+        long[] theirs = measure(threads, baseline, notification);
+        System.out.println("serializer: convertNotificationToMap, " + expected.size() + " entries: "
+                + ours[0] + " B and " + ours[1] + " ns, baseline " + theirs[0] + " B and " + theirs[1] + " ns");
+    }
+}
@@ -0,0 +1,55 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.onesignal.notifications.INotification;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import org.junit.Test;
+
+public class OneSignalSerializerTest {
+
+    /** A notification whose String getters return their own name and whose other getters return nothing. */
+    static INotification notification() {
+        return (INotification) Proxy.newProxyInstance(
+                INotification.class.getClassLoader(), new Class<?>[] {INotification.class}, (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == String.class) return method.getName();
+                    if (type == int.class) return 1;
+                    if (type == long.class) return 1L;
+                    return null;
+                });
+    }
+
+    @Test
+    public void convertNotificationToMapCarriesEveryPresentField() throws Exception {
+        HashMap<String, Object> map = OneSignalSerializer.convertNotificationToMap(notification());
+
+        assertEquals("getNotificationId", map.get("notificationId"));
+        assertEquals("getBody", map.get("body"));
+        assertEquals("getLaunchURL", map.get("launchUrl"));
+        assertEquals("getGroupKey", map.get("groupKey"));
+        assertEquals("getRawPayload", map.get("rawPayload"));
+        assertEquals(1, map.get("priority"));
+        assertFalse(map.containsKey("additionalData"));
+        assertFalse(map.containsKey("buttons"));
+        assertFalse(map.containsKey("payloadDeferred"));
+    }
+
+    @Test
+    public void convertNotificationToMapDefersThePayloadWhenAsked() throws Exception {
+        HashMap<String, Object> map = OneSignalSerializer.convertNotificationToMap(notification(), false);
+
+        assertEquals(true, map.get("payloadDeferred"));
+        assertFalse(map.containsKey("rawPayload"));
+    }
+
+    @Test
+    public void setNullIfEmptyTurnsEmptyAndMissingStringsIntoNull() {
+        assertNull(OneSignalSerializer.setNullIfEmpty(""));
+        assertNull(OneSignalSerializer.setNullIfEmpty(null));
+        assertEquals("en", OneSignalSerializer.setNullIfEmpty("en"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodCall;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, for the main-thread handler the window is timed on, and because parking asks the SDK
+// whether it was initialized natively.
+@RunWith(RobolectricTestRunner.class)
+public class OutcomeAggregatorTest {
+
+    @Before
+    public void setUp() {
+        PreInitCallQueue.reset();
+        OutcomeAggregator.configure(true, null);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        OutcomeAggregator.configure(false, null);
+        TestLanes.drain(LaneExecutor.Lane.SESSION);
+        PreInitCallQueue.reset();
+    }
+
+    private static long deduplicated() {
+        return (Long) OutcomeAggregator.metrics().get("uniqueDeduplicated");
+    }
+
+    @Test
+    public void aUniqueOutcomeIsForwardedOncePerSession() {
+        long before = deduplicated();
+
+        assertFalse(OutcomeAggregator.isDuplicateUnique("purchase"));
+        assertTrue(OutcomeAggregator.isDuplicateUnique("purchase"));
+        assertFalse(OutcomeAggregator.isDuplicateUnique("signup"));
+
+        assertEquals(1, deduplicated() - before);
+    }
+
+    @Test
+    public void aNewSessionForwardsUniqueOutcomesAgain() {
+        OutcomeAggregator.isDuplicateUnique("purchase");
+
+        OutcomeAggregator.startSession();
+
+        assertFalse(OutcomeAggregator.isDuplicateUnique("purchase"));
+    }
+
+    @Test
+    public void nothingIsDeduplicatedWhileAggregationIsOff() {
+        OutcomeAggregator.isDuplicateUnique("purchase");
+
+        OutcomeAggregator.configure(false, null);
+        assertFalse(OutcomeAggregator.isDuplicateUnique("purchase"));
+        assertFalse(OutcomeAggregator.isDuplicateUnique("purchase"));
+
+        // Turning it off also forgot what was sent.
+        OutcomeAggregator.configure(true, null);
+        assertFalse(OutcomeAggregator.isDuplicateUnique("purchase"));
+    }
+
+    @Test
+    public void emptyNamesAreLeftForTheLaneToReject() {
+        assertFalse(OutcomeAggregator.isDuplicateUnique(""));
+        assertFalse(OutcomeAggregator.isDuplicateUnique(""));
+        assertFalse(OutcomeAggregator.isDuplicateUnique(null));
+    }
+
+    @Test
+    public void aDuplicateIsAnsweredWithoutWaitingForInitialize() {
+        OneSignalSession session = OneSignalSession.getSharedInstance();
+        RecordingResult first = new RecordingResult();
+        RecordingResult duplicate = new RecordingResult();
+
+        session.onMethodCall(new MethodCall("OneSignal#addUniqueOutcome", "purchase"), first);
+        session.onMethodCall(new MethodCall("OneSignal#addUniqueOutcome", "purchase"), duplicate);
+
+        assertFalse(first.isAnswered());
+        assertTrue(duplicate.isAnswered());
+        assertEquals(1, PreInitCallQueue.metrics().get("depth"));
+        PreInitCallQueue.failParked("not initialized");
+        assertTrue(first.isError());
+    }
+}
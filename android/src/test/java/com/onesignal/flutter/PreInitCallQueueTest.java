@@ -0,0 +1,171 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodCall;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, since parking asks the SDK whether it was initialized natively.
+@RunWith(RobolectricTestRunner.class)
+public class PreInitCallQueueTest {
+
+    private static final LaneExecutor.Lane LANE = LaneExecutor.Lane.LOCATION;
+
+    private final List<Object> ran = Collections.synchronizedList(new ArrayList<>());
+    private TestResponder responder;
+
+    @Before
+    public void setUp() {
+        PreInitCallQueue.reset();
+        responder = new TestResponder(LANE);
+        responder.dispatcher.register("record", (call, result) -> {
+            ran.add(call.arguments);
+            responder.replySuccess(result, null);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        PreInitCallQueue.reset();
+    }
+
+    private RecordingResult park(Object argument) {
+        RecordingResult result = new RecordingResult();
+        assertTrue(PreInitCallQueue.park(responder, new MethodCall("record", argument), result));
+        return result;
+    }
+
+    @Test
+    public void parkedCallsRunInArrivalOrderOnceReleased() throws InterruptedException {
+        park(1);
+        park(2);
+        park(3);
+        TestLanes.drain(LANE);
+        assertTrue(ran.isEmpty());
+
+        PreInitCallQueue.release();
+        TestLanes.drain(LANE);
+
+        assertEquals(Arrays.<Object>asList(1, 2, 3), ran);
+        assertEquals(3L, PreInitCallQueue.metrics().get("replayed"));
+    }
+
+    @Test
+    public void callsAfterReleaseAreNotParked() {
+        PreInitCallQueue.release();
+
+        assertFalse(PreInitCallQueue.park(responder, new MethodCall("record", 1), new RecordingResult()));
+    }
+
+    @Test
+    public void rejectAnswersTheNewCallWhenFull() throws InterruptedException {
+        PreInitCallQueue.configure(2, PreInitCallQueue.OverflowPolicy.REJECT.ordinal());
+        park(1);
+        park(2);
+
+        RecordingResult rejected = park(3);
+
+        assertTrue(rejected.isError());
+        PreInitCallQueue.release();
+        TestLanes.drain(LANE);
+        assertEquals(Arrays.<Object>asList(1, 2), ran);
+    }
+
+    @Test
+    public void dropOldestAnswersTheOldestCallWhenFull() throws InterruptedException {
+        PreInitCallQueue.configure(2, PreInitCallQueue.OverflowPolicy.DROP_OLDEST.ordinal());
+        RecordingResult oldest = park(1);
+        park(2);
+
+        park(3);
+
+        assertTrue(oldest.isError());
+        PreInitCallQueue.release();
+        TestLanes.drain(LANE);
+        assertEquals(Arrays.<Object>asList(2, 3), ran);
+    }
+
+    @Test
+    public void passThroughLetsTheNewCallRunWhenFull() {
+        PreInitCallQueue.configure(1, PreInitCallQueue.OverflowPolicy.PASS_THROUGH.ordinal());
+        park(1);
+
+        assertFalse(PreInitCallQueue.park(responder, new MethodCall("record", 2), new RecordingResult()));
+        assertEquals(1L, PreInitCallQueue.metrics().get("passedThrough"));
+    }
+
+    @Test
+    public void growingKeepsParkedCallsInOrderAcrossTheRingsEnd() throws InterruptedException {
+        PreInitCallQueue.configure(2, PreInitCallQueue.OverflowPolicy.DROP_OLDEST.ordinal());
+        park(1);
+        park(2);
+        // Moves the ring's head off slot 0, so the parked calls wrap around its end.
+        park(3);
+
+        PreInitCallQueue.configure(4, null);
+        park(4);
+        park(5);
+        PreInitCallQueue.release();
+        TestLanes.drain(LANE);
+
+        assertEquals(Arrays.<Object>asList(2, 3, 4, 5), ran);
+    }
+
+    @Test
+    public void failingParkedCallsAnswersThemAndKeepsTheQueueClosed() throws InterruptedException {
+        RecordingResult first = park(1);
+        RecordingResult second = park(2);
+
+        PreInitCallQueue.failParked("init failed");
+
+        assertEquals("init failed", first.errorMessage);
+        assertEquals("init failed", second.errorMessage);
+        RecordingResult retried = park(3);
+        PreInitCallQueue.release();
+        assertTrue(retried.await());
+        assertEquals(Collections.<Object>singletonList(3), ran);
+    }
+
+    /**
+     * Dart may call a module right after an unawaited {@code OneSignal.initialize}, as the migration guide
+     * shows for requestPermission. Those calls must wait for initialization instead of reaching the SDK.
+     */
+    @Test
+    public void moduleCallsMadeBeforeInitializeFinishesWaitForIt() throws InterruptedException {
+        HashMap<String, Object> fallback = new HashMap<>();
+        fallback.put("fallbackToSettings", true);
+        RecordingResult permission = new RecordingResult();
+        RecordingResult optIn = new RecordingResult();
+        RecordingResult shared = new RecordingResult();
+
+        OneSignalNotifications.getSharedInstance()
+                .onMethodCall(new MethodCall("OneSignal#requestPermission", fallback), permission);
+        OneSignalPushSubscription.getSharedInstance().onMethodCall(new MethodCall("OneSignal#optIn", null), optIn);
+        OneSignalLocation.getSharedInstance().onMethodCall(new MethodCall("OneSignal#setShared", true), shared);
+        TestLanes.drain(LaneExecutor.Lane.NOTIFICATIONS);
+        TestLanes.drain(LaneExecutor.Lane.PUSH_SUBSCRIPTION);
+        TestLanes.drain(LaneExecutor.Lane.LOCATION);
+
+        assertEquals(3, PreInitCallQueue.metrics().get("depth"));
+        assertFalse(permission.isAnswered());
+        assertFalse(optIn.isAnswered());
+        assertFalse(shared.isAnswered());
+
+        PreInitCallQueue.failParked("init failed");
+
+        assertEquals("init failed", permission.errorMessage);
+        assertEquals("init failed", optIn.errorMessage);
+        assertEquals("init failed", shared.errorMessage);
+    }
+}
@@ -0,0 +1,57 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.MethodChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Records how a call was answered, and lets a test wait for the answer. */
+final class RecordingResult implements MethodChannel.Result {
+
+    private final CountDownLatch answered = new CountDownLatch(1);
+    private final AtomicInteger replies = new AtomicInteger();
+
+    volatile Object value;
+    volatile String errorMessage;
+    volatile boolean notImplemented;
+
+    @Override
+    public void success(Object result) {
+        value = result;
+        answer();
+    }
+
+    @Override
+    public void error(String errorCode, String message, Object errorDetails) {
+        errorMessage = message;
+        answer();
+    }
+
+    @Override
+    public void notImplemented() {
+        notImplemented = true;
+        answer();
+    }
+
+    private void answer() {
+        replies.incrementAndGet();
+        answered.countDown();
+    }
+
+    /** @return false if the call wasn't answered within five seconds. */
+    boolean await() throws InterruptedException {
+        return answered.await(5, TimeUnit.SECONDS);
+    }
+
+    boolean isAnswered() {
+        return answered.getCount() == 0;
+    }
+
+    boolean isError() {
+        return errorMessage != null;
+    }
+
+    int replies() {
+        return replies.get();
+    }
+}
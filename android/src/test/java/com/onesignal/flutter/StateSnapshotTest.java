@@ -0,0 +1,141 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Every write a test starts is answered before it ends, since pending writes outlive configure(false).
+public class StateSnapshotTest {
+
+    private final TestResponder responder = new TestResponder(LaneExecutor.Lane.USER);
+
+    @Before
+    public void setUp() {
+        StateSnapshot.configure(true);
+    }
+
+    @After
+    public void tearDown() {
+        StateSnapshot.configure(false);
+    }
+
+    /** What a read through the cache answers, or null if the cache couldn't answer it. */
+    private RecordingResult read(String getter) {
+        RecordingResult result = new RecordingResult();
+        return StateSnapshot.answer(responder, getter, result) ? result : null;
+    }
+
+    private static void fill(String getter, Object value) {
+        StateSnapshot.fill(getter, StateSnapshot.generation(getter), value);
+    }
+
+    @Test
+    public void aGetterIsAnsweredOnceALaneReadFillsIt() {
+        assertNull(read(StateSnapshot.TAGS));
+
+        fill(StateSnapshot.TAGS, "tags");
+
+        assertEquals("tags", read(StateSnapshot.TAGS).value);
+    }
+
+    @Test
+    public void aLaneReadThatRacedAnUpdateIsNotStored() {
+        long generation = StateSnapshot.generation(StateSnapshot.EXTERNAL_ID);
+
+        StateSnapshot.onUserState("onesignal-id", "new");
+        StateSnapshot.fill(StateSnapshot.EXTERNAL_ID, generation, "old");
+
+        assertEquals("new", read(StateSnapshot.EXTERNAL_ID).value);
+    }
+
+    @Test
+    public void aUserChangeInvalidatesTags() {
+        fill(StateSnapshot.TAGS, "tags");
+
+        StateSnapshot.onUserState("onesignal-id", "external-id");
+
+        assertNull(read(StateSnapshot.TAGS));
+    }
+
+    @Test
+    public void aWriteInvalidatesItsGettersAsSoonAsItIsReceived() {
+        fill(StateSnapshot.TAGS, "tags");
+        fill(StateSnapshot.EXTERNAL_ID, "external-id");
+
+        Result write = StateSnapshot.trackWrite("OneSignal#addTags", new RecordingResult());
+
+        assertNull(read(StateSnapshot.TAGS));
+        assertEquals("external-id", read(StateSnapshot.EXTERNAL_ID).value);
+        write.success(null);
+    }
+
+    @Test
+    public void nothingRevalidatesAGetterWhileAWriteToItIsPending() {
+        RecordingResult caller = new RecordingResult();
+        Result write = StateSnapshot.trackWrite("OneSignal#optIn", caller);
+
+        StateSnapshot.onPushSubscriptionState("id", "token", false);
+        fill(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, false);
+
+        assertNull(read(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN));
+        assertEquals("id", read(StateSnapshot.PUSH_SUBSCRIPTION_ID).value);
+
+        write.success(null);
+
+        assertTrue(caller.isAnswered());
+        fill(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN, true);
+        assertEquals(true, read(StateSnapshot.PUSH_SUBSCRIPTION_OPTED_IN).value);
+    }
+
+    @Test
+    public void aLaneReadStartedDuringAWriteIsNotStoredAfterIt() {
+        Result write = StateSnapshot.trackWrite("OneSignal#logout", new RecordingResult());
+        long generation = StateSnapshot.generation(StateSnapshot.EXTERNAL_ID);
+
+        write.error("OneSignal", "failed", null);
+        StateSnapshot.fill(StateSnapshot.EXTERNAL_ID, generation, "from before the logout");
+
+        assertNull(read(StateSnapshot.EXTERNAL_ID));
+    }
+
+    @Test
+    public void aWriteAnsweredTwiceEndsOnce() {
+        Result first = StateSnapshot.trackWrite("OneSignal#removeTags", new RecordingResult());
+        Result second = StateSnapshot.trackWrite("OneSignal#addTags", new RecordingResult());
+
+        first.success(null);
+        first.notImplemented();
+        fill(StateSnapshot.TAGS, "tags");
+
+        assertNull(read(StateSnapshot.TAGS));
+        second.success(null);
+        fill(StateSnapshot.TAGS, "tags");
+        assertEquals("tags", read(StateSnapshot.TAGS).value);
+    }
+
+    @Test
+    public void callsThatChangeNoGetterAreNotTracked() {
+        RecordingResult result = new RecordingResult();
+
+        assertSame(result, StateSnapshot.trackWrite("OneSignal#setLanguage", result));
+    }
+
+    @Test
+    public void turningTheCacheOffDropsItsValuesAndStopsTracking() {
+        fill(StateSnapshot.TAGS, "tags");
+
+        StateSnapshot.configure(false);
+
+        assertNull(read(StateSnapshot.TAGS));
+        RecordingResult result = new RecordingResult();
+        assertSame(result, StateSnapshot.trackWrite("OneSignal#addTags", result));
+        StateSnapshot.configure(true);
+        assertNull(read(StateSnapshot.TAGS));
+    }
+}
@@ -0,0 +1,107 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, for the main-thread handler the window is timed on. The window never ends during a test;
+// each one takes the batch itself rather than letting a flush apply it to the SDK.
+@RunWith(RobolectricTestRunner.class)
+public class TagWriteBufferTest {
+
+    @Before
+    public void setUp() {
+        TagWriteBuffer.take();
+        TagWriteBuffer.configure(true, 60_000);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TagWriteBuffer.take();
+        TagWriteBuffer.configure(null, TagWriteBuffer.DEFAULT_WINDOW_MS);
+        disable();
+    }
+
+    /** Turns buffering off and waits for the flush that queues, which finds nothing to apply. */
+    private static void disable() throws InterruptedException {
+        TagWriteBuffer.configure(false, null);
+        TestLanes.drain(LaneExecutor.Lane.USER);
+    }
+
+    private static HashMap<String, String> tags(String... keysAndValues) {
+        HashMap<String, String> tags = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            tags.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return tags;
+    }
+
+    @Test
+    public void leavesTheWriteToTheCallerWhenDisabled() throws InterruptedException {
+        disable();
+
+        assertFalse(TagWriteBuffer.addTags(tags("a", "1")));
+        assertFalse(TagWriteBuffer.removeTags(Collections.singletonList("a")));
+        assertNull(TagWriteBuffer.take());
+    }
+
+    @Test
+    public void aLaterValueForAKeyReplacesAnEarlierOne() {
+        long merged = (Long) TagWriteBuffer.metrics().get("merged");
+        assertTrue(TagWriteBuffer.addTags(tags("a", "1", "b", "1")));
+        TagWriteBuffer.addTags(tags("a", "2"));
+
+        TagWriteBuffer.Batch batch = TagWriteBuffer.take();
+
+        assertEquals(tags("a", "2", "b", "1"), batch.adds);
+        assertTrue(batch.removes.isEmpty());
+        assertEquals(merged + 1, TagWriteBuffer.metrics().get("merged"));
+    }
+
+    @Test
+    public void removingAKeyDropsItsBufferedAddButKeepsTheRemove() {
+        TagWriteBuffer.addTags(tags("a", "1", "b", "1"));
+        assertTrue(TagWriteBuffer.removeTags(Arrays.asList("a", "c")));
+
+        TagWriteBuffer.Batch batch = TagWriteBuffer.take();
+
+        assertEquals(tags("b", "1"), batch.adds);
+        assertEquals(Arrays.asList("a", "c"), batch.removes);
+    }
+
+    @Test
+    public void addingAKeyCancelsItsBufferedRemove() {
+        TagWriteBuffer.removeTags(Arrays.asList("a", "b"));
+        TagWriteBuffer.addTags(tags("a", "1"));
+
+        TagWriteBuffer.Batch batch = TagWriteBuffer.take();
+
+        assertEquals(tags("a", "1"), batch.adds);
+        assertEquals(Collections.singletonList("b"), batch.removes);
+    }
+
+    @Test
+    public void takeEmptiesTheBufferAndCountsAFlush() {
+        long flushes = (Long) TagWriteBuffer.metrics().get("flushes");
+        TagWriteBuffer.addTags(tags("a", "1"));
+        TagWriteBuffer.removeTags(Collections.singletonList("b"));
+
+        TagWriteBuffer.take();
+
+        HashMap<String, Object> metrics = TagWriteBuffer.metrics();
+        assertEquals(0, metrics.get("pendingAdds"));
+        assertEquals(0, metrics.get("pendingRemoves"));
+        assertEquals(flushes + 1, metrics.get("flushes"));
+        assertNull(TagWriteBuffer.take());
+    }
+}
@@ -0,0 +1,35 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Holds lanes still so tests can fill their queues, and waits for them to go idle. */
+final class TestLanes {
+
+    private TestLanes() {}
+
+    /** Occupies {@code lane} until the returned latch is counted down. */
+    static CountDownLatch block(LaneExecutor.Lane lane) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        LaneExecutor.execute(lane, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue("lane never started", started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    /** Returns once everything queued on {@code lane} before this call has run. */
+    static void drain(LaneExecutor.Lane lane) throws InterruptedException {
+        final CountDownLatch drained = new CountDownLatch(1);
+        LaneExecutor.execute(lane, drained::countDown);
+        assertTrue("lane never drained", drained.await(5, TimeUnit.SECONDS));
+    }
+}
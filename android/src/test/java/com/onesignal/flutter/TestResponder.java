@@ -0,0 +1,29 @@
+package com.onesignal.flutter;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * A responder whose handlers are registered by each test and whose replies are delivered on the
+ * replying thread, since plain JVM tests have no main looper to post them to.
+ */
+final class TestResponder extends FlutterMessengerResponder {
+
+    TestResponder(LaneExecutor.Lane lane) {
+        super(lane);
+    }
+
+    @Override
+    void replySuccess(MethodChannel.Result reply, Object response) {
+        reply.success(response);
+    }
+
+    @Override
+    void replyError(MethodChannel.Result reply, String tag, String message, Object response) {
+        reply.error(tag, message, response);
+    }
+
+    @Override
+    void replyNotImplemented(MethodChannel.Result reply) {
+        reply.notImplemented();
+    }
+}
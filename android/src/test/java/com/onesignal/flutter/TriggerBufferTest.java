@@ -0,0 +1,128 @@
+package com.onesignal.flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric, for the main-thread handler the window is timed on. The window never ends during a test;
+// each one takes the change itself rather than letting a flush apply it to the SDK.
+@RunWith(RobolectricTestRunner.class)
+public class TriggerBufferTest {
+
+    @Before
+    public void setUp() {
+        TriggerBuffer.configure(true, 60_000);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        TriggerBuffer.take();
+        TriggerBuffer.configure(null, TriggerBuffer.DEFAULT_WINDOW_MS);
+        disable();
+        // With buffering off this only empties the shadow copy.
+        TriggerBuffer.clearTriggers();
+    }
+
+    /** Turns buffering off and waits for the flush that queues, which finds nothing to apply. */
+    private static void disable() throws InterruptedException {
+        TriggerBuffer.configure(false, null);
+        TestLanes.drain(LaneExecutor.Lane.IN_APP_MESSAGES);
+    }
+
+    private static HashMap<String, String> triggers(String... keysAndValues) {
+        HashMap<String, String> triggers = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            triggers.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return triggers;
+    }
+
+    /** Puts the triggers in the shadow copy as if the SDK had been given them. */
+    private static void applied(HashMap<String, String> triggers) {
+        TriggerBuffer.addTriggers(triggers);
+        TriggerBuffer.take();
+    }
+
+    @Test
+    public void adjacentChangesBecomeOneNetChange() {
+        applied(triggers("a", "1", "b", "1"));
+
+        TriggerBuffer.addTriggers(triggers("b", "2", "c", "1"));
+        TriggerBuffer.addTriggers(triggers("d", "1"));
+        TriggerBuffer.removeTriggers(Arrays.asList("a", "d"));
+        TriggerBuffer.Change change = TriggerBuffer.take();
+
+        assertEquals(triggers("b", "2", "c", "1"), change.adds);
+        assertEquals(Collections.singletonList("a"), change.removes);
+        assertFalse(change.clear);
+    }
+
+    @Test
+    public void changesThatCancelOutReachNothing() {
+        applied(triggers("a", "1"));
+
+        TriggerBuffer.removeTriggers(Collections.singletonList("a"));
+        TriggerBuffer.addTriggers(triggers("a", "1"));
+
+        assertNull(TriggerBuffer.take());
+    }
+
+    @Test
+    public void callsThatChangeNothingAreCountedAsUnchanged() {
+        applied(triggers("a", "1"));
+        long unchanged = (Long) TriggerBuffer.metrics().get("unchanged");
+
+        TriggerBuffer.addTriggers(triggers("a", "1"));
+        TriggerBuffer.removeTriggers(Collections.singletonList("b"));
+
+        assertEquals(unchanged + 2, TriggerBuffer.metrics().get("unchanged"));
+        assertNull(TriggerBuffer.take());
+    }
+
+    @Test
+    public void removingEverythingBecomesOneClear() {
+        applied(triggers("a", "1", "b", "1"));
+
+        TriggerBuffer.removeTriggers(Collections.singletonList("a"));
+        TriggerBuffer.removeTriggers(Collections.singletonList("b"));
+
+        assertTrue(TriggerBuffer.take().clear);
+        assertEquals(0, TriggerBuffer.metrics().get("triggers"));
+    }
+
+    @Test
+    public void triggersSetWhileBufferingWasOffCanBeRemovedOnceItIsOn() throws InterruptedException {
+        disable();
+        assertFalse(TriggerBuffer.addTriggers(triggers("a", "1", "b", "1")));
+        TriggerBuffer.configure(true, null);
+
+        TriggerBuffer.removeTriggers(Collections.singletonList("a"));
+        TriggerBuffer.Change change = TriggerBuffer.take();
+
+        assertEquals(Collections.singletonList("a"), change.removes);
+        assertTrue(change.adds.isEmpty());
+    }
+
+    @Test
+    public void aClearWhileBufferingWasOffEmptiesTheShadowCopy() throws InterruptedException {
+        applied(triggers("a", "1"));
+        disable();
+        assertFalse(TriggerBuffer.clearTriggers());
+        TriggerBuffer.configure(true, null);
+
+        TriggerBuffer.addTriggers(triggers("a", "1"));
+        TriggerBuffer.Change change = TriggerBuffer.take();
+
+        assertEquals(triggers("a", "1"), change.adds);
+    }
+}
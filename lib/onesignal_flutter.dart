@@ -2,14 +2,19 @@ import 'dart:async';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
+import 'package:onesignal_flutter/src/batch.dart';
+import 'package:onesignal_flutter/src/bridge_options.dart';
 import 'package:onesignal_flutter/src/debug.dart';
 import 'package:onesignal_flutter/src/inappmessages.dart';
 import 'package:onesignal_flutter/src/liveactivities.dart';
 import 'package:onesignal_flutter/src/location.dart';
 import 'package:onesignal_flutter/src/notifications.dart';
 import 'package:onesignal_flutter/src/session.dart';
+import 'package:onesignal_flutter/src/state_snapshot.dart';
 import 'package:onesignal_flutter/src/user.dart';
 
+export 'src/batch.dart';
+export 'src/bridge_options.dart';
 export 'src/defines.dart';
 export 'src/inappmessage.dart';
 export 'src/inappmessages.dart';
@@ -17,8 +22,10 @@ export 'src/liveactivities.dart';
 export 'src/notification.dart';
 export 'src/notifications.dart';
 export 'src/pushsubscription.dart';
+export 'src/state_snapshot.dart';
 export 'src/subscription.dart';
 export 'src/user.dart';
+export 'src/user_changes.dart';
 
 class OneSignal {
   /// A singleton representing the OneSignal SDK.
@@ -43,12 +50,16 @@ class OneSignal {
   // private channels used to bridge to ObjC/Java
   static MethodChannel _channel = const MethodChannel('OneSignal');
 
+  static Completer<void> _ready = Completer<void>();
+  static bool _readyRequested = false;
+
   /// The initializer for OneSignal.
   ///
   /// The initializer accepts an [appId] which the developer can get
   /// from the OneSignal consoleas well as a dictonary of [launchOptions]
   static Future<void> initialize(String appId) async {
     await _channel.invokeMethod('OneSignal#initialize', {'appId': appId});
+    if (!_ready.isCompleted) _ready.complete();
     await Future.wait([
       InAppMessages.lifecycleInit(),
       User.lifecycleInit(),
@@ -57,6 +68,35 @@ class OneSignal {
     ]);
   }
 
+  /// Completes once the native SDK has finished initializing.
+  ///
+  /// On Android that includes initialization started from the app id in the
+  /// manifest, before [initialize] is called, and fails if that
+  /// initialization fails; reading it again after a failure waits for the
+  /// next attempt. On iOS it completes when [initialize] does.
+  static Future<void> get ready {
+    if (!_readyRequested && defaultTargetPlatform == TargetPlatform.android) {
+      _readyRequested = true;
+      final ready = _ready;
+      _channel.invokeMethod('OneSignal#whenReady').then((_) {
+        if (!ready.isCompleted) ready.complete();
+      }, onError: (Object error) {
+        _ready = Completer<void>();
+        _readyRequested = false;
+        if (!ready.isCompleted) ready.completeError(error);
+      });
+    }
+    return _ready.future;
+  }
+
+  /// Forgets that the SDK was reported ready, so a test can watch [ready]
+  /// complete from the start.
+  @visibleForTesting
+  static void resetReadyForTesting() {
+    _ready = Completer<void>();
+    _readyRequested = false;
+  }
+
   /// Login to OneSignal under the user identified by the [externalId] provided.
   ///
   /// The act of logging a user into the OneSignal SDK will switch the
@@ -104,4 +144,84 @@ class OneSignal {
     return await _channel
         .invokeMethod("OneSignal#consentRequired", {'required': require});
   }
+
+  /// Runs several bridge [calls] in order using a single platform channel
+  /// round trip, and returns one [OSBatchResult] per call in the same order.
+  ///
+  /// Each call behaves as if made on its own channel: calls to the same API
+  /// area run in order, and calls to different areas may overlap. A failing
+  /// call does not stop the calls after it. On iOS the calls are made one at
+  /// a time.
+  static Future<List<OSBatchResult>> batch(List<OSBatchCall> calls) async {
+    if (defaultTargetPlatform != TargetPlatform.android) {
+      var results = <OSBatchResult>[];
+      for (var call in calls) {
+        try {
+          results.add(OSBatchResult.success(await MethodChannel(call.channel)
+              .invokeMethod(call.method, call.arguments)));
+        } on PlatformException catch (error) {
+          results.add(OSBatchResult.failure(error));
+        } on MissingPluginException {
+          results.add(
+              OSBatchResult.failure(PlatformException(code: 'notImplemented')));
+        }
+      }
+      return results;
+    }
+    List<dynamic> results = await _channel.invokeMethod(
+        'OneSignal#batch', calls.map((call) => call.toMap()).toList());
+    return results
+        .map((result) => OSBatchResult(
+            (result as Map<dynamic, dynamic>).cast<String, dynamic>()))
+        .toList();
+  }
+
+  /// Reads the notification permission, push subscription, user, in-app
+  /// message and location state in one call, for apps that need all of it at
+  /// startup. Waits for [initialize] like the individual getters do.
+  ///
+  /// On Android the values are collected in a single native task. On iOS
+  /// they are read one at a time.
+  static Future<OSStateSnapshot> snapshot() async {
+    if (defaultTargetPlatform != TargetPlatform.android) {
+      return OSStateSnapshot(
+        permission: Notifications.permission,
+        canRequestPermission: await Notifications.canRequest(),
+        pushSubscriptionId: User.pushSubscription.id,
+        pushSubscriptionToken: User.pushSubscription.token,
+        pushSubscriptionOptedIn: User.pushSubscription.optedIn ?? false,
+        onesignalId: await User.getOnesignalId(),
+        externalId: await User.getExternalId(),
+        tags: await User.getTags(),
+        inAppMessagesPaused: await InAppMessages.arePaused(),
+        locationShared: await Location.isShared(),
+      );
+    }
+    Map<dynamic, dynamic> snapshot =
+        await _channel.invokeMethod('OneSignal#snapshot');
+    return OSStateSnapshot.fromMap(snapshot);
+  }
+
+  /// Android only
+  /// Applies tuning [options] to the native bridge. Options left null keep
+  /// their current value. Does nothing on iOS.
+  static Future<void> configureBridge(OSBridgeOptions options) async {
+    if (defaultTargetPlatform == TargetPlatform.android) {
+      return await _channel.invokeMethod(
+          "OneSignal#configureBridge", options.toMap());
+    }
+  }
+
+  /// Android only
+  /// Returns counters describing the native bridge, such as the queue depth
+  /// and wait time of each background lane. Intended for diagnostics; the
+  /// keys are not part of the stable API. Returns an empty map on iOS.
+  static Future<Map<String, dynamic>> bridgeMetrics() async {
+    if (defaultTargetPlatform != TargetPlatform.android) {
+      return <String, dynamic>{};
+    }
+    Map<dynamic, dynamic>? metrics =
+        await _channel.invokeMethod("OneSignal#bridgeMetrics");
+    return metrics?.cast<String, dynamic>() ?? <String, dynamic>{};
+  }
 }
@@ -0,0 +1,46 @@
+import 'package:flutter/services.dart';
+
+/// A single bridge call to run as part of [OneSignal.batch].
+///
+/// [channel] is the name of the method channel that owns [method], for
+/// example `OneSignal#user` for `OneSignal#addTags`.
+class OSBatchCall {
+  final String channel;
+  final String method;
+  final dynamic arguments;
+
+  OSBatchCall(this.channel, this.method, [this.arguments]);
+
+  Map<String, dynamic> toMap() {
+    return {
+      'channel': channel,
+      'method': method,
+      'arguments': arguments,
+    };
+  }
+}
+
+/// The outcome of one [OSBatchCall].
+class OSBatchResult {
+  /// The value the call returned, when it succeeded.
+  final dynamic result;
+
+  /// The error the call failed with, or null when it succeeded.
+  final PlatformException? error;
+
+  OSBatchResult.success(this.result) : error = null;
+
+  OSBatchResult.failure(this.error) : result = null;
+
+  OSBatchResult(Map<String, dynamic> json)
+      : result = json['result'],
+        error = json['success'] == true
+            ? null
+            : PlatformException(
+                code: json['code'] as String? ?? 'OneSignal',
+                message: json['message'] as String?,
+                details: json['details'],
+              );
+
+  bool get success => error == null;
+}
@@ -0,0 +1,227 @@
+import 'package:onesignal_flutter/src/defines.dart';
+
+/// Android only
+/// Tuning options for the native bridge between Dart and the OneSignal SDK.
+///
+/// Options left null keep their current native value, so
+/// [OneSignal.configureBridge] can be called more than once to change only
+/// some of them. Call it before [OneSignal.initialize] for options that
+/// affect startup.
+class OSBridgeOptions {
+  /// How many calls to the user, in-app message and session APIs can wait
+  /// for initialization to finish before [preInitQueueOverflow] applies.
+  int? preInitQueueCapacity;
+
+  /// What happens to calls made before initialization once
+  /// [preInitQueueCapacity] calls are already waiting.
+  OSPreInitQueueOverflow? preInitQueueOverflow;
+
+  /// How many calls can wait in the background queue of each API area
+  /// (user, notifications, in-app messages, ...) before
+  /// [laneQueueOverflow] applies. Defaults to 1024.
+  int? laneQueueCapacity;
+
+  /// What happens to a call once [laneQueueCapacity] calls are already
+  /// waiting in its API area's queue.
+  OSLaneQueueOverflow? laneQueueOverflow;
+
+  /// Leave rawPayload and additionalData out of notification click and
+  /// foreground display events. Handlers that need them call
+  /// [OSNotification.loadRawPayload] or [OSNotification.loadAdditionalData],
+  /// which fetch them from a native cache. Defaults to false.
+  bool? deferNotificationPayloads;
+
+  /// How many recent notifications the native cache keeps payloads for
+  /// while [deferNotificationPayloads] is on. Defaults to 32.
+  int? notificationPayloadCacheSize;
+
+  /// How many recently converted notifications the native bridge keeps, so
+  /// the foreground display and click events for one notification convert
+  /// it only once. Defaults to 16.
+  int? notificationMapCacheSize;
+
+  /// How long a converted notification stays reusable. Defaults to one
+  /// minute; zero keeps entries until they are evicted by size.
+  Duration? notificationMapCacheTtl;
+
+  /// How many foreground notifications the native bridge holds while they
+  /// wait on willDisplay listeners, including ones whose display was
+  /// prevented and may still be displayed later. Defaults to 64.
+  int? willDisplayCacheSize;
+
+  /// How long a notification whose display was prevented can still be
+  /// displayed. Defaults to ten minutes; zero keeps it until evicted by size.
+  Duration? willDisplayCacheTtl;
+
+  /// How long a foreground notification waits for the willDisplay
+  /// listeners before [willDisplayDeadlinePolicy] is applied to it. A
+  /// decision arriving later is ignored. Defaults to waiting indefinitely.
+  Duration? willDisplayDeadline;
+
+  /// Defaults to [OSWillDisplayDeadlinePolicy.display].
+  OSWillDisplayDeadlinePolicy? willDisplayDeadlinePolicy;
+
+  /// Combine [OneSignalUser.addTags] and [OneSignalUser.removeTags] calls
+  /// made within [tagWriteWindow] into one change. The change is also
+  /// applied before reading tags, on login and logout, and when the app
+  /// goes to the background. Defaults to false.
+  bool? bufferTagWrites;
+
+  /// Defaults to 500 milliseconds.
+  Duration? tagWriteWindow;
+
+  /// Answer the user id, external id, tags and push subscription getters
+  /// from a cache kept current by the SDK's observers, instead of queueing
+  /// each read behind other calls. Defaults to false.
+  bool? cacheStateReads;
+
+  /// Write [OneSignalUser.trackEvent] events to a file in app storage and
+  /// hand them to the SDK together, once [eventSpoolFlushCount] have
+  /// collected, after [eventSpoolFlushInterval], or when the app goes to the
+  /// background. Events tracked before initialization or consent wait in the
+  /// file, and events left in it by a previous run are delivered on the
+  /// next start. Defaults to false.
+  bool? spoolTrackedEvents;
+
+  /// The largest the spool file may grow; events tracked while it is full
+  /// are dropped. Defaults to 256 KB.
+  int? eventSpoolMaxBytes;
+
+  /// Defaults to 20.
+  int? eventSpoolFlushCount;
+
+  /// Defaults to five seconds.
+  Duration? eventSpoolFlushInterval;
+
+  /// Sum the values of [OneSignalSession.addOutcomeWithValue] calls made
+  /// within [outcomeWindow] and send one outcome per name with the total.
+  /// Outcomes are also sent when the app goes to the background. Also skip
+  /// [OneSignalSession.addUniqueOutcome] calls for outcomes already sent
+  /// since the last [OneSignal.initialize], login, logout or opened
+  /// notification. Defaults to false.
+  bool? aggregateOutcomes;
+
+  /// Defaults to one second.
+  Duration? outcomeWindow;
+
+  /// Compare in-app message trigger changes against the triggers already
+  /// set, dropping calls that change nothing, and apply the changes made
+  /// within [triggerWindow] as one update. Assumes triggers are only set
+  /// from Dart. Defaults to false.
+  bool? bufferTriggers;
+
+  /// Defaults to 100 milliseconds.
+  Duration? triggerWindow;
+
+  /// Send notification and in-app message events in a compact binary form
+  /// instead of string-keyed maps. Listeners receive the same event objects
+  /// either way. Defaults to false.
+  bool? binaryEvents;
+
+  /// Deliver events from all native callbacks together, once per
+  /// [eventBatchWindow], instead of one platform message each. Clicks and
+  /// foreground display events are still delivered right away. Defaults to
+  /// false.
+  bool? batchEvents;
+
+  /// How long the native bridge collects events before delivering them
+  /// while [batchEvents] is on. Defaults to 16 milliseconds, about one frame.
+  Duration? eventBatchWindow;
+
+  /// Deliver a burst of user state or push subscription changes (such as
+  /// during login or a token refresh) as a single change, from the state
+  /// before the burst to the state after it. Defaults to false.
+  bool? conflateStateChanges;
+
+  /// How long the native bridge waits for further changes while
+  /// [conflateStateChanges] is on. Defaults to 50 milliseconds.
+  Duration? stateConflationWindow;
+
+  OSBridgeOptions({
+    this.preInitQueueCapacity,
+    this.preInitQueueOverflow,
+    this.laneQueueCapacity,
+    this.laneQueueOverflow,
+    this.deferNotificationPayloads,
+    this.notificationPayloadCacheSize,
+    this.notificationMapCacheSize,
+    this.notificationMapCacheTtl,
+    this.willDisplayCacheSize,
+    this.willDisplayCacheTtl,
+    this.willDisplayDeadline,
+    this.willDisplayDeadlinePolicy,
+    this.bufferTagWrites,
+    this.tagWriteWindow,
+    this.cacheStateReads,
+    this.spoolTrackedEvents,
+    this.eventSpoolMaxBytes,
+    this.eventSpoolFlushCount,
+    this.eventSpoolFlushInterval,
+    this.aggregateOutcomes,
+    this.outcomeWindow,
+    this.bufferTriggers,
+    this.triggerWindow,
+    this.binaryEvents,
+    this.batchEvents,
+    this.eventBatchWindow,
+    this.conflateStateChanges,
+    this.stateConflationWindow,
+  });
+
+  Map<String, dynamic> toMap() {
+    var map = <String, dynamic>{};
+    if (preInitQueueCapacity != null)
+      map['preInitQueueCapacity'] = preInitQueueCapacity;
+    if (preInitQueueOverflow != null)
+      map['preInitQueueOverflow'] = preInitQueueOverflow!.index;
+    if (laneQueueCapacity != null)
+      map['laneQueueCapacity'] = laneQueueCapacity;
+    if (laneQueueOverflow != null)
+      map['laneQueueOverflow'] = laneQueueOverflow!.index;
+    if (deferNotificationPayloads != null)
+      map['deferNotificationPayloads'] = deferNotificationPayloads;
+    if (notificationPayloadCacheSize != null)
+      map['notificationPayloadCacheSize'] = notificationPayloadCacheSize;
+    if (notificationMapCacheSize != null)
+      map['notificationMapCacheSize'] = notificationMapCacheSize;
+    if (notificationMapCacheTtl != null)
+      map['notificationMapCacheTtlMs'] =
+          notificationMapCacheTtl!.inMilliseconds;
+    if (willDisplayCacheSize != null)
+      map['willDisplayCacheSize'] = willDisplayCacheSize;
+    if (willDisplayCacheTtl != null)
+      map['willDisplayCacheTtlMs'] = willDisplayCacheTtl!.inMilliseconds;
+    if (willDisplayDeadline != null)
+      map['willDisplayDeadlineMs'] = willDisplayDeadline!.inMilliseconds;
+    if (willDisplayDeadlinePolicy != null)
+      map['willDisplayDeadlinePolicy'] = willDisplayDeadlinePolicy!.index;
+    if (bufferTagWrites != null) map['bufferTagWrites'] = bufferTagWrites;
+    if (tagWriteWindow != null)
+      map['tagWriteWindowMs'] = tagWriteWindow!.inMilliseconds;
+    if (cacheStateReads != null) map['cacheStateReads'] = cacheStateReads;
+    if (spoolTrackedEvents != null)
+      map['spoolTrackedEvents'] = spoolTrackedEvents;
+    if (eventSpoolMaxBytes != null)
+      map['eventSpoolMaxBytes'] = eventSpoolMaxBytes;
+    if (eventSpoolFlushCount != null)
+      map['eventSpoolFlushCount'] = eventSpoolFlushCount;
+    if (eventSpoolFlushInterval != null)
+      map['eventSpoolFlushIntervalMs'] =
+          eventSpoolFlushInterval!.inMilliseconds;
+    if (aggregateOutcomes != null) map['aggregateOutcomes'] = aggregateOutcomes;
+    if (outcomeWindow != null)
+      map['outcomeWindowMs'] = outcomeWindow!.inMilliseconds;
+    if (bufferTriggers != null) map['bufferTriggers'] = bufferTriggers;
+    if (triggerWindow != null)
+      map['triggerWindowMs'] = triggerWindow!.inMilliseconds;
+    if (binaryEvents != null) map['binaryEvents'] = binaryEvents;
+    if (batchEvents != null) map['batchEvents'] = batchEvents;
+    if (eventBatchWindow != null)
+      map['eventBatchWindowMs'] = eventBatchWindow!.inMilliseconds;
+    if (conflateStateChanges != null)
+      map['conflateStateChanges'] = conflateStateChanges;
+    if (stateConflationWindow != null)
+      map['stateConflationWindowMs'] = stateConflationWindow!.inMilliseconds;
+    return map;
+  }
+}
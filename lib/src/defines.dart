@@ -38,3 +38,29 @@ enum OSCreateNotificationBadgeType { increase, setTo }
 ///   timezone: Deliver at a specific time of day in each user's timezone
 ///   last-active: Deliver at the same time the user last used your app
 enum OSCreateNotificationDelayOption { timezone, lastActive }
+
+/// Android only
+/// What the native bridge does with a call made before initialization has
+/// finished when its pre-initialize queue is already full.
+///   reject: fail the new call with a PlatformException
+///   dropOldest: fail the oldest queued call and queue the new one
+///   passThrough: run the new call right away without waiting
+enum OSPreInitQueueOverflow { reject, dropOldest, passThrough }
+
+/// Android only
+/// What the native bridge does with a new call when the background queue
+/// for its API area is already full.
+///   reject: fail the new call with a PlatformException
+///   dropOldest: fail the oldest queued getter and queue the new call; writes
+///     are never dropped, so the new call is rejected if none is queued
+///   coalesce: merge the new call into the last queued call if that is the
+///     same getter with the same arguments, or sets the same state (such as
+///     setLanguage, paused, or optIn and optOut); it then runs once with the
+///     newest arguments. Otherwise the new call is rejected
+enum OSLaneQueueOverflow { reject, dropOldest, coalesce }
+
+/// Android only
+/// What the native bridge does with a foreground notification when the
+/// willDisplay listeners haven't decided by
+/// [OSBridgeOptions.willDisplayDeadline].
+enum OSWillDisplayDeadlinePolicy { display, suppress }
@@ -0,0 +1,160 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+
+/// Decodes the binary event payloads the Android bridge sends when
+/// [OSBridgeOptions.binaryEvents] is on.
+///
+/// The result is the same map the bridge would otherwise have sent, so the
+/// event classes build from either form. The field order must match
+/// EventCodec.java.
+class OSEventCodec {
+  static const int version = 1;
+
+  static const int notificationWillDisplay = 0;
+  static const int notificationClick = 1;
+  static const int inAppMessageClick = 2;
+  static const int inAppMessageWillDisplay = 3;
+  static const int inAppMessageDidDisplay = 4;
+  static const int inAppMessageWillDismiss = 5;
+  static const int inAppMessageDidDismiss = 6;
+
+  static const int _string = 0;
+  static const int _int = 1;
+  static const int _bool = 2;
+  static const int _any = 3;
+
+  // Bit i of the presence mask is _notificationFields[i].
+  static const List<String> _notificationFields = [
+    'androidNotificationId',
+    'notificationId',
+    'title',
+    'body',
+    'smallIcon',
+    'largeIcon',
+    'bigPicture',
+    'smallIconAccentColor',
+    'launchUrl',
+    'sound',
+    'ledColor',
+    'lockScreenVisibility',
+    'groupKey',
+    'groupMessage',
+    'fromProjectNumber',
+    'collapseId',
+    'priority',
+    'rawPayload',
+    'payloadDeferred',
+    'additionalData',
+    'buttons',
+    'groupedNotifications',
+  ];
+  static const List<int> _notificationFieldTypes = [
+    _int, _string, _string, _string, _string, _string, _string, _string, //
+    _string, _string, _string, _int, _string, _string, _string, _string, //
+    _int, _string, _bool, _any, _any, _any,
+  ];
+
+  /// Returns the event map carried by [arguments], decoding it first if it
+  /// arrived in binary form.
+  static Map<String, dynamic> eventArguments(dynamic arguments) {
+    if (arguments is Uint8List) return decode(arguments);
+    return arguments.cast<String, dynamic>();
+  }
+
+  static Map<String, dynamic> decode(Uint8List bytes) {
+    var reader = _Reader(bytes);
+    var eventVersion = reader.readByte();
+    if (eventVersion != version) {
+      throw FormatException('Unsupported event codec version $eventVersion');
+    }
+    var kind = reader.readByte();
+    switch (kind) {
+      case notificationWillDisplay:
+        return {'notification': _readNotification(reader)};
+      case notificationClick:
+        return {
+          'notification': _readNotification(reader),
+          'result': {
+            'action_id': reader.readString(),
+            'url': reader.readString(),
+          },
+        };
+      case inAppMessageClick:
+        return {
+          'message': {'message_id': reader.readString()},
+          'result': {
+            'action_id': reader.readString(),
+            'url': reader.readString(),
+            'closing_message': reader.readByte() == 1,
+          },
+        };
+      case inAppMessageWillDisplay:
+      case inAppMessageDidDisplay:
+      case inAppMessageWillDismiss:
+      case inAppMessageDidDismiss:
+        return {
+          'message': {'message_id': reader.readString()},
+        };
+      default:
+        throw FormatException('Unknown event kind $kind');
+    }
+  }
+
+  static Map<String, dynamic> _readNotification(_Reader reader) {
+    var mask = reader.readInt();
+    var notification = <String, dynamic>{};
+    for (var i = 0; i < _notificationFields.length; i++) {
+      if (mask & (1 << i) == 0) continue;
+      switch (_notificationFieldTypes[i]) {
+        case _string:
+          notification[_notificationFields[i]] = reader.readString();
+          break;
+        case _int:
+          notification[_notificationFields[i]] = reader.readInt();
+          break;
+        case _bool:
+          notification[_notificationFields[i]] = reader.readByte() == 1;
+          break;
+        case _any:
+          notification[_notificationFields[i]] = reader.readValue();
+          break;
+      }
+    }
+    return notification;
+  }
+}
+
+class _Reader {
+  final Uint8List _bytes;
+  final ByteData _data;
+  int _position = 0;
+
+  _Reader(this._bytes) : _data = ByteData.sublistView(_bytes);
+
+  int readByte() => _data.getUint8(_position++);
+
+  int readInt() {
+    var value = _data.getInt32(_position);
+    _position += 4;
+    return value;
+  }
+
+  String? readString() {
+    var length = readInt();
+    if (length < 0) return null;
+    var value = utf8.decode(
+        Uint8List.sublistView(_bytes, _position, _position + length));
+    _position += length;
+    return value;
+  }
+
+  dynamic readValue() {
+    var length = readInt();
+    var value = const StandardMessageCodec().decodeMessage(
+        ByteData.sublistView(_bytes, _position, _position + length));
+    _position += length;
+    return value;
+  }
+}
@@ -0,0 +1,40 @@
+import 'dart:async';
+
+import 'package:flutter/services.dart';
+
+typedef Future<dynamic> OSEventHandler(MethodCall call);
+
+/// Delivers the `OneSignal#events` batches the Android bridge sends when
+/// [OSBridgeOptions.batchEvents] is on.
+///
+/// Each event names the channel it was raised on; it is handed to the
+/// handler registered for that channel, in the order the events were
+/// raised, exactly as if it had arrived on that channel by itself.
+class OSEventRouter {
+  static const MethodChannel _channel = const MethodChannel('OneSignal');
+
+  static final Map<String, OSEventHandler> _handlers =
+      <String, OSEventHandler>{};
+
+  /// Registers the handler that receives batched events for [channel].
+  static void register(MethodChannel channel, OSEventHandler handler) {
+    _handlers[channel.name] = handler;
+    _channel.setMethodCallHandler(_handleMethod);
+  }
+
+  static Future<Null> _handleMethod(MethodCall call) async {
+    if (call.method != 'OneSignal#events') return null;
+    for (var event in call.arguments as List<dynamic>) {
+      var handler = _handlers[event['channel']];
+      if (handler == null) continue;
+      try {
+        await handler(
+            MethodCall(event['method'] as String, event['arguments']));
+      } catch (error, stackTrace) {
+        // One failing listener must not swallow the rest of the batch.
+        Zone.current.handleUncaughtError(error, stackTrace);
+      }
+    }
+    return null;
+  }
+}
@@ -2,7 +2,10 @@ import 'dart:async';
 
 import 'package:flutter/services.dart';
 import 'package:onesignal_flutter/onesignal_flutter.dart';
+import 'package:onesignal_flutter/src/event_codec.dart';
+import 'package:onesignal_flutter/src/event_router.dart';
 import 'package:onesignal_flutter/src/inappmessage.dart';
+import 'package:onesignal_flutter/src/observed_events.dart';
 
 typedef void OnClickInAppMessageListener(OSInAppMessageClickEvent event);
 
@@ -18,10 +21,12 @@ typedef void OnDidDismissInAppMessageListener(
 class OneSignalInAppMessages {
   // private channels used to bridge to ObjC/Java
   MethodChannel _channel = const MethodChannel('OneSignal#inappmessages');
+  late final OSObservedEvents _observedEvents = OSObservedEvents(_channel);
 
   // constructor method
   OneSignalInAppMessages() {
     this._channel.setMethodCallHandler(_handleMethod);
+    OSEventRouter.register(this._channel, _handleMethod);
   }
 
   List<OnClickInAppMessageListener> _clickListeners =
@@ -75,35 +80,46 @@ class OneSignalInAppMessages {
   }
 
   Future<void> lifecycleInit() async {
+    _reportObservedEvents();
     return await _channel.invokeMethod("OneSignal#lifecycleInit");
   }
 
+  void _reportObservedEvents() {
+    _observedEvents.report({
+      'OneSignal#onClickInAppMessage': _clickListeners.isNotEmpty,
+      'OneSignal#onWillDisplayInAppMessage': _willDisplayListeners.isNotEmpty,
+      'OneSignal#onDidDisplayInAppMessage': _didDisplayListeners.isNotEmpty,
+      'OneSignal#onWillDismissInAppMessage': _willDismissListeners.isNotEmpty,
+      'OneSignal#onDidDismissInAppMessage': _didDismissListeners.isNotEmpty,
+    });
+  }
+
   // Private function that gets called by ObjC/Java
   Future<Null> _handleMethod(MethodCall call) async {
     if (call.method == 'OneSignal#onClickInAppMessage') {
       for (var listener in _clickListeners) {
-        listener(
-            OSInAppMessageClickEvent(call.arguments.cast<String, dynamic>()));
+        listener(OSInAppMessageClickEvent(
+            OSEventCodec.eventArguments(call.arguments)));
       }
     } else if (call.method == 'OneSignal#onWillDisplayInAppMessage') {
       for (var listener in _willDisplayListeners) {
         listener(OSInAppMessageWillDisplayEvent(
-            call.arguments.cast<String, dynamic>()));
+            OSEventCodec.eventArguments(call.arguments)));
       }
     } else if (call.method == 'OneSignal#onDidDisplayInAppMessage') {
       for (var listener in _didDisplayListeners) {
         listener(OSInAppMessageDidDisplayEvent(
-            call.arguments.cast<String, dynamic>()));
+            OSEventCodec.eventArguments(call.arguments)));
       }
     } else if (call.method == 'OneSignal#onWillDismissInAppMessage') {
       for (var listener in _willDismissListeners) {
         listener(OSInAppMessageWillDismissEvent(
-            call.arguments.cast<String, dynamic>()));
+            OSEventCodec.eventArguments(call.arguments)));
       }
     } else if (call.method == 'OneSignal#onDidDismissInAppMessage') {
       for (var listener in _didDismissListeners) {
         listener(OSInAppMessageDidDismissEvent(
-            call.arguments.cast<String, dynamic>()));
+            OSEventCodec.eventArguments(call.arguments)));
       }
     }
     return null;
@@ -113,41 +129,51 @@ class OneSignalInAppMessages {
   /// OneSignal IAM button or image with an action event attacthed to it
   void addClickListener(OnClickInAppMessageListener listener) {
     _clickListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeClickListener(OnClickInAppMessageListener listener) {
     _clickListeners.remove(listener);
+    _reportObservedEvents();
   }
 
   void addWillDisplayListener(OnWillDisplayInAppMessageListener listener) {
     _willDisplayListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeWillDisplayListener(OnWillDisplayInAppMessageListener listener) {
     _willDisplayListeners.remove(listener);
+    _reportObservedEvents();
   }
 
   void addDidDisplayListener(OnDidDisplayInAppMessageListener listener) {
     _didDisplayListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeDidDisplayListener(OnDidDisplayInAppMessageListener listener) {
     _didDisplayListeners.remove(listener);
+    _reportObservedEvents();
   }
 
   void addWillDismissListener(OnWillDismissInAppMessageListener listener) {
     _willDismissListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeWillDismissListener(OnWillDismissInAppMessageListener listener) {
     _willDismissListeners.remove(listener);
+    _reportObservedEvents();
   }
 
   void addDidDismissListener(OnDidDismissInAppMessageListener listener) {
     _didDismissListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeDidDismissListener(OnDidDismissInAppMessageListener listener) {
     _didDismissListeners.remove(listener);
+    _reportObservedEvents();
   }
 }
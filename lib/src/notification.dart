@@ -174,6 +174,12 @@ class OSNotification extends JSONStringRepresentable {
   /// notification (if set)
   OSAndroidBackgroundImageLayout? backgroundImageLayout;
 
+  /// (Android Only)
+  /// True when this notification was delivered without [rawPayload] and
+  /// [additionalData] because [OSBridgeOptions.deferNotificationPayloads]
+  /// is on. Use [loadRawPayload] and [loadAdditionalData] to fetch them.
+  bool payloadDeferred = false;
+
   //converts JSON map to OSNotification instance
   OSNotification(Map<String, dynamic> json) {
     // iOS Specific Parameters
@@ -254,6 +260,8 @@ class OSNotification extends JSONStringRepresentable {
       this.rawPayload = decoder.convert(raw);
     }
 
+    if (json['payloadDeferred'] == true) this.payloadDeferred = true;
+
     if (json.containsKey('buttons')) {
       this.buttons = List<OSActionButton>.empty(growable: true);
       var btns = json['buttons'] as List<dynamic>;
@@ -264,6 +272,31 @@ class OSNotification extends JSONStringRepresentable {
     }
   }
 
+  /// Returns [rawPayload], fetching it from the native bridge first if
+  /// this notification was delivered with [payloadDeferred].
+  Future<Map<String, dynamic>?> loadRawPayload() async {
+    if (this.rawPayload == null && this.payloadDeferred) {
+      var raw = await OneSignal.Notifications.notificationPayload(
+          this.notificationId, 'rawPayload') as String?;
+      if (raw != null) {
+        JsonDecoder decoder = JsonDecoder();
+        this.rawPayload = decoder.convert(raw);
+      }
+    }
+    return this.rawPayload;
+  }
+
+  /// Returns [additionalData], fetching it from the native bridge first if
+  /// this notification was delivered with [payloadDeferred].
+  Future<Map<String, dynamic>?> loadAdditionalData() async {
+    if (this.additionalData == null && this.payloadDeferred) {
+      var data = await OneSignal.Notifications.notificationPayload(
+          this.notificationId, 'additionalData');
+      if (data != null) this.additionalData = data.cast<String, dynamic>();
+    }
+    return this.additionalData;
+  }
+
   String jsonRepresentation() => convertToJsonString(this.rawPayload);
 }
 
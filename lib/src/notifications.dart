@@ -3,7 +3,10 @@ import 'dart:async';
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:onesignal_flutter/src/defines.dart';
+import 'package:onesignal_flutter/src/event_codec.dart';
+import 'package:onesignal_flutter/src/event_router.dart';
 import 'package:onesignal_flutter/src/notification.dart';
+import 'package:onesignal_flutter/src/observed_events.dart';
 
 typedef void OnNotificationPermissionChangeObserver(bool permission);
 
@@ -33,12 +36,14 @@ class OneSignalNotifications {
 
   // private channels used to bridge to ObjC/Java
   MethodChannel _channel = const MethodChannel('OneSignal#notifications');
+  late final OSObservedEvents _observedEvents = OSObservedEvents(_channel);
 
   List<OnNotificationPermissionChangeObserver> _observers =
       <OnNotificationPermissionChangeObserver>[];
   // constructor method
   OneSignalNotifications() {
     this._channel.setMethodCallHandler(_handleMethod);
+    OSEventRouter.register(this._channel, _handleMethod);
   }
 
   bool _permission = false;
@@ -132,13 +137,23 @@ class OneSignalNotifications {
     addPermissionObserver((permission) {
       _permission = permission;
     });
+    _reportObservedEvents();
     return await _channel.invokeMethod("OneSignal#lifecycleInit");
   }
 
+  // Clicks aren't reported: they are buffered until the first click listener
+  // is added. Without a willDisplay listener, Android displays notifications
+  // itself instead of waiting on Dart.
+  void _reportObservedEvents() {
+    _observedEvents.report({
+      'OneSignal#onWillDisplayNotification': _willDisplayListeners.isNotEmpty,
+    });
+  }
+
   Future<Null> _handleMethod(MethodCall call) async {
     if (call.method == 'OneSignal#onClickNotification') {
-      var event =
-          OSNotificationClickEvent(call.arguments.cast<String, dynamic>());
+      var event = OSNotificationClickEvent(
+          OSEventCodec.eventArguments(call.arguments));
       if (_clickListeners.isNotEmpty) {
         for (var listener in _clickListeners) {
           listener(event);
@@ -153,12 +168,11 @@ class OneSignalNotifications {
         _pendingClickEvents.add(event);
       }
     } else if (call.method == 'OneSignal#onWillDisplayNotification') {
+      var json = OSEventCodec.eventArguments(call.arguments);
       for (var listener in _willDisplayListeners) {
-        listener(OSNotificationWillDisplayEvent(
-            call.arguments.cast<String, dynamic>()));
+        listener(OSNotificationWillDisplayEvent(json));
       }
-      var event = OSNotificationWillDisplayEvent(
-          call.arguments.cast<String, dynamic>());
+      var event = OSNotificationWillDisplayEvent(json);
       _channel.invokeMethod("OneSignal#proceedWithWillDisplay",
           {'notificationId': event.notification.notificationId});
     } else if (call.method == 'OneSignal#onNotificationPermissionDidChange') {
@@ -176,11 +190,13 @@ class OneSignalNotifications {
   void addForegroundWillDisplayListener(
       OnNotificationWillDisplayListener listener) {
     _willDisplayListeners.add(listener);
+    _reportObservedEvents();
   }
 
   void removeForegroundWillDisplayListener(
       OnNotificationWillDisplayListener listener) {
     _willDisplayListeners.remove(listener);
+    _reportObservedEvents();
   }
 
   /// The notification willDisplay listener is called whenever a notification arrives
@@ -190,6 +206,16 @@ class OneSignalNotifications {
         "OneSignal#preventDefault", {'notificationId': notificationId});
   }
 
+  /// Android only
+  /// Fetches the rawPayload or additionalData [field] of a notification that
+  /// was delivered without it. Prefer [OSNotification.loadRawPayload] and
+  /// [OSNotification.loadAdditionalData].
+  Future<dynamic> notificationPayload(
+      String notificationId, String field) async {
+    return await _channel.invokeMethod("OneSignal#notificationPayload",
+        {'notificationId': notificationId, 'field': field});
+  }
+
   void displayNotification(String notificationId) {
     _channel.invokeMethod(
         "OneSignal#displayNotification", {'notificationId': notificationId});
@@ -0,0 +1,24 @@
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+
+/// Android only
+/// Tells the native bridge which of a channel's events have Dart listeners,
+/// so it can skip converting and sending the ones nobody listens to.
+///
+/// Events are only skipped once reported unobserved; until then the bridge
+/// sends everything, as before.
+class OSObservedEvents {
+  final MethodChannel _channel;
+  Map<String, bool>? _reported;
+
+  OSObservedEvents(this._channel);
+
+  /// Sends [observed], a map of event method name to whether it has
+  /// listeners, if it differs from what was last sent.
+  void report(Map<String, bool> observed) {
+    if (defaultTargetPlatform != TargetPlatform.android) return;
+    if (mapEquals(observed, _reported)) return;
+    _reported = observed;
+    _channel.invokeMethod("OneSignal#setObservedEvents", observed);
+  }
+}
@@ -1,5 +1,6 @@
 import 'dart:async';
 import 'package:flutter/services.dart';
+import 'package:onesignal_flutter/src/event_router.dart';
 import 'package:onesignal_flutter/src/subscription.dart';
 
 typedef void OnPushSubscriptionChangeObserver(
@@ -17,6 +18,7 @@ class OneSignalPushSubscription {
   // constructor method
   OneSignalPushSubscription() {
     this._channel.setMethodCallHandler(_handleMethod);
+    OSEventRouter.register(this._channel, _handleMethod);
   }
 
   String? get id {
@@ -0,0 +1,56 @@
+/// The state apps typically read at startup, as returned by
+/// [OneSignal.snapshot].
+class OSStateSnapshot {
+  /// Whether the app has permission to display notifications.
+  final bool permission;
+
+  /// Whether requesting notification permission would show a prompt.
+  final bool canRequestPermission;
+
+  final String? pushSubscriptionId;
+  final String? pushSubscriptionToken;
+  final bool pushSubscriptionOptedIn;
+
+  final String? onesignalId;
+  final String? externalId;
+  final Map<String, String> tags;
+
+  final bool inAppMessagesPaused;
+  final bool locationShared;
+
+  OSStateSnapshot({
+    required this.permission,
+    required this.canRequestPermission,
+    this.pushSubscriptionId,
+    this.pushSubscriptionToken,
+    required this.pushSubscriptionOptedIn,
+    this.onesignalId,
+    this.externalId,
+    required this.tags,
+    required this.inAppMessagesPaused,
+    required this.locationShared,
+  });
+
+  /// Builds a snapshot from the map returned by `OneSignal#snapshot`.
+  factory OSStateSnapshot.fromMap(Map<dynamic, dynamic> map) {
+    Map<dynamic, dynamic> part(String key) =>
+        map[key] as Map<dynamic, dynamic>? ?? {};
+    var notifications = part('notifications');
+    var pushSubscription = part('pushSubscription');
+    var user = part('user');
+    return OSStateSnapshot(
+      permission: notifications['permission'] == true,
+      canRequestPermission: notifications['canRequest'] == true,
+      pushSubscriptionId: pushSubscription['id'] as String?,
+      pushSubscriptionToken: pushSubscription['token'] as String?,
+      pushSubscriptionOptedIn: pushSubscription['optedIn'] == true,
+      onesignalId: user['onesignalId'] as String?,
+      externalId: user['externalId'] as String?,
+      tags: (user['tags'] as Map<dynamic, dynamic>?)
+              ?.cast<String, String>() ??
+          <String, String>{},
+      inAppMessagesPaused: part('inAppMessages')['paused'] == true,
+      locationShared: part('location')['shared'] == true,
+    );
+  }
+}
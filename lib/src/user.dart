@@ -1,7 +1,12 @@
 import 'dart:async';
 
+import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
+import 'package:onesignal_flutter/src/batch.dart';
+import 'package:onesignal_flutter/src/event_router.dart';
+import 'package:onesignal_flutter/src/observed_events.dart';
 import 'package:onesignal_flutter/src/pushsubscription.dart';
+import 'package:onesignal_flutter/src/user_changes.dart';
 import 'package:onesignal_flutter/src/utils.dart';
 
 typedef void OnUserChangeObserver(OSUserChangedState stateChanges);
@@ -50,11 +55,13 @@ class OneSignalUser {
 
   // private channels used to bridge to ObjC/Java
   MethodChannel _channel = const MethodChannel('OneSignal#user');
+  late final OSObservedEvents _observedEvents = OSObservedEvents(_channel);
 
   List<OnUserChangeObserver> _observers = <OnUserChangeObserver>[];
   // constructor method
   OneSignalUser() {
     this._channel.setMethodCallHandler(_handleMethod);
+    OSEventRouter.register(this._channel, _handleMethod);
   }
 
   /// Sets the user's language.
@@ -169,6 +176,66 @@ class OneSignalUser {
     return await _channel.invokeMethod("OneSignal#getOnesignalId");
   }
 
+  /// Applies all of [changes] to the current user with one platform channel
+  /// call.
+  ///
+  /// On Android the changes are validated together first, and none are
+  /// applied if any part is malformed; the returned future then completes
+  /// with a [PlatformException]. Otherwise each part reports its own result.
+  /// On iOS the parts are applied one at a time.
+  Future<OSUserChangesResult> applyChanges(OSUserChanges changes) async {
+    if (defaultTargetPlatform != TargetPlatform.android) {
+      return _applyChangesOneByOne(changes);
+    }
+    Map<dynamic, dynamic> parts =
+        await _channel.invokeMethod("OneSignal#applyChanges", changes.toMap());
+    return OSUserChangesResult(parts.map((name, part) => MapEntry(
+        name as String,
+        OSBatchResult(
+            (part as Map<dynamic, dynamic>).cast<String, dynamic>()))));
+  }
+
+  Future<OSUserChangesResult> _applyChangesOneByOne(
+      OSUserChanges changes) async {
+    var parts = <String, OSBatchResult>{};
+    Future<void> apply(String name, Future<void> Function() part) async {
+      try {
+        await part();
+        parts[name] = OSBatchResult.success(null);
+      } on PlatformException catch (error) {
+        parts[name] = OSBatchResult.failure(error);
+      }
+    }
+
+    if (changes.language != null)
+      await apply('language', () => setLanguage(changes.language!));
+    if (changes.removeAliases != null)
+      await apply('removeAliases', () => removeAliases(changes.removeAliases!));
+    if (changes.addAliases != null)
+      await apply('addAliases', () => addAliases(changes.addAliases!));
+    if (changes.removeEmails != null)
+      await apply('removeEmails', () async {
+        for (var email in changes.removeEmails!) await removeEmail(email);
+      });
+    if (changes.addEmails != null)
+      await apply('addEmails', () async {
+        for (var email in changes.addEmails!) await addEmail(email);
+      });
+    if (changes.removeSms != null)
+      await apply('removeSms', () async {
+        for (var sms in changes.removeSms!) await removeSms(sms);
+      });
+    if (changes.addSms != null)
+      await apply('addSms', () async {
+        for (var sms in changes.addSms!) await addSms(sms);
+      });
+    if (changes.removeTags != null)
+      await apply('removeTags', () => removeTags(changes.removeTags!));
+    if (changes.addTags != null)
+      await apply('addTags', () => addTags(Map.of(changes.addTags!)));
+    return OSUserChangesResult(parts);
+  }
+
   /// Track a custom event for the current user.
   ///
   /// [name] is the event name to track.
@@ -186,17 +253,26 @@ class OneSignalUser {
   /// externalId as well to confirm the values are associated with the expected user.*
   void addObserver(OnUserChangeObserver observer) {
     _observers.add(observer);
+    _reportObservedEvents();
   }
 
   // Remove a user state observer that has been previously added.
   void removeObserver(OnUserChangeObserver observer) {
     _observers.remove(observer);
+    _reportObservedEvents();
   }
 
   Future<void> lifecycleInit() async {
+    _reportObservedEvents();
     return await _channel.invokeMethod("OneSignal#lifecycleInit");
   }
 
+  void _reportObservedEvents() {
+    _observedEvents.report({
+      'OneSignal#onUserStateChange': _observers.isNotEmpty,
+    });
+  }
+
   // Private function that gets called by ObjC/Java
   Future<Null> _handleMethod(MethodCall call) async {
     if (call.method == 'OneSignal#onUserStateChange') {
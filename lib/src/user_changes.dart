@@ -0,0 +1,55 @@
+import 'package:onesignal_flutter/src/batch.dart';
+
+/// A set of changes to the current user, applied together by
+/// [OneSignalUser.applyChanges].
+///
+/// Parts left null are not changed. Removals are applied before additions.
+class OSUserChanges {
+  String? language;
+  Map<String, String>? addAliases;
+  List<String>? removeAliases;
+  List<String>? addEmails;
+  List<String>? removeEmails;
+  List<String>? addSms;
+  List<String>? removeSms;
+  Map<String, dynamic>? addTags;
+  List<String>? removeTags;
+
+  OSUserChanges({
+    this.language,
+    this.addAliases,
+    this.removeAliases,
+    this.addEmails,
+    this.removeEmails,
+    this.addSms,
+    this.removeSms,
+    this.addTags,
+    this.removeTags,
+  });
+
+  Map<String, dynamic> toMap() {
+    var map = <String, dynamic>{};
+    if (language != null) map['language'] = language;
+    if (addAliases != null) map['addAliases'] = addAliases;
+    if (removeAliases != null) map['removeAliases'] = removeAliases;
+    if (addEmails != null) map['addEmails'] = addEmails;
+    if (removeEmails != null) map['removeEmails'] = removeEmails;
+    if (addSms != null) map['addSms'] = addSms;
+    if (removeSms != null) map['removeSms'] = removeSms;
+    if (addTags != null)
+      map['addTags'] =
+          addTags!.map((key, value) => MapEntry(key, value.toString()));
+    if (removeTags != null) map['removeTags'] = removeTags;
+    return map;
+  }
+}
+
+/// The outcome of [OneSignalUser.applyChanges], keyed by the name of each
+/// part that was present in the [OSUserChanges], such as `addTags`.
+class OSUserChangesResult {
+  final Map<String, OSBatchResult> parts;
+
+  OSUserChangesResult(this.parts);
+
+  bool get success => parts.values.every((part) => part.success);
+}
@@ -0,0 +1,153 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:onesignal_flutter/src/event_codec.dart';
+import 'package:onesignal_flutter/src/inappmessage.dart';
+import 'package:onesignal_flutter/src/notification.dart';
+
+// Mirrors EventCodec.java for the fields these tests use.
+class _Writer {
+  final BytesBuilder _builder = BytesBuilder();
+
+  void byte(int value) => _builder.addByte(value);
+
+  void int32(int value) {
+    var data = ByteData(4)..setInt32(0, value);
+    _builder.add(data.buffer.asUint8List());
+  }
+
+  void string(String? value) {
+    if (value == null) {
+      int32(-1);
+      return;
+    }
+    var bytes = utf8.encode(value);
+    int32(bytes.length);
+    _builder.add(bytes);
+  }
+
+  void value(dynamic value) {
+    var data = const StandardMessageCodec().encodeMessage(value)!;
+    int32(data.lengthInBytes);
+    _builder.add(
+        data.buffer.asUint8List(data.offsetInBytes, data.lengthInBytes));
+  }
+
+  Uint8List toBytes() => _builder.toBytes();
+}
+
+// notificationId, title, rawPayload and additionalData
+const int _notificationMask = (1 << 1) | (1 << 2) | (1 << 17) | (1 << 19);
+
+void _writeNotification(_Writer writer) {
+  writer.int32(_notificationMask);
+  writer.string('notification-123');
+  writer.string('Test Title');
+  writer.string('{"key":"value"}');
+  writer.value({'custom_key': 'custom_value'});
+}
+
+void main() {
+  group('OSEventCodec', () {
+    test('decodes a notification will display event', () {
+      var writer = _Writer()
+        ..byte(OSEventCodec.version)
+        ..byte(OSEventCodec.notificationWillDisplay);
+      _writeNotification(writer);
+
+      var event = OSNotificationWillDisplayEvent(
+          OSEventCodec.eventArguments(writer.toBytes()));
+
+      expect(event.notification.notificationId, 'notification-123');
+      expect(event.notification.title, 'Test Title');
+      expect(event.notification.body, isNull);
+      expect(event.notification.rawPayload, {'key': 'value'});
+      expect(
+          event.notification.additionalData, {'custom_key': 'custom_value'});
+    });
+
+    test('decodes a notification click event', () {
+      var writer = _Writer()
+        ..byte(OSEventCodec.version)
+        ..byte(OSEventCodec.notificationClick);
+      _writeNotification(writer);
+      writer
+        ..string('action-123')
+        ..string(null);
+
+      var event = OSNotificationClickEvent(
+          OSEventCodec.eventArguments(writer.toBytes()));
+
+      expect(event.notification.notificationId, 'notification-123');
+      expect(event.result.actionId, 'action-123');
+      expect(event.result.url, isNull);
+    });
+
+    test('decodes an in-app message click event', () {
+      var writer = _Writer()
+        ..byte(OSEventCodec.version)
+        ..byte(OSEventCodec.inAppMessageClick)
+        ..string('message-123')
+        ..string('action-123')
+        ..string('https://example.com')
+        ..byte(1);
+
+      var event = OSInAppMessageClickEvent(
+          OSEventCodec.eventArguments(writer.toBytes()));
+
+      expect(event.message.messageId, 'message-123');
+      expect(event.result.actionId, 'action-123');
+      expect(event.result.url, 'https://example.com');
+      expect(event.result.closingMessage, true);
+    });
+
+    test('decodes in-app message lifecycle events', () {
+      var writer = _Writer()
+        ..byte(OSEventCodec.version)
+        ..byte(OSEventCodec.inAppMessageDidDismiss)
+        ..string('message-123');
+
+      var event = OSInAppMessageDidDismissEvent(
+          OSEventCodec.eventArguments(writer.toBytes()));
+
+      expect(event.message.messageId, 'message-123');
+    });
+
+    test('is smaller than the map form of the same event', () {
+      var writer = _Writer()
+        ..byte(OSEventCodec.version)
+        ..byte(OSEventCodec.notificationWillDisplay);
+      _writeNotification(writer);
+      var binary = writer.toBytes().lengthInBytes;
+
+      var map = const StandardMessageCodec().encodeMessage({
+        'notification': {
+          'notificationId': 'notification-123',
+          'title': 'Test Title',
+          'rawPayload': '{"key":"value"}',
+          'additionalData': {'custom_key': 'custom_value'},
+        }
+      })!.lengthInBytes;
+
+      expect(OSEventCodec.decode(writer.toBytes())['notification'],
+          containsPair('title', 'Test Title'));
+      expect(binary, lessThan(map), reason: 'binary $binary B, map $map B');
+    });
+
+    test('passes map arguments through', () {
+      var json = OSEventCodec.eventArguments({
+        'message': {'message_id': 'message-123'}
+      });
+
+      expect(json['message'], {'message_id': 'message-123'});
+    });
+
+    test('rejects an unknown version', () {
+      var bytes = Uint8List.fromList([OSEventCodec.version + 1, 0]);
+
+      expect(() => OSEventCodec.decode(bytes), throwsFormatException);
+    });
+  });
+}
@@ -0,0 +1,91 @@
+import 'package:flutter_test/flutter_test.dart';
+import 'package:onesignal_flutter/src/inappmessage.dart';
+import 'package:onesignal_flutter/src/inappmessages.dart';
+import 'package:onesignal_flutter/src/notifications.dart';
+
+import 'mock_channel.dart';
+
+void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+
+  group('OSEventRouter', () {
+    late OneSignalMockChannelController channelController;
+    late OneSignalNotifications notifications;
+    late OneSignalInAppMessages inAppMessages;
+
+    setUp(() {
+      channelController = OneSignalMockChannelController();
+      channelController.resetState();
+      notifications = OneSignalNotifications();
+      inAppMessages = OneSignalInAppMessages();
+    });
+
+    test('delivers batched events to their channel handlers in order',
+        () async {
+      final received = <String>[];
+      notifications.addPermissionObserver((permission) {
+        received.add('permission:$permission');
+      });
+      inAppMessages.addWillDisplayListener((event) {
+        received.add('willDisplay:${event.message.messageId}');
+      });
+      inAppMessages.addDidDisplayListener((event) {
+        received.add('didDisplay:${event.message.messageId}');
+      });
+
+      channelController.simulateMethodCall('OneSignal', 'OneSignal#events', [
+        {
+          'channel': 'OneSignal#inappmessages',
+          'method': 'OneSignal#onWillDisplayInAppMessage',
+          'arguments': {
+            'message': {'message_id': 'message-123'}
+          },
+        },
+        {
+          'channel': 'OneSignal#inappmessages',
+          'method': 'OneSignal#onDidDisplayInAppMessage',
+          'arguments': {
+            'message': {'message_id': 'message-123'}
+          },
+        },
+        {
+          'channel': 'OneSignal#notifications',
+          'method': 'OneSignal#onNotificationPermissionDidChange',
+          'arguments': {'permission': true},
+        },
+      ]);
+      await Future<void>.delayed(Duration.zero);
+
+      expect(received, [
+        'willDisplay:message-123',
+        'didDisplay:message-123',
+        'permission:true',
+      ]);
+    });
+
+    test('skips events for channels without a handler', () async {
+      OSInAppMessageDidDismissEvent? dismissed;
+      inAppMessages.addDidDismissListener((event) {
+        dismissed = event;
+      });
+
+      channelController.simulateMethodCall('OneSignal', 'OneSignal#events', [
+        {
+          'channel': 'OneSignal#unknown',
+          'method': 'OneSignal#onSomething',
+          'arguments': null,
+        },
+        {
+          'channel': 'OneSignal#inappmessages',
+          'method': 'OneSignal#onDidDismissInAppMessage',
+          'arguments': {
+            'message': {'message_id': 'message-456'}
+          },
+        },
+      ]);
+      await Future<void>.delayed(Duration.zero);
+
+      expect(dismissed?.message.messageId, 'message-456');
+    });
+  });
+}
@@ -1,3 +1,4 @@
+import 'package:flutter/foundation.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:onesignal_flutter/src/inappmessage.dart';
 import 'package:onesignal_flutter/src/inappmessages.dart';
@@ -135,6 +136,50 @@ void main() {
       });
     });
 
+    group('Observed events', () {
+      setUp(() {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+      });
+
+      tearDown(() {
+        debugDefaultTargetPlatformOverride = null;
+      });
+
+      test('lifecycleInit reports events without listeners', () async {
+        await inAppMessages.lifecycleInit();
+
+        expect(channelController.state.observedEvents,
+            containsPair('OneSignal#onClickInAppMessage', false));
+        expect(channelController.state.observedEvents,
+            containsPair('OneSignal#onDidDismissInAppMessage', false));
+      });
+
+      test('adding and removing a listener updates the report', () async {
+        await inAppMessages.lifecycleInit();
+        void listener(OSInAppMessageClickEvent event) {}
+
+        inAppMessages.addClickListener(listener);
+        await Future<void>.delayed(Duration.zero);
+        expect(channelController.state.observedEvents,
+            containsPair('OneSignal#onClickInAppMessage', true));
+        expect(channelController.state.observedEvents,
+            containsPair('OneSignal#onWillDisplayInAppMessage', false));
+
+        inAppMessages.removeClickListener(listener);
+        await Future<void>.delayed(Duration.zero);
+        expect(channelController.state.observedEvents,
+            containsPair('OneSignal#onClickInAppMessage', false));
+      });
+
+      test('does not report on iOS', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.iOS;
+
+        await inAppMessages.lifecycleInit();
+
+        expect(channelController.state.observedEvents, isEmpty);
+      });
+    });
+
     group('Click listeners', () {
       test('addClickListener adds listener to list', () async {
         bool listenerCalled = false;
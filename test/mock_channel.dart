@@ -1,3 +1,5 @@
+import 'dart:async';
+
 import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:onesignal_flutter/onesignal_flutter.dart';
@@ -144,6 +146,10 @@ class OneSignalMockChannelController {
       case "OneSignal#initialize":
         state.setAppId(call.arguments);
         break;
+      case "OneSignal#whenReady":
+        state.whenReadyRequested = true;
+        await state.whenReadyReply?.future;
+        break;
       case "OneSignal#login":
         state.externalId =
             (call.arguments as Map<dynamic, dynamic>)['externalId'] as String?;
@@ -163,6 +169,42 @@ class OneSignalMockChannelController {
         state.requiresPrivacyConsent =
             (call.arguments as Map<dynamic, dynamic>)['required'] as bool?;
         break;
+      case "OneSignal#batch":
+        state.batchCallCount++;
+        final results = <Map<String, dynamic>>[];
+        for (var entry in call.arguments as List<dynamic>) {
+          final result = await _handleMethod(
+              MethodCall(entry['method'] as String, entry['arguments']));
+          results.add({'success': true, 'result': result});
+        }
+        return results;
+      case "OneSignal#configureBridge":
+        state.bridgeOptions = call.arguments as Map<dynamic, dynamic>?;
+        break;
+      case "OneSignal#bridgeMetrics":
+        state.bridgeMetricsRequested = true;
+        return {
+          'lanes': {
+            'core': {'depth': 0, 'maxDepth': 1},
+          },
+        };
+      case "OneSignal#snapshot":
+        state.snapshotRequested = true;
+        return {
+          'notifications': {'permission': true, 'canRequest': false},
+          'pushSubscription': {
+            'id': 'push-id',
+            'token': 'push-token',
+            'optedIn': true,
+          },
+          'user': {
+            'onesignalId': 'onesignal-id',
+            'externalId': null,
+            'tags': {'level': '3'},
+          },
+          'inAppMessages': {'paused': false},
+          'location': {'shared': true},
+        };
       case "OneSignal#setAppId":
         state.setAppId(call.arguments);
         break;
@@ -288,6 +330,17 @@ class OneSignalMockChannelController {
         state.preventedNotificationId = (call.arguments
             as Map<dynamic, dynamic>)['notificationId'] as String?;
         break;
+      case "OneSignal#setObservedEvents":
+        state.observedEvents.addAll(
+            (call.arguments as Map<dynamic, dynamic>).cast<String, bool>());
+        break;
+      case "OneSignal#notificationPayload":
+        final args = call.arguments as Map<dynamic, dynamic>;
+        state.requestedPayloadNotificationId =
+            args['notificationId'] as String?;
+        return args['field'] == 'rawPayload'
+            ? '{"key":"value"}'
+            : {'custom_key': 'custom_value'};
       case "OneSignal#removeNotification":
         state.removedNotificationId =
             (call.arguments as Map<dynamic, dynamic>)['notificationId'] as int?;
@@ -353,6 +406,10 @@ class OneSignalMockChannelController {
       case "OneSignal#removeAliases":
         state.removedAliases = call.arguments as List<dynamic>?;
         break;
+      case "OneSignal#applyChanges":
+        final changes = call.arguments as Map<dynamic, dynamic>;
+        state.userChanges = changes;
+        return changes.map((name, _) => MapEntry(name, {'success': true}));
       case "OneSignal#addTags":
         state.tags = call.arguments as Map<dynamic, dynamic>?;
         break;
@@ -417,6 +474,13 @@ class OneSignalState {
   bool? disablePush;
   String? externalId;
   String? language;
+  bool? bridgeMetricsRequested;
+  bool? snapshotRequested;
+  bool? whenReadyRequested;
+  // Holds back the whenReady reply until completed; null replies at once.
+  Completer<void>? whenReadyReply;
+  int batchCallCount = 0;
+  Map<dynamic, dynamic>? bridgeOptions;
 
   // live activities
   bool? liveActivityEntered;
@@ -443,12 +507,15 @@ class OneSignalState {
 
   // tags
   Map<dynamic, dynamic>? tags;
+  Map<dynamic, dynamic>? userChanges;
   List<dynamic>? deleteTags;
 
   // notifications
   Map<dynamic, dynamic>? postNotificationJson;
   String? displayedNotificationId;
   String? preventedNotificationId;
+  String? requestedPayloadNotificationId;
+  Map<String, bool> observedEvents = {};
   int? removedNotificationId;
   String? removedNotificationGroup;
   bool? clearedAllNotifications;
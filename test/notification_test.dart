@@ -470,6 +470,57 @@ void main() {
     });
   });
 
+  group('OSNotification deferred payload', () {
+    late OneSignalMockChannelController channelController;
+
+    setUp(() {
+      TestWidgetsFlutterBinding.ensureInitialized();
+      channelController = OneSignalMockChannelController();
+      channelController.resetState();
+    });
+
+    test('parses payloadDeferred flag', () {
+      final notification = OSNotification(
+          {'notificationId': 'deferred-id', 'payloadDeferred': true});
+
+      expect(notification.payloadDeferred, true);
+      expect(notification.rawPayload, isNull);
+      expect(notification.additionalData, isNull);
+    });
+
+    test('loadRawPayload fetches and decodes the raw payload', () async {
+      final notification = OSNotification(
+          {'notificationId': 'deferred-id', 'payloadDeferred': true});
+
+      final rawPayload = await notification.loadRawPayload();
+
+      expect(rawPayload, {'key': 'value'});
+      expect(notification.rawPayload, {'key': 'value'});
+      expect(channelController.state.requestedPayloadNotificationId,
+          'deferred-id');
+    });
+
+    test('loadAdditionalData fetches additional data', () async {
+      final notification = OSNotification(
+          {'notificationId': 'deferred-id', 'payloadDeferred': true});
+
+      final additionalData = await notification.loadAdditionalData();
+
+      expect(additionalData, {'custom_key': 'custom_value'});
+      expect(notification.additionalData, {'custom_key': 'custom_value'});
+    });
+
+    test('load methods do not call native when payload was delivered',
+        () async {
+      final notification = OSNotification(validNotificationJson);
+
+      expect(await notification.loadRawPayload(), {'key': 'value'});
+      expect(await notification.loadAdditionalData(),
+          {'custom_key': 'custom_value'});
+      expect(channelController.state.requestedPayloadNotificationId, isNull);
+    });
+  });
+
   group('OSNotificationWillDisplayEvent preventDefault', () {
     late OneSignalMockChannelController channelController;
 
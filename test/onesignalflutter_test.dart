@@ -1,4 +1,7 @@
+import 'dart:async';
+
 import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:onesignal_flutter/onesignal_flutter.dart';
 
@@ -14,6 +17,10 @@ void main() {
     channelController.resetState();
   });
 
+  tearDown(() {
+    debugDefaultTargetPlatformOverride = null;
+  });
+
   group('OneSignal', () {
     test('initialize sets appId and calls lifecycle methods', () async {
       await OneSignal.initialize('test-app-id');
@@ -23,6 +30,61 @@ void main() {
       expect(channelController.state.userLifecycleInitCalled, isTrue);
     });
 
+    group('ready', () {
+      setUp(() {
+        OneSignal.resetReadyForTesting();
+      });
+
+      test('ready completes only once Android reports readiness', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+        var reply = Completer<void>();
+        channelController.state.whenReadyReply = reply;
+        var completed = false;
+
+        var ready = OneSignal.ready.then((_) => completed = true);
+        await Future<void>.delayed(Duration.zero);
+
+        expect(channelController.state.whenReadyRequested, isTrue);
+        expect(completed, isFalse);
+
+        reply.complete();
+        await ready;
+        expect(completed, isTrue);
+      });
+
+      test('ready fails with Android and waits again when read again',
+          () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+        var reply = Completer<void>();
+        channelController.state.whenReadyReply = reply;
+
+        var failed = expectLater(OneSignal.ready, throwsA(anything));
+        await Future<void>.delayed(Duration.zero);
+        reply.completeError(
+            PlatformException(code: 'OneSignal', message: 'init failed'));
+        await failed;
+
+        channelController.resetState();
+        await OneSignal.ready;
+        expect(channelController.state.whenReadyRequested, isTrue);
+      });
+
+      test('ready completes with initialize on iOS', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.iOS;
+        var completed = false;
+
+        var ready = OneSignal.ready.then((_) => completed = true);
+        await Future<void>.delayed(Duration.zero);
+
+        expect(completed, isFalse);
+        expect(channelController.state.whenReadyRequested, isNull);
+
+        await OneSignal.initialize('test-app-id');
+        await ready;
+        expect(completed, isTrue);
+      });
+    });
+
     group('login', () {
       test('login invokes native method with externalId', () async {
         await OneSignal.login('user-123');
@@ -94,6 +156,161 @@ void main() {
       });
     });
 
+    group('batch', () {
+      test('batch sends every call in one native invocation', () async {
+        final results = await OneSignal.batch([
+          OSBatchCall('OneSignal#user', 'OneSignal#addTags', {'level': '3'}),
+          OSBatchCall('OneSignal#user', 'OneSignal#addEmail', 'a@b.com'),
+          OSBatchCall('OneSignal#user', 'OneSignal#getTags'),
+        ]);
+
+        expect(channelController.state.batchCallCount, equals(1));
+        expect(channelController.state.addedEmail, equals('a@b.com'));
+        expect(results.length, equals(3));
+        expect(results.every((result) => result.success), isTrue);
+        expect(results[2].result, equals({'level': '3'}));
+      });
+
+      test('batch result maps native errors to PlatformException', () {
+        final result = OSBatchResult({
+          'success': false,
+          'code': 'OneSignal',
+          'message': 'boom',
+          'details': null,
+        });
+
+        expect(result.success, isFalse);
+        expect(result.error!.code, equals('OneSignal'));
+        expect(result.error!.message, equals('boom'));
+      });
+    });
+
+    group('configureBridge', () {
+      test('configureBridge sends every option under its key', () async {
+        // Each option's key on the channel and the value sent for it.
+        var table = <String, dynamic>{
+          'preInitQueueCapacity': 32,
+          'preInitQueueOverflow': OSPreInitQueueOverflow.dropOldest.index,
+          'laneQueueCapacity': 256,
+          'laneQueueOverflow': OSLaneQueueOverflow.coalesce.index,
+          'deferNotificationPayloads': true,
+          'notificationPayloadCacheSize': 16,
+          'notificationMapCacheSize': 8,
+          'notificationMapCacheTtlMs': 30000,
+          'willDisplayCacheSize': 32,
+          'willDisplayCacheTtlMs': 120000,
+          'willDisplayDeadlineMs': 500,
+          'willDisplayDeadlinePolicy':
+              OSWillDisplayDeadlinePolicy.suppress.index,
+          'bufferTagWrites': true,
+          'tagWriteWindowMs': 1000,
+          'cacheStateReads': true,
+          'spoolTrackedEvents': true,
+          'eventSpoolMaxBytes': 65536,
+          'eventSpoolFlushCount': 50,
+          'eventSpoolFlushIntervalMs': 10000,
+          'aggregateOutcomes': true,
+          'outcomeWindowMs': 2000,
+          'bufferTriggers': true,
+          'triggerWindowMs': 250,
+          'binaryEvents': true,
+          'batchEvents': true,
+          'eventBatchWindowMs': 32,
+          'conflateStateChanges': true,
+          'stateConflationWindowMs': 100,
+        };
+
+        await OneSignal.configureBridge(OSBridgeOptions(
+          preInitQueueCapacity: 32,
+          preInitQueueOverflow: OSPreInitQueueOverflow.dropOldest,
+          laneQueueCapacity: 256,
+          laneQueueOverflow: OSLaneQueueOverflow.coalesce,
+          deferNotificationPayloads: true,
+          notificationPayloadCacheSize: 16,
+          notificationMapCacheSize: 8,
+          notificationMapCacheTtl: Duration(seconds: 30),
+          willDisplayCacheSize: 32,
+          willDisplayCacheTtl: Duration(minutes: 2),
+          willDisplayDeadline: Duration(milliseconds: 500),
+          willDisplayDeadlinePolicy: OSWillDisplayDeadlinePolicy.suppress,
+          bufferTagWrites: true,
+          tagWriteWindow: Duration(seconds: 1),
+          cacheStateReads: true,
+          spoolTrackedEvents: true,
+          eventSpoolMaxBytes: 65536,
+          eventSpoolFlushCount: 50,
+          eventSpoolFlushInterval: Duration(seconds: 10),
+          aggregateOutcomes: true,
+          outcomeWindow: Duration(seconds: 2),
+          bufferTriggers: true,
+          triggerWindow: Duration(milliseconds: 250),
+          binaryEvents: true,
+          batchEvents: true,
+          eventBatchWindow: Duration(milliseconds: 32),
+          conflateStateChanges: true,
+          stateConflationWindow: Duration(milliseconds: 100),
+        ));
+
+        expect(channelController.state.bridgeOptions, table);
+      });
+
+      test('configureBridge sends only the options that are set', () async {
+        await OneSignal.configureBridge(
+            OSBridgeOptions(laneQueueCapacity: 256));
+        expect(
+            channelController.state.bridgeOptions, {'laneQueueCapacity': 256});
+
+        await OneSignal.configureBridge(OSBridgeOptions());
+        expect(channelController.state.bridgeOptions, isEmpty);
+      });
+    });
+
+    group('bridgeMetrics', () {
+      test('bridgeMetrics returns native lane metrics on Android', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+
+        final metrics = await OneSignal.bridgeMetrics();
+
+        expect(channelController.state.bridgeMetricsRequested, isTrue);
+        expect(metrics['lanes']['core']['maxDepth'], equals(1));
+
+        debugDefaultTargetPlatformOverride = null;
+      });
+
+      test('bridgeMetrics returns an empty map on iOS', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.iOS;
+
+        final metrics = await OneSignal.bridgeMetrics();
+
+        expect(channelController.state.bridgeMetricsRequested, isNull);
+        expect(metrics, isEmpty);
+
+        debugDefaultTargetPlatformOverride = null;
+      });
+    });
+
+    group('snapshot', () {
+      test('snapshot reads startup state in one call on Android', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+
+        final snapshot = await OneSignal.snapshot();
+
+        expect(channelController.state.snapshotRequested, isTrue);
+        expect(snapshot.permission, isTrue);
+        expect(snapshot.canRequestPermission, isFalse);
+        expect(snapshot.pushSubscriptionId, equals('push-id'));
+        expect(snapshot.pushSubscriptionToken, equals('push-token'));
+        expect(snapshot.pushSubscriptionOptedIn, isTrue);
+        expect(snapshot.onesignalId, equals('onesignal-id'));
+        expect(snapshot.externalId, isNull);
+        expect(snapshot.tags, equals({'level': '3'}));
+        expect(snapshot.inAppMessagesPaused, isFalse);
+        expect(snapshot.locationShared, isTrue);
+
+        debugDefaultTargetPlatformOverride = null;
+      });
+    });
+
     group('static properties', () {
       test('static properties are initialized', () {
         expect(OneSignal.Debug, isNotNull);
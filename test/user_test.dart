@@ -1,5 +1,7 @@
+import 'package:flutter/foundation.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:onesignal_flutter/src/user.dart';
+import 'package:onesignal_flutter/src/user_changes.dart';
 
 import 'mock_channel.dart';
 
@@ -322,6 +324,55 @@ void main() {
       });
     });
 
+    group('applyChanges', () {
+      tearDown(() {
+        debugDefaultTargetPlatformOverride = null;
+      });
+
+      test('sends only the parts that are set', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+
+        await user.applyChanges(OSUserChanges(
+          language: 'fr',
+          addTags: {'level': 3},
+          removeAliases: ['old'],
+        ));
+
+        expect(controller.state.userChanges, {
+          'language': 'fr',
+          'addTags': {'level': '3'},
+          'removeAliases': ['old'],
+        });
+      });
+
+      test('returns a result for each part', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.android;
+
+        var result = await user.applyChanges(OSUserChanges(
+          addEmails: [email],
+          addSms: [sms],
+        ));
+
+        expect(result.parts.keys, containsAll(['addEmails', 'addSms']));
+        expect(result.success, true);
+      });
+
+      test('applies parts one at a time on iOS', () async {
+        debugDefaultTargetPlatformOverride = TargetPlatform.iOS;
+
+        var result = await user.applyChanges(OSUserChanges(
+          language: 'de',
+          addTags: {'tier': 'gold'},
+        ));
+
+        expect(controller.state.userChanges, isNull);
+        expect(controller.state.language, 'de');
+        expect(controller.state.tags, {'tier': 'gold'});
+        expect(result.parts.keys, containsAll(['language', 'addTags']));
+        expect(result.success, true);
+      });
+    });
+
     group('observers', () {
       test('can add observer', () {
         bool observerCalled = false;